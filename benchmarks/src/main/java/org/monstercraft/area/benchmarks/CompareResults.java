@@ -0,0 +1,182 @@
+package org.monstercraft.area.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two result files written by JMH with -rf csv, such as the results
+ * of the last release and of the build about to be deployed. Every
+ * benchmark found in both files is printed with the change of its score,
+ * and the exit code is 1 if any of them got slower than the threshold.
+ *
+ * Usage: CompareResults old.csv new.csv [threshold percent, default 10]
+ */
+public final class CompareResults {
+
+    /**
+     * A score of a benchmark with a set of parameters.
+     */
+    private static final class Score {
+
+        final String mode;
+
+        final double value;
+
+        final double error;
+
+        final String unit;
+
+        Score(final String mode, final double value, final double error,
+                final String unit) {
+            this.mode = mode;
+            this.value = value;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        /**
+         * Checks if higher scores are better, as they are for throughput.
+         */
+        boolean isRate() {
+            return mode.equals("thrpt");
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <old.csv> <new.csv>"
+                    + " [threshold percent]");
+            System.exit(2);
+        }
+        final double threshold = args.length > 2 ? Double
+                .parseDouble(args[2]) : 10;
+        final Map<String, Score> before = CompareResults.read(args[0]);
+        final Map<String, Score> after = CompareResults.read(args[1]);
+        int regressions = 0;
+        for (final Map.Entry<String, Score> e : after.entrySet()) {
+            final Score old = before.get(e.getKey());
+            final Score now = e.getValue();
+            if (old == null) {
+                System.out.printf("%-70s %14s %14.3f %s (new)%n", e.getKey(),
+                        "", now.value, now.unit);
+                continue;
+            }
+            if (!old.mode.equals(now.mode) || !old.unit.equals(now.unit)) {
+                System.out.printf("%-70s mode or unit changed, skipped%n",
+                        e.getKey());
+                continue;
+            }
+            final double change = (now.value - old.value) / old.value * 100;
+            final double worse = now.isRate() ? -change : change;
+            // Changes within the errors of both runs are noise
+            final boolean noise = Math.abs(now.value - old.value) <= old.error
+                    + now.error;
+            final boolean regressed = worse > threshold && !noise;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %s %+7.1f%%%s%n",
+                    e.getKey(), old.value, now.value, now.unit, change,
+                    regressed ? "  REGRESSION" : "");
+        }
+        for (final String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                System.out.printf("%-70s (removed)%n", key);
+            }
+        }
+        System.out.println(regressions + " regression(s) over " + threshold
+                + "%");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /**
+     * Reads the scores of a result file, keyed by the benchmark and its
+     * parameters.
+     */
+    private static Map<String, Score> read(final String file)
+            throws IOException {
+        final Map<String, Score> scores = new LinkedHashMap<String, Score>();
+        final BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            final List<String> header = CompareResults.split(in.readLine());
+            final int benchmark = header.indexOf("Benchmark");
+            final int mode = header.indexOf("Mode");
+            final int score = header.indexOf("Score");
+            final int error = header.indexOf("Score Error (99.9%)");
+            final int unit = header.indexOf("Unit");
+            if (benchmark < 0 || mode < 0 || score < 0 || unit < 0) {
+                throw new IOException(file + " is not a JMH csv result file");
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final List<String> values = CompareResults.split(line);
+                final StringBuilder key = new StringBuilder(
+                        values.get(benchmark));
+                for (int i = 0; i < header.size(); i++) {
+                    if (header.get(i).startsWith("Param: ")
+                            && !values.get(i).isEmpty()) {
+                        key.append(' ').append(header.get(i).substring(7))
+                                .append('=').append(values.get(i));
+                    }
+                }
+                scores.put(key.toString(), new Score(values.get(mode),
+                        CompareResults.number(values.get(score)),
+                        error < 0 ? 0 : CompareResults.number(values
+                                .get(error)), values.get(unit)));
+            }
+        } finally {
+            in.close();
+        }
+        return scores;
+    }
+
+    private static double number(final String value) {
+        if (value.isEmpty() || value.equals("NaN")) {
+            return 0;
+        }
+        return Double.parseDouble(value);
+    }
+
+    /**
+     * Splits a line of the file into its values, removing the quotes around
+     * them.
+     */
+    private static List<String> split(final String line) {
+        final List<String> values = new ArrayList<String>();
+        final StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length()
+                        && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private CompareResults() {
+    }
+}
@@ -0,0 +1,56 @@
+package org.monstercraft.area.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.World;
+import org.monstercraft.area.api.wrappers.Area;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks if an area contains another area centered within it. The inner
+ * area is always contained, so every block of it is checked unless the
+ * outer area can decide using the bounds alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContainsAreaBenchmark {
+
+    @Param({ "CUBED", "POLYGONAL", "COLUMN", "VOXEL" })
+    public Shape outer;
+
+    @Param({ "CUBED", "POLYGONAL" })
+    public Shape inner;
+
+    @Param({ "64" })
+    public int size;
+
+    private Area area;
+
+    private Area other;
+
+    @Benchmark
+    public boolean containsArea() {
+        return area.contains(other);
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final World world = MemoryWorld.create("world", 256);
+        area = outer.create(world, 0, size);
+        other = inner.create(world, size / 4, size / 2);
+    }
+}
@@ -0,0 +1,65 @@
+package org.monstercraft.area.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.monstercraft.area.api.wrappers.Area;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks locations and blocks against every wrapper. The samples hit and
+ * miss the area, so branches are not perfectly predicted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContainsBenchmark {
+
+    @Param({ "CUBED", "HEIGHTLESS", "SINGLE_PLANE", "POLYGONAL",
+            "POLYGON_PRISM", "COMPOSITE", "COLUMN", "VOXEL" })
+    public Shape shape;
+
+    @Param({ "32" })
+    public int size;
+
+    private Area area;
+
+    private Location[] locations;
+
+    private Block[] blocks;
+
+    private int next;
+
+    @Benchmark
+    public boolean containsBlock() {
+        return area.contains(blocks[next++ & Samples.MASK]);
+    }
+
+    @Benchmark
+    public boolean containsLocation() {
+        return area.contains(locations[next++ & Samples.MASK]);
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final World world = MemoryWorld.create("world", 256);
+        area = shape.create(world, 0, size);
+        locations = Samples.locations(world, 0, size);
+        blocks = Samples.blocks(locations);
+    }
+}
@@ -0,0 +1,54 @@
+package org.monstercraft.area.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.block.Block;
+import org.monstercraft.area.api.wrappers.Area;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Collects the blocks of small, medium and huge areas: 512, 32768 and
+ * 2097152 blocks for a cube. The blocks are created by the in-memory world,
+ * so the cost of creating them is measured along with the area.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GetBlocksBenchmark {
+
+    @Param({ "CUBED" })
+    public Shape shape;
+
+    @Param({ "8", "32", "128" })
+    public int size;
+
+    private Area area;
+
+    @Benchmark
+    public Block[] getBlocks() {
+        return area.getBlocks();
+    }
+
+    @Benchmark
+    public long[] getBlockPositions() {
+        return area.getBlockPositions();
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        area = shape.create(MemoryWorld.create("world", 256), 0, size);
+    }
+}
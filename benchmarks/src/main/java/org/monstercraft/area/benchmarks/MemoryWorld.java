@@ -0,0 +1,158 @@
+package org.monstercraft.area.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+/**
+ * An in-memory stand-in for a world and its blocks, so the areas can be
+ * benchmarked without a running server. Only the methods the areas call are
+ * answered; every other method returns null, false or zero.
+ *
+ * Blocks are created on every call to getBlockAt, as they are by the server,
+ * and answer their coordinates, world and location.
+ */
+final class MemoryWorld implements InvocationHandler {
+
+    /**
+     * Creates a world.
+     *
+     * @param name
+     *            The name of the world.
+     * @param maxHeight
+     *            The height of the world.
+     * @return The world.
+     */
+    static World create(final String name, final int maxHeight) {
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(),
+                new Class<?>[] { World.class }, new MemoryWorld(name,
+                        maxHeight));
+    }
+
+    /**
+     * The value returned by methods which are not answered.
+     */
+    private static Object defaultOf(final Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0F;
+        } else if (type == double.class) {
+            return 0D;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+
+    /**
+     * A block of the world.
+     */
+    private static final class MemoryBlock implements InvocationHandler {
+
+        private final World world;
+
+        private final int x;
+
+        private final int y;
+
+        private final int z;
+
+        MemoryBlock(final World world, final int x, final int y, final int z) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method,
+                final Object[] args) {
+            switch (method.getName()) {
+            case "getX":
+                return x;
+            case "getY":
+                return y;
+            case "getZ":
+                return z;
+            case "getWorld":
+                return world;
+            case "getLocation":
+                return new Location(world, x, y, z);
+            case "equals":
+                if (!(args[0] instanceof Block)) {
+                    return false;
+                }
+                final Block other = (Block) args[0];
+                return other.getX() == x && other.getY() == y
+                        && other.getZ() == z && world.equals(other.getWorld());
+            case "hashCode":
+                return (y << 24) ^ (x << 12) ^ z;
+            case "toString":
+                return "MemoryBlock{" + x + "," + y + "," + z + "}";
+            default:
+                return MemoryWorld.defaultOf(method.getReturnType());
+            }
+        }
+    }
+
+    private final String name;
+
+    private final int maxHeight;
+
+    private final UUID uid = UUID.randomUUID();
+
+    private MemoryWorld(final String name, final int maxHeight) {
+        this.name = name;
+        this.maxHeight = maxHeight;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method,
+            final Object[] args) {
+        switch (method.getName()) {
+        case "getBlockAt":
+            if (args.length == 1) {
+                final Location loc = (Location) args[0];
+                return this.blockAt((World) proxy, loc.getBlockX(),
+                        loc.getBlockY(), loc.getBlockZ());
+            }
+            return this.blockAt((World) proxy, (Integer) args[0],
+                    (Integer) args[1], (Integer) args[2]);
+        case "getMaxHeight":
+            return maxHeight;
+        case "getName":
+            return name;
+        case "getUID":
+            return uid;
+        case "equals":
+            return proxy == args[0];
+        case "hashCode":
+            return uid.hashCode();
+        case "toString":
+            return "MemoryWorld{" + name + "}";
+        default:
+            return MemoryWorld.defaultOf(method.getReturnType());
+        }
+    }
+
+    private Block blockAt(final World world, final int x, final int y,
+            final int z) {
+        return (Block) Proxy.newProxyInstance(Block.class.getClassLoader(),
+                new Class<?>[] { Block.class }, new MemoryBlock(world, x, y,
+                        z));
+    }
+}
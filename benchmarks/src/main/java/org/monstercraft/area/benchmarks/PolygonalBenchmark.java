@@ -0,0 +1,73 @@
+package org.monstercraft.area.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.monstercraft.area.api.wrappers.Area;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks membership of polygonal areas as they grow. The balls hold 2176,
+ * 137376 and 1099136 blocks, so a lookup which does not stay constant shows
+ * up as a growing score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolygonalBenchmark {
+
+    @Param({ "16", "64", "128" })
+    public int size;
+
+    private Area area;
+
+    private Location[] locations;
+
+    private int[] xs;
+
+    private int[] ys;
+
+    private int[] zs;
+
+    private int next;
+
+    @Benchmark
+    public boolean containsCoordinates() {
+        final int i = next++ & Samples.MASK;
+        return area.contains(xs[i], ys[i], zs[i]);
+    }
+
+    @Benchmark
+    public boolean containsLocation() {
+        return area.contains(locations[next++ & Samples.MASK]);
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final World world = MemoryWorld.create("world", 256);
+        area = Shape.POLYGONAL.create(world, 0, size);
+        locations = Samples.locations(world, 0, size);
+        xs = new int[locations.length];
+        ys = new int[locations.length];
+        zs = new int[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            xs[i] = locations[i].getBlockX();
+            ys[i] = locations[i].getBlockY();
+            zs[i] = locations[i].getBlockZ();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.monstercraft.area.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.exception.InvalidDirectionException;
+import org.monstercraft.area.api.wrappers.Area;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resizes and moves the box shaped wrappers. Every invocation undoes its own
+ * change, so the area stays the same size over the run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResizeBenchmark {
+
+    @Param({ "CUBED", "HEIGHTLESS", "SINGLE_PLANE" })
+    public Shape shape;
+
+    private Area area;
+
+    @Benchmark
+    public Area expandThenShrink() throws InvalidDirectionException {
+        area.expand(Direction.NORTH, 1);
+        area.shrink(Direction.NORTH, 1);
+        return area;
+    }
+
+    @Benchmark
+    public Area shiftThereAndBack() throws InvalidDirectionException {
+        area.shift(Direction.EAST, 1);
+        area.shift(Direction.WEST, 1);
+        return area;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        area = shape.create(MemoryWorld.create("world", 256), 0, 32);
+    }
+}
@@ -0,0 +1,57 @@
+package org.monstercraft.area.benchmarks;
+
+import java.util.Random;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+/**
+ * Fixed sets of locations and blocks to check areas against. The same seed
+ * is used by every run, so results of different releases check the same
+ * points.
+ */
+final class Samples {
+
+    /**
+     * The amount of samples, a power of two so benchmarks can cycle through
+     * them using a mask.
+     */
+    static final int SIZE = 1024;
+
+    static final int MASK = Samples.SIZE - 1;
+
+    /**
+     * Fetches the blocks at the locations.
+     */
+    static Block[] blocks(final Location[] locations) {
+        final Block[] blocks = new Block[locations.length];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = locations[i].getWorld().getBlockAt(locations[i]);
+        }
+        return blocks;
+    }
+
+    /**
+     * Creates locations spread over the cube from min to min + size - 1 and
+     * a margin of a quarter of its size around it, so some of them miss the
+     * area created within the cube.
+     */
+    static Location[] locations(final World world, final int min,
+            final int size) {
+        final Random random = new Random(42);
+        final int margin = Math.max(size / 4, 1);
+        final int span = size + margin * 2;
+        final Location[] locations = new Location[Samples.SIZE];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = new Location(world, min - margin
+                    + random.nextInt(span) + 0.5, Math.max(min - margin
+                    + random.nextInt(span), 0) + 0.5, min - margin
+                    + random.nextInt(span) + 0.5);
+        }
+        return locations;
+    }
+
+    private Samples() {
+    }
+}
@@ -0,0 +1,163 @@
+package org.monstercraft.area.benchmarks;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.monstercraft.area.api.util.BlockPositions;
+import org.monstercraft.area.api.wrappers.Area;
+import org.monstercraft.area.api.wrappers.ColumnArea;
+import org.monstercraft.area.api.wrappers.CompositeArea;
+import org.monstercraft.area.api.wrappers.CubedArea;
+import org.monstercraft.area.api.wrappers.HeightlessArea;
+import org.monstercraft.area.api.wrappers.PolygonPrismArea;
+import org.monstercraft.area.api.wrappers.PolygonalArea;
+import org.monstercraft.area.api.wrappers.SinglePlaneArea;
+import org.monstercraft.area.api.wrappers.VoxelArea;
+
+/**
+ * The wrappers benchmarked. Every shape is created within the cube of blocks
+ * from min to min + size - 1 on every axis.
+ */
+public enum Shape {
+
+    /**
+     * A cubed area filling the cube.
+     */
+    CUBED {
+        @Override
+        Area create(final World world, final int min, final int size)
+                throws Exception {
+            final int max = min + size - 1;
+            return new CubedArea(new Location(world, min, min, min),
+                    new Location(world, max, max, max));
+        }
+    },
+
+    /**
+     * A heightless area over the square of the cube.
+     */
+    HEIGHTLESS {
+        @Override
+        Area create(final World world, final int min, final int size)
+                throws Exception {
+            final int max = min + size - 1;
+            return new HeightlessArea(new Location(world, min, 0, min),
+                    new Location(world, max, 0, max));
+        }
+    },
+
+    /**
+     * A single plane area over the square through the middle of the cube.
+     */
+    SINGLE_PLANE {
+        @Override
+        Area create(final World world, final int min, final int size)
+                throws Exception {
+            final int max = min + size - 1;
+            final int y = min + size / 2;
+            return new SinglePlaneArea(new Location(world, min, y, min),
+                    new Location(world, max, y, max));
+        }
+    },
+
+    /**
+     * A polygonal area holding the ball within the cube.
+     */
+    POLYGONAL {
+        @Override
+        Area create(final World world, final int min, final int size) {
+            return new PolygonalArea(world, Shape.ball(min, size));
+        }
+    },
+
+    /**
+     * A polygon prism area with a diamond touching the sides of the cube.
+     */
+    POLYGON_PRISM {
+        @Override
+        Area create(final World world, final int min, final int size)
+                throws Exception {
+            final int max = min + size - 1;
+            final int mid = min + size / 2;
+            return new PolygonPrismArea(min, max, new Location(world, mid, 0,
+                    min), new Location(world, max, 0, mid), new Location(
+                    world, mid, 0, max), new Location(world, min, 0, mid));
+        }
+    },
+
+    /**
+     * The cube with a cube half its size removed from the middle.
+     */
+    COMPOSITE {
+        @Override
+        Area create(final World world, final int min, final int size)
+                throws Exception {
+            final int inner = Math.max(size / 2, 1);
+            return new CompositeArea(CompositeArea.Operation.DIFFERENCE,
+                    CUBED.create(world, min, size), CUBED.create(world, min
+                            + (size - inner) / 2, inner));
+        }
+    },
+
+    /**
+     * A column area holding the ball within the cube.
+     */
+    COLUMN {
+        @Override
+        Area create(final World world, final int min, final int size)
+                throws Exception {
+            return new ColumnArea(POLYGONAL.create(world, min, size));
+        }
+    },
+
+    /**
+     * A voxel area holding the ball within the cube.
+     */
+    VOXEL {
+        @Override
+        Area create(final World world, final int min, final int size)
+                throws Exception {
+            return new VoxelArea(POLYGONAL.create(world, min, size));
+        }
+    };
+
+    /**
+     * The packed positions of the blocks within the ball touching the sides
+     * of the cube.
+     */
+    static long[] ball(final int min, final int size) {
+        final double center = min + (size - 1) / 2.0;
+        final double radius = size / 2.0;
+        final long[] positions = new long[size * size * size];
+        int count = 0;
+        for (int y = min; y < min + size; y++) {
+            for (int z = min; z < min + size; z++) {
+                for (int x = min; x < min + size; x++) {
+                    final double dx = x - center;
+                    final double dy = y - center;
+                    final double dz = z - center;
+                    if (dx * dx + dy * dy + dz * dz <= radius * radius) {
+                        positions[count++] = BlockPositions.pack(x, y, z);
+                    }
+                }
+            }
+        }
+        final long[] ball = new long[count];
+        System.arraycopy(positions, 0, ball, 0, count);
+        return ball;
+    }
+
+    /**
+     * Creates the shape.
+     *
+     * @param world
+     *            The world to create the area in.
+     * @param min
+     *            The minimum coordinate of the cube on every axis.
+     * @param size
+     *            The length of the sides of the cube.
+     * @return The area.
+     * @throws Exception
+     *             Thrown when the wrapper rejects the bounds.
+     */
+    abstract Area create(World world, int min, int size) throws Exception;
+}
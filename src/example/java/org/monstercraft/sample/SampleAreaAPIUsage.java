@@ -8,6 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.plugin.java.JavaPlugin;
 // Start of AreaAPI imports
+import org.monstercraft.area.api.AreaEditor;
 import org.monstercraft.area.api.Direction;
 import org.monstercraft.area.api.exception.InvalidDirectionException;
 import org.monstercraft.area.api.exception.InvalidPlaneException;
@@ -27,8 +28,12 @@ public class SampleAreaAPIUsage extends JavaPlugin implements Listener {
     private SinglePlaneArea area3 = null;
     private PolygonalArea area4 = null;
 
+    // The editor changing the blocks of our areas a few at a time
+    private AreaEditor editor = null;
+
     @Override
     public void onEnable() {
+        editor = new AreaEditor(this);
         try {
             /*
              * Here I have create a cubed area using 2 blocks within my world "test". This will create the area based off of the blocks minimum x,y
@@ -118,13 +123,13 @@ public class SampleAreaAPIUsage extends JavaPlugin implements Listener {
         }
         if (area3.contains(b)) {
             /*
-             * In this example I want to get all of the blocks of the area so I can change them to stone. area#getBlocks will return an array of
-             * blocks which I can then utilize.
+             * In this example I want to change all of the blocks of the area to stone. Changing every block at once would freeze the server on a
+             * large area, so an AreaEditor spreads the change over as many ticks as it needs, spending at most 5 milliseconds of each.
+             *
+             * The job returned reports its progress and can be cancelled. Its future completes with the amount of blocks changed.
              */
-            final Block[] blocks = area3.getBlocks();
-            for (final Block block : blocks) {
-                block.setType(Material.STONE);
-            }
+            editor.fill(area3, Material.STONE).getFuture()
+                    .thenAccept(changed -> System.out.println(changed + " blocks of area3 are now stone."));
         }
         if (area4.contains(b)) {
             /*
@@ -1,12 +1,32 @@
 package org.monstercraft.area;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.monstercraft.area.api.AreaRegistry;
+import org.monstercraft.area.api.event.AreaEnterEvent;
+import org.monstercraft.area.api.event.AreaLeaveEvent;
+import org.monstercraft.area.api.wrappers.Area;
+import org.monstercraft.area.metrics.AreaMetrics;
 import org.monstercraft.area.metrics.Metrics;
+import org.monstercraft.area.metrics.MetricsServer;
 
 public class AreaAPI extends JavaPlugin implements Listener {
 
@@ -88,13 +108,160 @@ public class AreaAPI extends JavaPlugin implements Listener {
         return Math.min(l1.getZ(), l2.getZ());
     }
 
+    private final AreaRegistry registry = new AreaRegistry();
+
+    private Metrics metrics;
+
+    private final MetricsServer metricsServer = new MetricsServer(
+            AreaMetrics.getRegistry());
+
+    /**
+     * The areas each online player was last found in.
+     */
+    private final Map<Player, Set<Area>> occupied = new HashMap<Player, Set<Area>>();
+
+    /**
+     * The registry of areas players are tracked against. Players entering or
+     * leaving an area registered here cause an {@link AreaEnterEvent} or an
+     * {@link AreaLeaveEvent} to be called.
+     *
+     * @return The registry of tracked areas.
+     */
+    public AreaRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Finds the areas the player is in at the location and calls an event for
+     * every area left or entered since the player was last checked. Areas
+     * unregistered since then are dropped without calling an event.
+     *
+     * @param player
+     *            The player to check.
+     * @param to
+     *            The location the player is moving to.
+     */
+    private void move(final Player player, final Location to) {
+        final List<Area> areas = registry.getAreasAt(to);
+        final Set<Area> previous = occupied.get(player);
+        // Most moves neither enter nor leave an area
+        if (previous == null) {
+            if (areas.isEmpty()) {
+                return;
+            }
+        } else if (previous.size() == areas.size()
+                && previous.containsAll(areas)) {
+            return;
+        }
+        final Set<Area> current = new HashSet<Area>(areas);
+        final PluginManager manager = this.getServer().getPluginManager();
+        if (previous != null) {
+            for (final Area area : previous) {
+                if (!current.contains(area) && registry.isRegistered(area)) {
+                    manager.callEvent(new AreaLeaveEvent(player, area, to));
+                }
+            }
+        }
+        for (final Area area : areas) {
+            if (previous == null || !previous.contains(area)) {
+                manager.callEvent(new AreaEnterEvent(player, area, to));
+            }
+        }
+        if (current.isEmpty()) {
+            occupied.remove(player);
+        } else {
+            occupied.put(player, current);
+        }
+    }
+
+    @Override
+    public void onDisable() {
+        if (metrics != null) {
+            metrics.stop();
+            metrics = null;
+        }
+        metricsServer.stop();
+        AreaMetrics.setEnabled(false);
+    }
+
     @Override
     public void onEnable() {
+        this.getConfig().options().copyDefaults(true);
+        this.saveConfig();
+        final boolean local = this.getConfig().getBoolean("metrics.enabled");
+        AreaMetrics.setEnabled(local);
+        final int port = this.getConfig().getInt("metrics.port");
+        if (local && port > 0) {
+            try {
+                metricsServer.start(
+                        this.getConfig().getString("metrics.host"), port);
+            } catch (final IOException e) {
+                Bukkit.getLogger().warning(
+                        "Could not serve AreaAPI metrics on port " + port
+                                + ": " + e.getMessage());
+            }
+        }
+        this.getServer().getPluginManager().registerEvents(this, this);
         try {
-            new Metrics(this).start();
+            metrics = new Metrics(this);
+            if (local && this.getConfig().getBoolean("metrics.plot")) {
+                AreaMetrics.plot(metrics);
+            }
+            metrics.start();
         } catch (final IOException e) {
             Bukkit.getLogger().info("Error setting up metrics for AreaAPI");
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(final PlayerJoinEvent event) {
+        this.move(event.getPlayer(), event.getPlayer().getLocation());
+    }
+
+    /**
+     * Checks the areas of players moving into a different block. Moves within
+     * the same block are skipped, so areas are entered and left at block
+     * boundaries.
+     *
+     * @param event
+     *            The move event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerMove(final PlayerMoveEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        final Location from = event.getFrom();
+        final Location to = event.getTo();
+        if (from.getBlockX() == to.getBlockX()
+                && from.getBlockY() == to.getBlockY()
+                && from.getBlockZ() == to.getBlockZ()
+                && from.getWorld().equals(to.getWorld())) {
+            return;
+        }
+        this.move(event.getPlayer(), to);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final PlayerQuitEvent event) {
+        occupied.remove(event.getPlayer());
+    }
+
+    /**
+     * Checks the areas of players respawning, who may respawn far from where
+     * they died without moving.
+     *
+     * @param event
+     *            The respawn event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(final PlayerRespawnEvent event) {
+        this.move(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerTeleport(final PlayerTeleportEvent event) {
+        this.onPlayerMove(event);
+    }
+
 }
@@ -0,0 +1,333 @@
+package org.monstercraft.area.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+import org.monstercraft.area.api.wrappers.Area;
+import org.monstercraft.area.metrics.AreaMetrics;
+
+/**
+ * The queries shared by the registries, answered from an R-tree per world.
+ * Point, box and sphere queries only visit the branches of a tree that can
+ * overlap the query rather than every registered area, nearest queries only
+ * the branches which could hold one of the closest areas, and ray queries
+ * only the branches the ray passes through.
+ *
+ * Every query reads the trees once, so a registry which swaps its trees as a
+ * whole answers each query from a single set of trees.
+ */
+public abstract class AbstractAreaRegistry {
+
+    AbstractAreaRegistry() {
+    }
+
+    /**
+     * Visits the areas a ray passes through in the order the ray enters them,
+     * until the visitor asks to stop. Only the branches of the tree the ray
+     * passes through are searched, and none beyond the area the visitor
+     * stops at.
+     *
+     * @param origin
+     *            The start of the ray.
+     * @param direction
+     *            The direction of the ray, of any length.
+     * @param maxDistance
+     *            The length of the ray in blocks.
+     * @param visitor
+     *            The visitor to hand the areas to.
+     * @return True if every area along the ray was visited; false if the
+     *         visitor stopped.
+     * @throws IllegalArgumentException
+     *             Thrown when the direction has no length.
+     */
+    public boolean forEachAreaAlong(final Location origin,
+            final Vector direction, final double maxDistance,
+            final RayVisitor visitor) {
+        final AreaTree tree = this.getTree(origin.getWorld());
+        return tree == null
+                || tree.raycast(origin, direction, maxDistance, visitor);
+    }
+
+    /**
+     * Fetches all of the areas registered within the world.
+     *
+     * @param world
+     *            The world to fetch the areas of.
+     * @return The areas registered within the world.
+     */
+    public List<Area> getAreas(final World world) {
+        final AreaTree tree = this.getTree(world);
+        return tree == null ? new ArrayList<Area>() : tree.getAreas();
+    }
+
+    /**
+     * Fetches the areas a ray passes through, in the order the ray enters
+     * them.
+     *
+     * @param origin
+     *            The start of the ray.
+     * @param direction
+     *            The direction of the ray, of any length.
+     * @param maxDistance
+     *            The length of the ray in blocks.
+     * @return Where the ray passes through every area, by entry.
+     * @throws IllegalArgumentException
+     *             Thrown when the direction has no length.
+     */
+    public List<RayHit> getAreasAlong(final Location origin,
+            final Vector direction, final double maxDistance) {
+        final List<RayHit> hits = new ArrayList<RayHit>();
+        this.forEachAreaAlong(origin, direction, maxDistance, hit -> hits
+                .add(hit));
+        return hits;
+    }
+
+    /**
+     * Fetches the areas which contain the block.
+     *
+     * @param block
+     *            The block to check.
+     * @return The areas containing the block.
+     */
+    public List<Area> getAreasAt(final Block block) {
+        return this.getAreasAt(block.getLocation());
+    }
+
+    /**
+     * Fetches the areas which contain the location. Candidates are found
+     * using their bounds and then checked with {@link Area#contains(Location)}.
+     *
+     * @param location
+     *            The location to check.
+     * @return The areas containing the location.
+     */
+    public List<Area> getAreasAt(final Location location) {
+        final List<Area> areas = new ArrayList<Area>();
+        final AreaTree tree = this.getTree(location.getWorld());
+        if (tree == null) {
+            return areas;
+        }
+        final boolean timed = AreaMetrics.isEnabled();
+        final long start = timed ? System.nanoTime() : 0;
+        final int candidates = tree.searchContaining(location, areas);
+        if (timed) {
+            AreaMetrics.recordLookup(candidates, areas.size(),
+                    System.nanoTime() - start);
+        }
+        return areas;
+    }
+
+    /**
+     * Fetches the areas which contain the player.
+     *
+     * @param player
+     *            The player to check.
+     * @return The areas containing the player.
+     */
+    public List<Area> getAreasAt(final Player player) {
+        return this.getAreasAt(player.getLocation());
+    }
+
+    /**
+     * Fetches the areas whose bounds intersect the bounds of the area
+     * specified. The area itself is excluded. A registered area is checked
+     * using the bounds it was indexed with.
+     *
+     * @param area
+     *            The area to check.
+     * @return The areas whose bounds intersect the area.
+     */
+    public List<Area> getAreasIntersecting(final Area area) {
+        final List<Area> areas = new ArrayList<Area>();
+        final AreaTree tree = this.getTree(area.getWorld());
+        if (tree != null) {
+            tree.searchIntersecting(area, areas);
+        }
+        return areas;
+    }
+
+    /**
+     * Fetches the areas whose bounds intersect the box.
+     *
+     * @param world
+     *            The world to check.
+     * @param x1
+     *            The minimum X value of the box.
+     * @param y1
+     *            The minimum Y value of the box.
+     * @param z1
+     *            The minimum Z value of the box.
+     * @param x2
+     *            The maximum X value of the box.
+     * @param y2
+     *            The maximum Y value of the box.
+     * @param z2
+     *            The maximum Z value of the box.
+     * @return The areas whose bounds intersect the box.
+     */
+    public List<Area> getAreasIntersecting(final World world, final double x1,
+            final double y1, final double z1, final double x2,
+            final double y2, final double z2) {
+        final List<Area> areas = new ArrayList<Area>();
+        final AreaTree tree = this.getTree(world);
+        if (tree != null) {
+            tree.search(Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                    Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2),
+                    areas);
+        }
+        return areas;
+    }
+
+    /**
+     * Fetches the areas whose bounds intersect the sphere around the location.
+     *
+     * @param center
+     *            The center of the sphere.
+     * @param radius
+     *            The radius of the sphere.
+     * @return The areas whose bounds are within the radius of the location.
+     */
+    public List<Area> getAreasNear(final Location center, final double radius) {
+        final List<Area> areas = new ArrayList<Area>();
+        final AreaTree tree = this.getTree(center.getWorld());
+        if (tree != null) {
+            tree.searchSphere(center.getX(), center.getY(), center.getZ(),
+                    radius, areas);
+        }
+        return areas;
+    }
+
+    /**
+     * Fetches the areas within the distance of the location, measured with
+     * {@link Area#distanceTo(Location)} rather than their bounds.
+     *
+     * @param location
+     *            The location to measure from.
+     * @param radius
+     *            The furthest an area can be.
+     * @return The areas within the distance, closest first.
+     */
+    public List<Area> getAreasWithin(final Location location,
+            final double radius) {
+        return this.nearest(location, Integer.MAX_VALUE, radius);
+    }
+
+    /**
+     * Fetches the first area a ray enters. The search stops at that area.
+     *
+     * @param origin
+     *            The start of the ray.
+     * @param direction
+     *            The direction of the ray, of any length.
+     * @param maxDistance
+     *            The length of the ray in blocks.
+     * @return Where the ray passes through the first area it enters, or null
+     *         if it enters none.
+     * @throws IllegalArgumentException
+     *             Thrown when the direction has no length.
+     */
+    public RayHit getFirstAreaAlong(final Location origin,
+            final Vector direction, final double maxDistance) {
+        final RayHit[] first = new RayHit[1];
+        this.forEachAreaAlong(origin, direction, maxDistance, hit -> {
+            first[0] = hit;
+            return false;
+        });
+        return first[0];
+    }
+
+    /**
+     * Fetches the area closest to the location, measured with
+     * {@link Area#distanceTo(Location)}. An area containing the location is at
+     * a distance of 0.
+     *
+     * @param location
+     *            The location to measure from.
+     * @return The closest area, or null if no areas are registered within the
+     *         world.
+     */
+    public Area getNearestArea(final Location location) {
+        final List<Area> areas = this.nearest(location, 1,
+                Double.POSITIVE_INFINITY);
+        return areas.isEmpty() ? null : areas.get(0);
+    }
+
+    /**
+     * Fetches the areas closest to the location, measured with
+     * {@link Area#distanceTo(Location)}.
+     *
+     * @param location
+     *            The location to measure from.
+     * @param count
+     *            The most areas to fetch.
+     * @return The closest areas, closest first.
+     */
+    public List<Area> getNearestAreas(final Location location, final int count) {
+        return this.nearest(location, count, Double.POSITIVE_INFINITY);
+    }
+
+    private AreaTree getTree(final World world) {
+        return this.getTrees().get(world.getUID());
+    }
+
+    /**
+     * The trees queries are answered from, by world. Worlds without any areas
+     * registered have no tree.
+     *
+     * @return The trees of the worlds.
+     */
+    abstract Map<UUID, AreaTree> getTrees();
+
+    /**
+     * Fetches the worlds which have areas registered.
+     *
+     * @return The unique ids of the worlds with areas registered.
+     */
+    public List<UUID> getWorlds() {
+        return Collections.unmodifiableList(new ArrayList<UUID>(this
+                .getTrees().keySet()));
+    }
+
+    /**
+     * Checks if the area is registered.
+     *
+     * @param area
+     *            The area to check.
+     * @return True if the area is registered; otherwise false.
+     */
+    public boolean isRegistered(final Area area) {
+        final AreaTree tree = this.getTree(area.getWorld());
+        return tree != null && tree.contains(area);
+    }
+
+    private List<Area> nearest(final Location location, final int limit,
+            final double range) {
+        final List<Area> areas = new ArrayList<Area>();
+        final AreaTree tree = this.getTree(location.getWorld());
+        if (tree != null) {
+            tree.nearest(location, limit, range, areas);
+        }
+        return areas;
+    }
+
+    /**
+     * The amount of areas registered.
+     *
+     * @return The amount of areas registered within all worlds.
+     */
+    public int size() {
+        int size = 0;
+        for (final AreaTree tree : this.getTrees().values()) {
+            size += tree.size();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,94 @@
+package org.monstercraft.area.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.plugin.Plugin;
+import org.monstercraft.area.api.wrappers.Area;
+
+/**
+ * Changes the blocks of areas without freezing the server. Every edit is run
+ * as an {@link EditJob} which changes blocks on the main thread for at most
+ * the time budget of the editor each tick.
+ *
+ * Edits must be started from the main thread, and the areas being edited
+ * should not be changed until their jobs complete.
+ */
+public class AreaEditor {
+
+    private static final long DEFAULT_BUDGET = TimeUnit.MILLISECONDS
+            .toNanos(5);
+
+    private final Plugin plugin;
+
+    private final long budget;
+
+    /**
+     * Creates an editor spending up to 5 milliseconds of every tick.
+     *
+     * @param plugin
+     *            The plugin to schedule the jobs with.
+     */
+    public AreaEditor(final Plugin plugin) {
+        this(plugin, AreaEditor.DEFAULT_BUDGET, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates an editor.
+     *
+     * @param plugin
+     *            The plugin to schedule the jobs with.
+     * @param budget
+     *            The time each job may spend every tick.
+     * @param unit
+     *            The unit of the budget.
+     */
+    public AreaEditor(final Plugin plugin, final long budget,
+            final TimeUnit unit) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("The budget must be positive");
+        }
+        this.plugin = plugin;
+        this.budget = unit.toNanos(budget);
+    }
+
+    /**
+     * Sets every block of the area to air.
+     *
+     * @param area
+     *            The area to clear.
+     * @return The job clearing the area.
+     */
+    public EditJob clear(final Area area) {
+        return this.fill(area, Material.AIR);
+    }
+
+    /**
+     * Sets every block of the area to the type specified.
+     *
+     * @param area
+     *            The area to fill.
+     * @param type
+     *            The type to set the blocks to.
+     * @return The job filling the area.
+     */
+    public EditJob fill(final Area area, final Material type) {
+        return new EditJob(plugin, area, null, type, budget).start();
+    }
+
+    /**
+     * Sets the blocks of the area of one type to another.
+     *
+     * @param area
+     *            The area to change.
+     * @param match
+     *            The type of the blocks to change.
+     * @param type
+     *            The type to set the blocks to.
+     * @return The job replacing the blocks.
+     */
+    public EditJob replace(final Area area, final Material match,
+            final Material type) {
+        return new EditJob(plugin, area, match, type, budget).start();
+    }
+}
@@ -0,0 +1,113 @@
+package org.monstercraft.area.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.monstercraft.area.api.wrappers.Area;
+
+/**
+ * A registry of areas indexed by their bounding boxes in an R-tree per world,
+ * which is changed in place as areas are registered.
+ *
+ * The registry is not thread safe and should be used from the main thread.
+ * Areas which are expanded, shrunk or shifted after being registered must be
+ * passed to {@link #update(Area)} to be re-indexed.
+ */
+public class AreaRegistry extends AbstractAreaRegistry {
+
+    private final Map<UUID, AreaTree> trees = new HashMap<UUID, AreaTree>();
+
+    /**
+     * Removes all of the areas from the registry.
+     */
+    public void clear() {
+        trees.clear();
+    }
+
+    @Override
+    Map<UUID, AreaTree> getTrees() {
+        return trees;
+    }
+
+    /**
+     * Registers every area of the snapshot without creating them. The areas
+     * are indexed using the bounds of their records and created the first time
+     * a query finds them. Worlds without any areas registered are bulk loaded.
+     *
+     * @param snapshot
+     *            The snapshot to register the areas of.
+     */
+    public void load(final AreaSnapshot snapshot) {
+        final Map<UUID, List<Integer>> worlds = new HashMap<UUID, List<Integer>>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            final UUID world = snapshot.getWorldId(i);
+            List<Integer> indices = worlds.get(world);
+            if (indices == null) {
+                indices = new ArrayList<Integer>();
+                worlds.put(world, indices);
+            }
+            indices.add(i);
+        }
+        for (final Map.Entry<UUID, List<Integer>> w : worlds.entrySet()) {
+            AreaTree tree = trees.get(w.getKey());
+            if (tree == null) {
+                tree = new AreaTree();
+                trees.put(w.getKey(), tree);
+            }
+            tree.load(snapshot, w.getValue());
+        }
+    }
+
+    /**
+     * Registers the area using its current bounds. Registering an area twice
+     * re-indexes it.
+     *
+     * @param area
+     *            The area to register.
+     */
+    public void register(final Area area) {
+        final UUID world = area.getWorld().getUID();
+        AreaTree tree = trees.get(world);
+        if (tree == null) {
+            tree = new AreaTree();
+            trees.put(world, tree);
+        }
+        if (!tree.update(area)) {
+            tree.insert(area);
+        }
+    }
+
+    /**
+     * Unregisters the area.
+     *
+     * @param area
+     *            The area to unregister.
+     * @return True if the area was registered; otherwise false.
+     */
+    public boolean unregister(final Area area) {
+        final UUID world = area.getWorld().getUID();
+        final AreaTree tree = trees.get(world);
+        if (tree == null || !tree.remove(area)) {
+            return false;
+        }
+        if (tree.isEmpty()) {
+            trees.remove(world);
+        }
+        return true;
+    }
+
+    /**
+     * Re-indexes the area after it has been expanded, shrunk or shifted.
+     *
+     * @param area
+     *            The area to update.
+     * @return True if the area was registered; otherwise false.
+     */
+    public boolean update(final Area area) {
+        final AreaTree tree = trees.get(area.getWorld().getUID());
+        return tree != null && tree.update(area);
+    }
+}
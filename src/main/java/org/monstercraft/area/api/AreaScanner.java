@@ -0,0 +1,375 @@
+package org.monstercraft.area.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.monstercraft.area.api.util.BlockPositions;
+import org.monstercraft.area.api.wrappers.Area;
+import org.monstercraft.area.metrics.AreaMetrics;
+
+/**
+ * Scans the blocks of areas off the main thread. Snapshots of the chunks an
+ * area covers are taken on the main thread, a few chunks every tick, and each
+ * chunk is scanned on a fork join pool as soon as its snapshot is taken. The
+ * chunks are those of {@link Area#forEachChunkSlice(ChunkSliceVisitor)}, so
+ * chunks within the bounds holding none of the area are skipped, and only the
+ * part of a chunk within the slice is scanned. Areas made of a list of blocks
+ * only have those blocks read.
+ *
+ * Scans must be started from the main thread, and the areas being scanned
+ * should not be changed until their scan completes.
+ */
+public class AreaScanner {
+
+    /**
+     * A scan of the chunks an area covers. The snapshots are taken when the
+     * scan is run by the scheduler.
+     *
+     * @param <R>
+     *            The type of the result of the scan.
+     */
+    private abstract class Scan<R> implements Runnable {
+
+        final Area area;
+
+        final CompletableFuture<R> future = new CompletableFuture<R>();
+
+        private final World world;
+
+        private final List<ChunkSlice> slices = new ArrayList<ChunkSlice>();
+
+        private final AtomicInteger pending;
+
+        private int next;
+
+        private int task = -1;
+
+        Scan(final Area area) {
+            this.area = area;
+            world = area.getWorld();
+            area.forEachChunkSlice(slice -> slices.add(slice));
+            pending = new AtomicInteger(slices.size());
+        }
+
+        /**
+         * Visits the blocks of the area within the slice along with their
+         * type ids. Blocks listed by the slice are visited directly, and the
+         * blocks of a full slice without being checked against the area.
+         */
+        void forEachBlock(final ChunkSnapshot snapshot, final ChunkSlice slice,
+                final TypeVisitor visitor) {
+            final long[] positions = slice.getBlockPositions();
+            if (positions != null) {
+                final int height = world.getMaxHeight();
+                for (final long p : positions) {
+                    final int x = BlockPositions.getX(p);
+                    final int y = BlockPositions.getY(p);
+                    final int z = BlockPositions.getZ(p);
+                    if (y >= 0 && y < height) {
+                        visitor.visit(x, y, z,
+                                snapshot.getBlockTypeId(x & 15, y, z & 15));
+                    }
+                }
+                return;
+            }
+            final boolean full = slice.isFull();
+            for (int y = slice.getMinY(); y <= slice.getMaxY(); y++) {
+                for (int z = slice.getMinZ(); z <= slice.getMaxZ(); z++) {
+                    for (int x = slice.getMinX(); x <= slice.getMaxX(); x++) {
+                        if (full || area.contains(x, y, z)) {
+                            visitor.visit(x, y, z, snapshot.getBlockTypeId(
+                                    x & 15, y, z & 15));
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * The amount of chunks the scan covers.
+         */
+        int getChunkCount() {
+            return slices.size();
+        }
+
+        /**
+         * The result of the scan, once every chunk has been scanned.
+         */
+        abstract R getResult();
+
+        @Override
+        public void run() {
+            final int end = Math.min(slices.size(), next + chunksPerTick);
+            while (next < end && !future.isDone()) {
+                final int index = next++;
+                final ChunkSlice slice = slices.get(index);
+                final ChunkSnapshot snapshot = world.getChunkAt(
+                        slice.getChunkX(), slice.getChunkZ())
+                        .getChunkSnapshot();
+                pool.execute(() -> this.scanChunk(index, snapshot, slice));
+            }
+            if ((next >= slices.size() || future.isDone()) && task != -1) {
+                plugin.getServer().getScheduler().cancelTask(task);
+                task = -1;
+            }
+        }
+
+        private void scanChunk(final int index, final ChunkSnapshot snapshot,
+                final ChunkSlice slice) {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                this.scan(index, snapshot, slice);
+            } catch (final Throwable t) {
+                future.completeExceptionally(t);
+                return;
+            }
+            if (AreaMetrics.isEnabled()) {
+                final long[] positions = slice.getBlockPositions();
+                AreaMetrics.recordScan(positions == null ? slice.getVolume()
+                        : positions.length);
+            }
+            if (pending.decrementAndGet() == 0) {
+                future.complete(this.getResult());
+            }
+        }
+
+        /**
+         * Scans the part of the area within a chunk.
+         *
+         * @param index
+         *            The index of the chunk in chunk order, starting from 0.
+         * @param snapshot
+         *            The snapshot of the chunk.
+         * @param slice
+         *            The part of the area within the chunk.
+         */
+        abstract void scan(int index, ChunkSnapshot snapshot, ChunkSlice slice);
+
+        /**
+         * Takes the first snapshots right away and the rest on the following
+         * ticks.
+         */
+        CompletableFuture<R> start() {
+            if (slices.isEmpty()) {
+                future.complete(this.getResult());
+                return future;
+            }
+            this.run();
+            if (next < slices.size() && !future.isDone()) {
+                task = plugin.getServer().getScheduler()
+                        .scheduleSyncRepeatingTask(plugin, this, 1, 1);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * A growable list of packed positions.
+     */
+    private static final class PositionList {
+
+        private long[] positions = new long[16];
+
+        private int size;
+
+        void add(final long position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(positions, size);
+        }
+    }
+
+    /**
+     * Visits a block of a chunk snapshot along with its type id.
+     */
+    private interface TypeVisitor {
+
+        void visit(int x, int y, int z, int type);
+    }
+
+    /**
+     * The highest block type id a chunk can hold.
+     */
+    private static final int MAX_TYPE_ID = 4095;
+
+    private static final int DEFAULT_CHUNKS_PER_TICK = 64;
+
+    private final Plugin plugin;
+
+    private final ForkJoinPool pool;
+
+    private final int chunksPerTick;
+
+    /**
+     * Creates a scanner which scans on the common fork join pool.
+     *
+     * @param plugin
+     *            The plugin to schedule the snapshots with.
+     */
+    public AreaScanner(final Plugin plugin) {
+        this(plugin, ForkJoinPool.commonPool(),
+                AreaScanner.DEFAULT_CHUNKS_PER_TICK);
+    }
+
+    /**
+     * Creates a scanner.
+     *
+     * @param plugin
+     *            The plugin to schedule the snapshots with.
+     * @param pool
+     *            The pool to scan the chunks on.
+     * @param chunksPerTick
+     *            The most chunk snapshots to take during a single tick.
+     */
+    public AreaScanner(final Plugin plugin, final ForkJoinPool pool,
+            final int chunksPerTick) {
+        if (chunksPerTick < 1) {
+            throw new IllegalArgumentException(
+                    "At least one chunk must be taken per tick");
+        }
+        this.plugin = plugin;
+        this.pool = pool;
+        this.chunksPerTick = chunksPerTick;
+    }
+
+    /**
+     * Counts the blocks of the area which are not air.
+     *
+     * @param area
+     *            The area to scan.
+     * @return A future completed with the amount of blocks which are not air.
+     */
+    public CompletableFuture<Long> countNonAir(final Area area) {
+        return new Scan<Long>(area) {
+
+            private final AtomicLong count = new AtomicLong();
+
+            @Override
+            Long getResult() {
+                return count.get();
+            }
+
+            @Override
+            void scan(final int index, final ChunkSnapshot snapshot,
+                    final ChunkSlice slice) {
+                final long[] blocks = new long[1];
+                this.forEachBlock(snapshot, slice, (x, y, z, type) -> {
+                    if (type != 0) {
+                        blocks[0]++;
+                    }
+                });
+                count.addAndGet(blocks[0]);
+            }
+        }.start();
+    }
+
+    /**
+     * Finds the blocks of the area of the type specified.
+     *
+     * @param area
+     *            The area to scan.
+     * @param type
+     *            The type of block to find.
+     * @return A future completed with the positions of the blocks found,
+     *         packed with {@link BlockPositions} in chunk order.
+     */
+    public CompletableFuture<long[]> find(final Area area, final Material type) {
+        final int id = type.getId();
+        return new Scan<long[]>(area) {
+
+            private final long[][] found = new long[this.getChunkCount()][];
+
+            @Override
+            long[] getResult() {
+                int size = 0;
+                for (final long[] chunk : found) {
+                    size += chunk.length;
+                }
+                final long[] positions = new long[size];
+                int offset = 0;
+                for (final long[] chunk : found) {
+                    System.arraycopy(chunk, 0, positions, offset, chunk.length);
+                    offset += chunk.length;
+                }
+                return positions;
+            }
+
+            @Override
+            void scan(final int index, final ChunkSnapshot snapshot,
+                    final ChunkSlice slice) {
+                final PositionList positions = new PositionList();
+                this.forEachBlock(snapshot, slice, (x, y, z, type) -> {
+                    if (type == id) {
+                        positions.add(BlockPositions.pack(x, y, z));
+                    }
+                });
+                found[index] = positions.toArray();
+            }
+        }.start();
+    }
+
+    /**
+     * Counts the blocks of the area by type.
+     *
+     * @param area
+     *            The area to scan.
+     * @return A future completed with the amount of blocks of every type
+     *         found within the area.
+     */
+    public CompletableFuture<Map<Material, Long>> histogram(final Area area) {
+        return new Scan<Map<Material, Long>>(area) {
+
+            private final AtomicLongArray counts = new AtomicLongArray(
+                    AreaScanner.MAX_TYPE_ID + 1);
+
+            @Override
+            Map<Material, Long> getResult() {
+                final Map<Material, Long> histogram = new EnumMap<Material, Long>(
+                        Material.class);
+                for (int id = 0; id < counts.length(); id++) {
+                    final long count = counts.get(id);
+                    if (count == 0) {
+                        continue;
+                    }
+                    final Material type = Material.getMaterial(id);
+                    if (type != null) {
+                        histogram.put(type, count);
+                    }
+                }
+                return histogram;
+            }
+
+            @Override
+            void scan(final int index, final ChunkSnapshot snapshot,
+                    final ChunkSlice slice) {
+                final int[] chunk = new int[AreaScanner.MAX_TYPE_ID + 1];
+                this.forEachBlock(snapshot, slice, (x, y, z, type) -> chunk[type
+                        & AreaScanner.MAX_TYPE_ID]++);
+                for (int id = 0; id < chunk.length; id++) {
+                    if (chunk[id] != 0) {
+                        counts.addAndGet(id, chunk[id]);
+                    }
+                }
+            }
+        }.start();
+    }
+}
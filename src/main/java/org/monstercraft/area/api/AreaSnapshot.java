@@ -0,0 +1,371 @@
+package org.monstercraft.area.api;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.monstercraft.area.api.wrappers.Area;
+import org.monstercraft.area.api.wrappers.CubedArea;
+import org.monstercraft.area.api.wrappers.HeightlessArea;
+import org.monstercraft.area.api.wrappers.PolygonalArea;
+import org.monstercraft.area.api.wrappers.SinglePlaneArea;
+
+/**
+ * A binary snapshot of areas, read through a memory mapped file. Every area
+ * is stored as a fixed size record holding its type, world and bounds, and
+ * the blocks of polygonal areas are stored after the records. Records are
+ * only read when asked for, and areas are created from them the first time
+ * they are fetched, so opening a snapshot costs the same however many areas
+ * it holds.
+ *
+ * The file starts with a 16 byte header: the magic number, the version, the
+ * amount of records and a reserved int. Every record is 80 bytes:
+ *
+ * <pre>
+ *  0  int    type
+ *  4  int    amount of blocks
+ *  8  long   most significant bits of the world UUID
+ * 16  long   least significant bits of the world UUID
+ * 24  double minimum X, Y and Z followed by the maximum X, Y and Z
+ * 72  long   file offset of the blocks, as packed positions
+ * </pre>
+ *
+ * All values are big endian.
+ */
+public final class AreaSnapshot {
+
+    private static final int MAGIC = 0x41524541;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int RECORD_SIZE = 80;
+
+    private static final int CUBED = 0;
+
+    private static final int HEIGHTLESS = 1;
+
+    private static final int SINGLE_PLANE = 2;
+
+    private static final int POLYGONAL = 3;
+
+    /**
+     * Opens a snapshot written by {@link #write(File, Collection)}.
+     *
+     * @param file
+     *            The file to open.
+     * @return The snapshot.
+     * @throws IOException
+     *             Thrown when the file can not be read or is not a snapshot.
+     */
+    public static AreaSnapshot open(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < AreaSnapshot.HEADER_SIZE
+                    || buffer.getInt(0) != AreaSnapshot.MAGIC) {
+                throw new IOException(file + " is not an area snapshot");
+            }
+            if (buffer.getInt(4) != AreaSnapshot.VERSION) {
+                throw new IOException("Unsupported area snapshot version "
+                        + buffer.getInt(4));
+            }
+            final int size = buffer.getInt(8);
+            if (size < 0
+                    || AreaSnapshot.HEADER_SIZE + (long) size
+                            * AreaSnapshot.RECORD_SIZE > buffer.capacity()) {
+                throw new IOException(file + " is truncated");
+            }
+            return new AreaSnapshot(buffer, size);
+        } finally {
+            // The mapping stays valid once the file is closed
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the areas to a snapshot. Cubed, heightless, single plane and
+     * polygonal areas are supported.
+     *
+     * @param file
+     *            The file to write.
+     * @param areas
+     *            The areas to write, in the order they will be indexed.
+     * @throws IOException
+     *             Thrown when the file can not be written.
+     * @throws IllegalArgumentException
+     *             Thrown when an area of another type is specified.
+     */
+    public static void write(final File file,
+            final Collection<? extends Area> areas) throws IOException {
+        final List<long[]> blocks = new ArrayList<long[]>();
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(AreaSnapshot.MAGIC);
+            out.writeInt(AreaSnapshot.VERSION);
+            out.writeInt(areas.size());
+            out.writeInt(0);
+            long offset = AreaSnapshot.HEADER_SIZE + (long) areas.size()
+                    * AreaSnapshot.RECORD_SIZE;
+            for (final Area area : areas) {
+                final int type = AreaSnapshot.typeOf(area);
+                final long[] positions = type == AreaSnapshot.POLYGONAL ? area
+                        .getBlockPositions() : new long[0];
+                final UUID world = area.getWorld().getUID();
+                out.writeInt(type);
+                out.writeInt(positions.length);
+                out.writeLong(world.getMostSignificantBits());
+                out.writeLong(world.getLeastSignificantBits());
+                out.writeDouble(area.getMinX());
+                out.writeDouble(area.getMinY());
+                out.writeDouble(area.getMinZ());
+                out.writeDouble(area.getMaxX());
+                out.writeDouble(area.getMaxY());
+                out.writeDouble(area.getMaxZ());
+                out.writeLong(positions.length == 0 ? 0 : offset);
+                if (positions.length > 0) {
+                    blocks.add(positions);
+                    offset += positions.length * 8L;
+                }
+            }
+            for (final long[] positions : blocks) {
+                for (final long p : positions) {
+                    out.writeLong(p);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int typeOf(final Area area) {
+        if (area instanceof CubedArea) {
+            return AreaSnapshot.CUBED;
+        } else if (area instanceof HeightlessArea) {
+            return AreaSnapshot.HEIGHTLESS;
+        } else if (area instanceof SinglePlaneArea) {
+            return AreaSnapshot.SINGLE_PLANE;
+        } else if (area instanceof PolygonalArea) {
+            return AreaSnapshot.POLYGONAL;
+        }
+        throw new IllegalArgumentException("Cannot write an area of type "
+                + area.getClass().getName());
+    }
+
+    private final MappedByteBuffer buffer;
+
+    private final int size;
+
+    private final AtomicReferenceArray<Area> areas;
+
+    /**
+     * The records of the areas created so far.
+     */
+    private final Map<Area, Integer> indices = new IdentityHashMap<Area, Integer>();
+
+    private AreaSnapshot(final MappedByteBuffer buffer, final int size) {
+        this.buffer = buffer;
+        this.size = size;
+        areas = new AtomicReferenceArray<Area>(size);
+    }
+
+    /**
+     * Creates the area of a record.
+     */
+    private Area create(final int index, final World world) {
+        final int record = this.offsetOf(index);
+        final double minx = this.getMinX(index);
+        final double miny = this.getMinY(index);
+        final double minz = this.getMinZ(index);
+        final double maxx = this.getMaxX(index);
+        final double maxy = this.getMaxY(index);
+        final double maxz = this.getMaxZ(index);
+        try {
+            switch (buffer.getInt(record)) {
+            case CUBED:
+                return new CubedArea(new Location(world, minx, miny, minz),
+                        new Location(world, maxx, maxy, maxz));
+            case HEIGHTLESS:
+                return new HeightlessArea(new Location(world, minx, 0, minz),
+                        new Location(world, maxx, 0, maxz));
+            case SINGLE_PLANE:
+                return new SinglePlaneArea(new Location(world, minx, miny,
+                        minz), new Location(world, maxx, miny, maxz));
+            case POLYGONAL:
+                final long[] positions = new long[buffer.getInt(record + 4)];
+                final long offset = buffer.getLong(record + 72);
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = buffer.getLong((int) (offset + i * 8L));
+                }
+                return new PolygonalArea(world, positions);
+            default:
+                throw new IllegalStateException("Unknown area type "
+                        + buffer.getInt(record) + " in record " + index);
+            }
+        } catch (final IllegalStateException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IllegalStateException("Corrupt area record " + index, e);
+        }
+    }
+
+    /**
+     * Fetches the area of a record, creating it the first time it is fetched.
+     * Later calls return the same area.
+     *
+     * @param index
+     *            The index of the record.
+     * @return The area, or null if its world is not loaded.
+     */
+    public Area getArea(final int index) {
+        final Area area = areas.get(index);
+        if (area != null) {
+            return area;
+        }
+        final World world = Bukkit.getWorld(this.getWorldId(index));
+        if (world == null) {
+            return null;
+        }
+        synchronized (this) {
+            Area created = areas.get(index);
+            if (created == null) {
+                created = this.create(index, world);
+                indices.put(created, index);
+                areas.set(index, created);
+            }
+            return created;
+        }
+    }
+
+    /**
+     * The maximum X value of the area of a record.
+     *
+     * @param index
+     *            The index of the record.
+     * @return The maximum X value.
+     */
+    public double getMaxX(final int index) {
+        return buffer.getDouble(this.offsetOf(index) + 48);
+    }
+
+    /**
+     * The maximum Y value of the area of a record.
+     *
+     * @param index
+     *            The index of the record.
+     * @return The maximum Y value.
+     */
+    public double getMaxY(final int index) {
+        return buffer.getDouble(this.offsetOf(index) + 56);
+    }
+
+    /**
+     * The maximum Z value of the area of a record.
+     *
+     * @param index
+     *            The index of the record.
+     * @return The maximum Z value.
+     */
+    public double getMaxZ(final int index) {
+        return buffer.getDouble(this.offsetOf(index) + 64);
+    }
+
+    /**
+     * The minimum X value of the area of a record.
+     *
+     * @param index
+     *            The index of the record.
+     * @return The minimum X value.
+     */
+    public double getMinX(final int index) {
+        return buffer.getDouble(this.offsetOf(index) + 24);
+    }
+
+    /**
+     * The minimum Y value of the area of a record.
+     *
+     * @param index
+     *            The index of the record.
+     * @return The minimum Y value.
+     */
+    public double getMinY(final int index) {
+        return buffer.getDouble(this.offsetOf(index) + 32);
+    }
+
+    /**
+     * The minimum Z value of the area of a record.
+     *
+     * @param index
+     *            The index of the record.
+     * @return The minimum Z value.
+     */
+    public double getMinZ(final int index) {
+        return buffer.getDouble(this.offsetOf(index) + 40);
+    }
+
+    /**
+     * The UUID of the world of the area of a record.
+     *
+     * @param index
+     *            The index of the record.
+     * @return The UUID of the world.
+     */
+    public UUID getWorldId(final int index) {
+        final int record = this.offsetOf(index);
+        return new UUID(buffer.getLong(record + 8), buffer.getLong(record + 16));
+    }
+
+    /**
+     * Finds the record an area was created from.
+     *
+     * @return The index of the record, or -1 if the area was not created by
+     *         this snapshot.
+     */
+    synchronized int indexOf(final Area area) {
+        final Integer index = indices.get(area);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Checks if the area of a record has been created.
+     */
+    boolean isCreated(final int index) {
+        return areas.get(index) != null;
+    }
+
+    private int offsetOf(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Record " + index
+                    + " of a snapshot of " + size + " areas");
+        }
+        return AreaSnapshot.HEADER_SIZE + index * AreaSnapshot.RECORD_SIZE;
+    }
+
+    /**
+     * The amount of areas within the snapshot.
+     *
+     * @return The amount of areas.
+     */
+    public int size() {
+        return size;
+    }
+}
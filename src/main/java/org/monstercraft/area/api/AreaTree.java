@@ -0,0 +1,1150 @@
+package org.monstercraft.area.api;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.bukkit.Location;
+import org.bukkit.util.Vector;
+import org.monstercraft.area.api.wrappers.Area;
+
+/**
+ * An R-tree indexing the bounding boxes of the areas within a single world.
+ * Nodes are split using Guttman's quadratic split. Areas loaded from a
+ * snapshot are packed with sort tile recursive bulk loading instead, and are
+ * indexed using the bounds of their records until they are first found.
+ *
+ * Every entry holds the shape its area is checked with, which is the area
+ * itself unless another shape was given when it was indexed. A tree can be
+ * copied in constant time: the copy shares every node with the tree it was
+ * copied from, and either tree copies the nodes on the path it changes before
+ * changing them. A tree which is no longer changed can therefore be read from
+ * other threads once it is safely published, while its copy is changed.
+ */
+final class AreaTree {
+
+    /**
+     * An axis aligned box stored within the tree.
+     */
+    static abstract class Bounds {
+
+        double minx;
+
+        double miny;
+
+        double minz;
+
+        double maxx;
+
+        double maxy;
+
+        double maxz;
+
+        /**
+         * The token of the tree which may change the bounds in place.
+         */
+        final Object owner;
+
+        Bounds(final Object owner) {
+            this.owner = owner;
+        }
+
+        boolean contains(final Bounds b) {
+            return b.minx >= minx && b.maxx <= maxx && b.miny >= miny
+                    && b.maxy <= maxy && b.minz >= minz && b.maxz <= maxz;
+        }
+
+        boolean contains(final double x, final double y, final double z) {
+            return x >= minx && x <= maxx && y >= miny && y <= maxy
+                    && z >= minz && z <= maxz;
+        }
+
+        double enlargement(final Bounds b) {
+            return AreaTree.volume(Math.min(minx, b.minx),
+                    Math.min(miny, b.miny), Math.min(minz, b.minz),
+                    Math.max(maxx, b.maxx), Math.max(maxy, b.maxy),
+                    Math.max(maxz, b.maxz))
+                    - this.volume();
+        }
+
+        boolean intersects(final double x1, final double y1, final double z1,
+                final double x2, final double y2, final double z2) {
+            return x1 <= maxx && x2 >= minx && y1 <= maxy && y2 >= miny
+                    && z1 <= maxz && z2 >= minz;
+        }
+
+        double squaredDistance(final double x, final double y, final double z) {
+            final double dx = Math.max(Math.max(minx - x, 0), x - maxx);
+            final double dy = Math.max(Math.max(miny - y, 0), y - maxy);
+            final double dz = Math.max(Math.max(minz - z, 0), z - maxz);
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        /**
+         * The squared distance from the point to the box grown by a block
+         * past its maximum bounds. Areas made of blocks can reach up to a
+         * block past their maximum bounds, so this is never more than the
+         * squared distance to an area within the box.
+         */
+        double squaredDistanceBound(final double x, final double y,
+                final double z) {
+            final double dx = Math.max(Math.max(minx - x, 0), x - maxx - 1);
+            final double dy = Math.max(Math.max(miny - y, 0), y - maxy - 1);
+            final double dz = Math.max(Math.max(minz - z, 0), z - maxz - 1);
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        /**
+         * The distance along a ray with a unit length direction at which it
+         * enters the box grown by a block past its maximum bounds, using the
+         * slab method. The ray never enters an area within the box before
+         * this.
+         *
+         * @return The distance, or infinity if the ray misses the box.
+         */
+        double rayEntry(final double ox, final double oy, final double oz,
+                final double dx, final double dy, final double dz,
+                final double maxDistance) {
+            double t0 = 0;
+            double t1 = maxDistance;
+            if (dx != 0) {
+                final double a = (minx - ox) / dx;
+                final double b = (maxx + 1 - ox) / dx;
+                t0 = Math.max(t0, Math.min(a, b));
+                t1 = Math.min(t1, Math.max(a, b));
+            } else if (ox < minx || ox > maxx + 1) {
+                return Double.POSITIVE_INFINITY;
+            }
+            if (dy != 0) {
+                final double a = (miny - oy) / dy;
+                final double b = (maxy + 1 - oy) / dy;
+                t0 = Math.max(t0, Math.min(a, b));
+                t1 = Math.min(t1, Math.max(a, b));
+            } else if (oy < miny || oy > maxy + 1) {
+                return Double.POSITIVE_INFINITY;
+            }
+            if (dz != 0) {
+                final double a = (minz - oz) / dz;
+                final double b = (maxz + 1 - oz) / dz;
+                t0 = Math.max(t0, Math.min(a, b));
+                t1 = Math.min(t1, Math.max(a, b));
+            } else if (oz < minz || oz > maxz + 1) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return t0 > t1 ? Double.POSITIVE_INFINITY : t0;
+        }
+
+        double volume() {
+            return AreaTree.volume(minx, miny, minz, maxx, maxy, maxz);
+        }
+    }
+
+    /**
+     * A node or entry waiting to be visited by a best first search, ordered
+     * by its distance: the squared distance from the point of a nearest
+     * search, or the distance along the ray of a ray search. The distance of
+     * an entry is exact once its area has been measured; until then it is a
+     * bound.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        final Bounds bounds;
+
+        final double distance;
+
+        final boolean exact;
+
+        /**
+         * Where the ray passes through the area of an exact entry of a ray
+         * search.
+         */
+        final RayHit hit;
+
+        Candidate(final Bounds bounds, final double distance,
+                final boolean exact) {
+            this.bounds = bounds;
+            this.distance = distance;
+            this.exact = exact;
+            hit = null;
+        }
+
+        Candidate(final Bounds bounds, final RayHit hit) {
+            this.bounds = bounds;
+            distance = hit.getEntry();
+            exact = true;
+            this.hit = hit;
+        }
+
+        @Override
+        public int compareTo(final Candidate other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+
+    /**
+     * A leaf entry holding an area, the shape it is checked with and the
+     * bounds it was indexed with. Entries loaded from a snapshot hold no area
+     * until it is first needed.
+     */
+    static final class Entry extends Bounds {
+
+        Area area;
+
+        Area shape;
+
+        final AreaSnapshot snapshot;
+
+        final int record;
+
+        Entry(final Area area, final Area shape, final Object owner) {
+            super(owner);
+            this.area = area;
+            this.shape = shape;
+            snapshot = null;
+            record = -1;
+            this.read();
+        }
+
+        Entry(final AreaSnapshot snapshot, final int record,
+                final Object owner) {
+            super(owner);
+            this.snapshot = snapshot;
+            this.record = record;
+            minx = snapshot.getMinX(record);
+            miny = snapshot.getMinY(record);
+            minz = snapshot.getMinZ(record);
+            maxx = snapshot.getMaxX(record);
+            maxy = snapshot.getMaxY(record);
+            maxz = snapshot.getMaxZ(record);
+        }
+
+        /**
+         * Copies the current bounds of the shape into the entry.
+         */
+        void read() {
+            minx = shape.getMinX();
+            miny = shape.getMinY();
+            minz = shape.getMinZ();
+            maxx = shape.getMaxX();
+            maxy = shape.getMaxY();
+            maxz = shape.getMaxZ();
+        }
+    }
+
+    /**
+     * A node of the tree, holding either entries or other nodes.
+     */
+    static final class Node extends Bounds {
+
+        final boolean leaf;
+
+        final Bounds[] children = new Bounds[AreaTree.MAX_ENTRIES + 1];
+
+        int size;
+
+        Node(final boolean leaf, final Object owner) {
+            super(owner);
+            this.leaf = leaf;
+        }
+
+        void add(final Bounds child) {
+            children[size++] = child;
+        }
+
+        void remove(final Bounds child) {
+            for (int i = 0; i < size; i++) {
+                if (children[i] == child) {
+                    children[i] = children[--size];
+                    children[size] = null;
+                    return;
+                }
+            }
+        }
+
+        void replace(final Bounds child, final Bounds with) {
+            for (int i = 0; i < size; i++) {
+                if (children[i] == child) {
+                    children[i] = with;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Shrinks the bounds of the node to fit its children.
+         */
+        void tighten() {
+            if (size == 0) {
+                return;
+            }
+            final Bounds first = children[0];
+            minx = first.minx;
+            miny = first.miny;
+            minz = first.minz;
+            maxx = first.maxx;
+            maxy = first.maxy;
+            maxz = first.maxz;
+            for (int i = 1; i < size; i++) {
+                final Bounds b = children[i];
+                minx = Math.min(minx, b.minx);
+                miny = Math.min(miny, b.miny);
+                minz = Math.min(minz, b.minz);
+                maxx = Math.max(maxx, b.maxx);
+                maxy = Math.max(maxy, b.maxy);
+                maxz = Math.max(maxz, b.maxz);
+            }
+        }
+    }
+
+    /**
+     * The longest a dimension of a box is measured as when comparing volumes.
+     */
+    private static final double MAX_EXTENT = 0x1p32;
+
+    /**
+     * The maximum amount of children within a node.
+     */
+    static final int MAX_ENTRIES = 16;
+
+    /**
+     * The minimum amount of children within a non root node.
+     */
+    static final int MIN_ENTRIES = 6;
+
+    private static final Comparator<Bounds> BY_X = Comparator
+            .comparingDouble((Bounds b) -> b.minx + b.maxx);
+
+    private static final Comparator<Bounds> BY_Y = Comparator
+            .comparingDouble((Bounds b) -> b.miny + b.maxy);
+
+    private static final Comparator<Bounds> BY_Z = Comparator
+            .comparingDouble((Bounds b) -> b.minz + b.maxz);
+
+    /**
+     * The length of one dimension of a box, padded by a block and capped.
+     */
+    private static double extent(final double min, final double max) {
+        return Math.min(max - min, AreaTree.MAX_EXTENT) + 1;
+    }
+
+    /**
+     * Packs one level of the tree with sort tile recursive packing: the
+     * children are sorted into slabs along X, each slab into strips along Y,
+     * and each strip into runs along Z which become the nodes.
+     */
+    private static List<Bounds> pack(final List<Bounds> children,
+            final boolean leaf, final Object owner) {
+        final int nodes = (children.size() + AreaTree.MAX_ENTRIES - 1)
+                / AreaTree.MAX_ENTRIES;
+        final int tiles = (int) Math.ceil(Math.cbrt(nodes));
+        final List<Bounds> packed = new ArrayList<Bounds>(nodes);
+        children.sort(AreaTree.BY_X);
+        for (final List<Bounds> slab : AreaTree.partition(children, tiles)) {
+            slab.sort(AreaTree.BY_Y);
+            for (final List<Bounds> strip : AreaTree.partition(slab, tiles)) {
+                strip.sort(AreaTree.BY_Z);
+                for (final List<Bounds> run : AreaTree.partition(strip,
+                        (strip.size() + AreaTree.MAX_ENTRIES - 1)
+                                / AreaTree.MAX_ENTRIES)) {
+                    final Node node = new Node(leaf, owner);
+                    for (final Bounds b : run) {
+                        node.add(b);
+                    }
+                    node.tighten();
+                    packed.add(node);
+                }
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Splits the list into parts of nearly equal size.
+     */
+    private static List<List<Bounds>> partition(final List<Bounds> list,
+            final int parts) {
+        final int count = Math.max(1, Math.min(parts, list.size()));
+        final List<List<Bounds>> out = new ArrayList<List<Bounds>>(count);
+        for (int i = 0; i < count; i++) {
+            out.add(list.subList(i * list.size() / count, (i + 1)
+                    * list.size() / count));
+        }
+        return out;
+    }
+
+    /**
+     * The volume of a box. Every dimension is padded by a block so that
+     * single plane areas still have a volume to compare, and capped so that
+     * heightless areas, whose Y bounds are infinite, have a finite volume
+     * rather than one which makes every enlargement NaN.
+     */
+    private static double volume(final double minx, final double miny,
+            final double minz, final double maxx, final double maxy,
+            final double maxz) {
+        return AreaTree.extent(minx, maxx) * AreaTree.extent(miny, maxy)
+                * AreaTree.extent(minz, maxz);
+    }
+
+    /**
+     * The token marking the nodes and entries this tree may change in place.
+     * Any others may be shared with a copy, and are copied first.
+     */
+    private Object owner = new Object();
+
+    private IdentityTrie<Area, Entry> entries = new IdentityTrie<Area, Entry>();
+
+    private Node root = new Node(true, owner);
+
+    /**
+     * The entries of every snapshot loaded, by record.
+     */
+    private final Map<AreaSnapshot, Entry[]> records = new IdentityHashMap<AreaSnapshot, Entry[]>();
+
+    /**
+     * The amount of entries whose areas have not been created yet.
+     */
+    private int unresolved;
+
+    /**
+     * Collects every entry below the node.
+     */
+    private void collect(final Node node, final List<Entry> out) {
+        for (int i = 0; i < node.size; i++) {
+            if (node.leaf) {
+                out.add((Entry) node.children[i]);
+            } else {
+                this.collect((Node) node.children[i], out);
+            }
+        }
+    }
+
+    /**
+     * Adds the area of the entry to the list, skipping areas of worlds which
+     * are not loaded.
+     */
+    private void collect(final Entry e, final List<Area> out) {
+        final Area area = this.resolve(e);
+        if (area != null) {
+            out.add(area);
+        }
+    }
+
+    /**
+     * Walks the path from the leaf to the root removing underfull nodes, then
+     * reinserts the entries of the removed nodes. Every node of the path must
+     * be owned by the tree.
+     */
+    private void condense(final List<Node> path) {
+        final List<Entry> orphans = new ArrayList<Entry>();
+        for (int i = path.size() - 1; i > 0; i--) {
+            final Node node = path.get(i);
+            if (node.size < AreaTree.MIN_ENTRIES) {
+                path.get(i - 1).remove(node);
+                this.collect(node, orphans);
+            } else {
+                node.tighten();
+            }
+        }
+        root.tighten();
+        while (!root.leaf && root.size <= 1) {
+            root = root.size == 0 ? new Node(true, owner)
+                    : (Node) root.children[0];
+        }
+        for (final Entry e : orphans) {
+            this.insert(e);
+        }
+    }
+
+    /**
+     * Checks if the area is indexed by the tree.
+     */
+    boolean contains(final Area area) {
+        return this.entryOf(area) != null;
+    }
+
+    /**
+     * Copies the tree in constant time. Both trees copy the nodes they share
+     * before changing them, so neither sees the changes of the other.
+     *
+     * @throws IllegalStateException
+     *             Thrown when the tree holds records of a snapshot, whose
+     *             entries are changed in place as their areas are created.
+     */
+    AreaTree copy() {
+        if (!records.isEmpty()) {
+            throw new IllegalStateException(
+                    "A tree holding records of a snapshot cannot be copied");
+        }
+        owner = new Object();
+        final AreaTree copy = new AreaTree();
+        copy.root = root;
+        copy.entries = entries.copy();
+        return copy;
+    }
+
+    /**
+     * Finds the entry of the area, including an entry loaded from a snapshot
+     * which created the area outside of the tree.
+     */
+    private Entry entryOf(final Area area) {
+        final Entry e = entries.get(area);
+        if (e != null || unresolved == 0) {
+            return e;
+        }
+        for (final Map.Entry<AreaSnapshot, Entry[]> r : records.entrySet()) {
+            final int index = r.getKey().indexOf(area);
+            if (index >= 0 && r.getValue()[index] != null) {
+                final Entry loaded = r.getValue()[index];
+                return this.resolve(loaded) == area ? loaded : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fetches all of the areas within the tree, creating the areas of any
+     * records not used yet.
+     */
+    List<Area> getAreas() {
+        final List<Entry> all = new ArrayList<Entry>(this.size());
+        this.collect(root, all);
+        final List<Area> areas = new ArrayList<Area>(all.size());
+        for (final Entry e : all) {
+            final Area area = this.resolve(e);
+            if (area != null) {
+                areas.add(area);
+            }
+        }
+        return areas;
+    }
+
+    /**
+     * Indexes the area using its current bounds.
+     */
+    void insert(final Area area) {
+        this.insert(area, area);
+    }
+
+    /**
+     * Indexes the area using the current bounds of the shape it is checked
+     * with.
+     */
+    void insert(final Area area, final Area shape) {
+        final Entry e = new Entry(area, shape, owner);
+        entries.put(area, e);
+        this.insert(e);
+    }
+
+    private void insert(final Entry e) {
+        final List<Node> path = new ArrayList<Node>();
+        Node node = root;
+        path.add(node);
+        while (!node.leaf) {
+            Bounds best = null;
+            double bestEnlargement = 0;
+            for (int i = 0; i < node.size; i++) {
+                final Bounds child = node.children[i];
+                final double enlargement = child.enlargement(e);
+                if (best == null
+                        || enlargement < bestEnlargement
+                        || (enlargement == bestEnlargement && child.volume() < best
+                                .volume())) {
+                    best = child;
+                    bestEnlargement = enlargement;
+                }
+            }
+            node = (Node) best;
+            path.add(node);
+        }
+        this.own(path);
+        path.get(path.size() - 1).add(e);
+        this.propagate(path);
+    }
+
+    boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * Indexes records of the snapshot without creating their areas. An empty
+     * tree is bulk loaded, otherwise the records are inserted one at a time.
+     *
+     * @param indices
+     *            The records to index, all within the world of the tree.
+     */
+    void load(final AreaSnapshot snapshot, final List<Integer> indices) {
+        Entry[] slots = records.get(snapshot);
+        if (slots == null) {
+            slots = new Entry[snapshot.size()];
+            records.put(snapshot, slots);
+        }
+        final List<Bounds> loaded = new ArrayList<Bounds>(indices.size());
+        for (final int index : indices) {
+            if (slots[index] != null || snapshot.isCreated(index)
+                    && entries.get(snapshot.getArea(index)) != null) {
+                continue;
+            }
+            final Entry e = new Entry(snapshot, index, owner);
+            slots[index] = e;
+            loaded.add(e);
+            unresolved++;
+        }
+        this.load(loaded);
+    }
+
+    /**
+     * Indexes the areas, the keys of the map, using the current bounds of the
+     * shapes they are checked with, the values. Areas already indexed are
+     * skipped. An empty tree is bulk loaded, otherwise the areas are inserted
+     * one at a time.
+     */
+    void load(final Map<Area, Area> shapes) {
+        final List<Bounds> loaded = new ArrayList<Bounds>(shapes.size());
+        for (final Map.Entry<Area, Area> shape : shapes.entrySet()) {
+            if (entries.get(shape.getKey()) == null) {
+                final Entry e = new Entry(shape.getKey(), shape.getValue(),
+                        owner);
+                entries.put(shape.getKey(), e);
+                loaded.add(e);
+            }
+        }
+        this.load(loaded);
+    }
+
+    /**
+     * Adds the entries, which are already counted by the tree, packing them
+     * into a new root when the tree held nothing else.
+     */
+    private void load(final List<Bounds> loaded) {
+        if (this.size() > loaded.size()) {
+            for (final Bounds e : loaded) {
+                this.insert((Entry) e);
+            }
+            return;
+        }
+        List<Bounds> level = loaded;
+        boolean leaf = true;
+        while (level.size() > AreaTree.MAX_ENTRIES) {
+            level = AreaTree.pack(level, leaf, owner);
+            leaf = false;
+        }
+        root = new Node(leaf, owner);
+        for (final Bounds b : level) {
+            root.add(b);
+        }
+        root.tighten();
+    }
+
+    /**
+     * Collects the areas closest to the location, closest first, using a best
+     * first search. Nodes and entries are visited in order of the distance to
+     * their bounds, which is never more than the distance to the areas within
+     * them. An entry reached this way has its shape measured with
+     * {@link Area#distanceTo(Location)} and is queued again at that distance,
+     * so an area is only collected once nothing left in the queue can be
+     * closer. Only the branches which could hold one of the closest areas are
+     * visited.
+     *
+     * @param limit
+     *            The most areas to collect.
+     * @param range
+     *            The furthest an area can be to be collected.
+     */
+    void nearest(final Location location, final int limit, final double range,
+            final List<Area> out) {
+        final double x = location.getX();
+        final double y = location.getY();
+        final double z = location.getZ();
+        final double rangeSquared = range * range;
+        final PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+        queue.add(new Candidate(root, root.squaredDistanceBound(x, y, z),
+                false));
+        while (out.size() < limit && !queue.isEmpty()) {
+            final Candidate c = queue.poll();
+            if (c.distance > rangeSquared) {
+                break;
+            }
+            if (c.exact) {
+                out.add(((Entry) c.bounds).area);
+            } else if (c.bounds instanceof Node) {
+                final Node node = (Node) c.bounds;
+                for (int i = 0; i < node.size; i++) {
+                    final Bounds b = node.children[i];
+                    final double d = b.squaredDistanceBound(x, y, z);
+                    if (d <= rangeSquared) {
+                        queue.add(new Candidate(b, d, false));
+                    }
+                }
+            } else {
+                final Entry e = (Entry) c.bounds;
+                if (this.resolve(e) == null) {
+                    continue;
+                }
+                final double d = e.shape.distanceTo(location);
+                if (d != Double.POSITIVE_INFINITY && d * d <= rangeSquared) {
+                    queue.add(new Candidate(c.bounds, d * d, true));
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetches the node if this tree owns it, and otherwise a copy it owns.
+     */
+    private Node own(final Node node) {
+        if (node.owner == owner) {
+            return node;
+        }
+        final Node copy = new Node(node.leaf, owner);
+        System.arraycopy(node.children, 0, copy.children, 0, node.size);
+        copy.size = node.size;
+        copy.minx = node.minx;
+        copy.miny = node.miny;
+        copy.minz = node.minz;
+        copy.maxx = node.maxx;
+        copy.maxy = node.maxy;
+        copy.maxz = node.maxz;
+        return copy;
+    }
+
+    /**
+     * Makes every node of the path from the root one the tree owns, copying
+     * the nodes shared with a copy of the tree from the root down.
+     */
+    private void own(final List<Node> path) {
+        Node parent = null;
+        for (int i = 0; i < path.size(); i++) {
+            final Node node = path.get(i);
+            final Node owned = this.own(node);
+            if (owned != node) {
+                if (parent == null) {
+                    root = owned;
+                } else {
+                    parent.replace(node, owned);
+                }
+                path.set(i, owned);
+            }
+            parent = owned;
+        }
+    }
+
+    /**
+     * Finds the nodes from the node down to the leaf holding the entry,
+     * following only the nodes whose bounds contain the bounds of the entry.
+     *
+     * @return True if the entry was found; otherwise false.
+     */
+    private boolean pathTo(final Node node, final Entry e,
+            final List<Node> path) {
+        path.add(node);
+        for (int i = 0; i < node.size; i++) {
+            final Bounds b = node.children[i];
+            if (node.leaf) {
+                if (b == e) {
+                    return true;
+                }
+            } else if (b.contains(e) && this.pathTo((Node) b, e, path)) {
+                return true;
+            }
+        }
+        path.remove(path.size() - 1);
+        return false;
+    }
+
+    /**
+     * Splits overfull nodes and tightens the bounds along the path from the
+     * leaf up to the root. Every node of the path must be owned by the tree.
+     */
+    private void propagate(final List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            final Node node = path.get(i);
+            Node sibling = null;
+            if (node.size > AreaTree.MAX_ENTRIES) {
+                sibling = this.split(node);
+            }
+            node.tighten();
+            if (sibling != null) {
+                sibling.tighten();
+                if (i == 0) {
+                    root = new Node(false, owner);
+                    root.add(node);
+                    root.add(sibling);
+                    root.tighten();
+                    return;
+                }
+                path.get(i - 1).add(sibling);
+            }
+        }
+    }
+
+    /**
+     * Visits the areas a ray passes through in the order the ray enters them,
+     * using a best first search. Nodes and entries are visited in order of
+     * where the ray enters their bounds, which is never after it enters the
+     * areas within them. An entry reached this way has the ray traced through
+     * its shape with {@link Area#intersectRay(Location, Vector, double)} and is
+     * queued again at the exact entry, so an area is only visited once
+     * nothing left in the queue can be entered first. Branches beyond the
+     * point the visitor stops at are never visited.
+     *
+     * @return True if every area along the ray was visited; false if the
+     *         visitor stopped.
+     * @throws IllegalArgumentException
+     *             Thrown when the direction has no length.
+     */
+    boolean raycast(final Location origin, final Vector direction,
+            final double maxDistance, final RayVisitor visitor) {
+        final double length = direction.length();
+        if (!(length > 0) || length == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException(
+                    "The direction of a ray must have a length");
+        }
+        final double ox = origin.getX();
+        final double oy = origin.getY();
+        final double oz = origin.getZ();
+        final double dx = direction.getX() / length;
+        final double dy = direction.getY() / length;
+        final double dz = direction.getZ() / length;
+        final PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+        queue.add(new Candidate(root, root.rayEntry(ox, oy, oz, dx, dy, dz,
+                maxDistance), false));
+        while (!queue.isEmpty()) {
+            final Candidate c = queue.poll();
+            if (c.distance == Double.POSITIVE_INFINITY) {
+                break;
+            }
+            if (c.exact) {
+                if (!visitor.visit(c.hit)) {
+                    return false;
+                }
+            } else if (c.bounds instanceof Node) {
+                final Node node = (Node) c.bounds;
+                for (int i = 0; i < node.size; i++) {
+                    final Bounds b = node.children[i];
+                    final double t = b.rayEntry(ox, oy, oz, dx, dy, dz,
+                            maxDistance);
+                    if (t != Double.POSITIVE_INFINITY) {
+                        queue.add(new Candidate(b, t, false));
+                    }
+                }
+            } else {
+                final Entry e = (Entry) c.bounds;
+                if (this.resolve(e) == null) {
+                    continue;
+                }
+                final RayHit hit = e.shape.intersectRay(origin, direction,
+                        maxDistance);
+                if (hit != null) {
+                    queue.add(new Candidate(e, e.shape == e.area ? hit
+                            : new RayHit(e.area, hit.getEntry(), hit
+                                    .getExit())));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the area from the tree.
+     *
+     * @return True if the area was indexed; otherwise false.
+     */
+    boolean remove(final Area area) {
+        final Entry e = this.entryOf(area);
+        if (e == null) {
+            return false;
+        }
+        entries.remove(area);
+        if (e.snapshot != null) {
+            records.get(e.snapshot)[e.record] = null;
+        }
+        final List<Node> path = new ArrayList<Node>();
+        this.pathTo(root, e, path);
+        this.own(path);
+        path.get(path.size() - 1).remove(e);
+        this.condense(path);
+        return true;
+    }
+
+    /**
+     * Fetches the area of the entry, creating it from its record if needed.
+     *
+     * @return The area, or null if it is from a world which is not loaded.
+     */
+    private Area resolve(final Entry e) {
+        if (e.area == null) {
+            final Area area = e.snapshot.getArea(e.record);
+            if (area == null) {
+                return null;
+            }
+            e.area = area;
+            e.shape = area;
+            entries.put(area, e);
+            unresolved--;
+        }
+        return e.area;
+    }
+
+    /**
+     * Collects the areas whose bounds intersect the box.
+     */
+    private void search(final Node node, final double x1, final double y1,
+            final double z1, final double x2, final double y2,
+            final double z2, final List<Area> out) {
+        for (int i = 0; i < node.size; i++) {
+            final Bounds b = node.children[i];
+            if (b.intersects(x1, y1, z1, x2, y2, z2)) {
+                if (node.leaf) {
+                    this.collect((Entry) b, out);
+                } else {
+                    this.search((Node) b, x1, y1, z1, x2, y2, z2, out);
+                }
+            }
+        }
+    }
+
+    void search(final double x1, final double y1, final double z1,
+            final double x2, final double y2, final double z2,
+            final List<Area> out) {
+        this.search(root, x1, y1, z1, x2, y2, z2, out);
+    }
+
+    /**
+     * Collects the areas whose bounds contain the point.
+     */
+    private void search(final Node node, final double x, final double y,
+            final double z, final List<Area> out) {
+        for (int i = 0; i < node.size; i++) {
+            final Bounds b = node.children[i];
+            if (b.contains(x, y, z)) {
+                if (node.leaf) {
+                    this.collect((Entry) b, out);
+                } else {
+                    this.search((Node) b, x, y, z, out);
+                }
+            }
+        }
+    }
+
+    void search(final double x, final double y, final double z,
+            final List<Area> out) {
+        this.search(root, x, y, z, out);
+    }
+
+    /**
+     * Collects the areas which contain the location. The entries whose bounds
+     * contain it have their shapes checked with
+     * {@link Area#contains(Location)}.
+     *
+     * @return The amount of entries checked.
+     */
+    int searchContaining(final Location location, final List<Area> out) {
+        return this.searchContaining(root, location, location.getX(),
+                location.getY(), location.getZ(), out);
+    }
+
+    private int searchContaining(final Node node, final Location location,
+            final double x, final double y, final double z,
+            final List<Area> out) {
+        int checked = 0;
+        for (int i = 0; i < node.size; i++) {
+            final Bounds b = node.children[i];
+            if (!b.contains(x, y, z)) {
+                continue;
+            }
+            if (!node.leaf) {
+                checked += this.searchContaining((Node) b, location, x, y, z,
+                        out);
+                continue;
+            }
+            final Entry e = (Entry) b;
+            if (this.resolve(e) != null) {
+                checked++;
+                if (e.shape.contains(location)) {
+                    out.add(e.area);
+                }
+            }
+        }
+        return checked;
+    }
+
+    /**
+     * Collects the areas whose bounds intersect the bounds of the area,
+     * leaving out the area itself. An area within the tree is searched for
+     * using the bounds it was indexed with.
+     */
+    void searchIntersecting(final Area area, final List<Area> out) {
+        final Bounds e = this.entryOf(area);
+        if (e == null) {
+            this.search(area.getMinX(), area.getMinY(), area.getMinZ(),
+                    area.getMaxX(), area.getMaxY(), area.getMaxZ(), out);
+        } else {
+            this.search(e.minx, e.miny, e.minz, e.maxx, e.maxy, e.maxz, out);
+        }
+        out.remove(area);
+    }
+
+    /**
+     * Collects the areas whose bounds intersect the sphere.
+     */
+    private void searchSphere(final Node node, final double x,
+            final double y, final double z, final double radiusSquared,
+            final List<Area> out) {
+        for (int i = 0; i < node.size; i++) {
+            final Bounds b = node.children[i];
+            if (b.squaredDistance(x, y, z) <= radiusSquared) {
+                if (node.leaf) {
+                    this.collect((Entry) b, out);
+                } else {
+                    this.searchSphere((Node) b, x, y, z, radiusSquared, out);
+                }
+            }
+        }
+    }
+
+    void searchSphere(final double x, final double y, final double z,
+            final double radius, final List<Area> out) {
+        this.searchSphere(root, x, y, z, radius * radius, out);
+    }
+
+    int size() {
+        return entries.size() + unresolved;
+    }
+
+    /**
+     * Splits an overfull node using the quadratic split, leaving one group in
+     * the node and returning the other.
+     */
+    private Node split(final Node node) {
+        final Bounds[] pending = new Bounds[node.size];
+        System.arraycopy(node.children, 0, pending, 0, node.size);
+        int remaining = pending.length;
+        for (int i = 0; i < node.size; i++) {
+            node.children[i] = null;
+        }
+        node.size = 0;
+        final Node sibling = new Node(node.leaf, owner);
+
+        // Pick the pair of children which would waste the most space together
+        int seedA = 0;
+        int seedB = 1;
+        double worst = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < pending.length; i++) {
+            for (int j = i + 1; j < pending.length; j++) {
+                final double waste = pending[i].enlargement(pending[j])
+                        - pending[j].volume();
+                if (waste > worst) {
+                    worst = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+        }
+        node.add(pending[seedA]);
+        sibling.add(pending[seedB]);
+        node.tighten();
+        sibling.tighten();
+        pending[seedA] = null;
+        pending[seedB] = null;
+        remaining -= 2;
+
+        while (remaining > 0) {
+            // Make sure both groups end up with the minimum amount of children
+            final Node forced = node.size + remaining == AreaTree.MIN_ENTRIES ? node
+                    : sibling.size + remaining == AreaTree.MIN_ENTRIES ? sibling
+                            : null;
+            if (forced != null) {
+                for (int i = 0; i < pending.length; i++) {
+                    if (pending[i] != null) {
+                        forced.add(pending[i]);
+                        pending[i] = null;
+                    }
+                }
+                forced.tighten();
+                break;
+            }
+
+            // Assign the child with the strongest preference for a group
+            int next = -1;
+            double preference = -1;
+            for (int i = 0; i < pending.length; i++) {
+                if (pending[i] != null) {
+                    final double diff = Math.abs(node.enlargement(pending[i])
+                            - sibling.enlargement(pending[i]));
+                    if (diff > preference) {
+                        preference = diff;
+                        next = i;
+                    }
+                }
+            }
+            final double a = node.enlargement(pending[next]);
+            final double b = sibling.enlargement(pending[next]);
+            final Node target;
+            if (a != b) {
+                target = a < b ? node : sibling;
+            } else if (node.volume() != sibling.volume()) {
+                target = node.volume() < sibling.volume() ? node : sibling;
+            } else {
+                target = node.size <= sibling.size ? node : sibling;
+            }
+            target.add(pending[next]);
+            target.tighten();
+            pending[next] = null;
+            remaining--;
+        }
+        return sibling;
+    }
+
+    /**
+     * Re-reads the bounds of the area after it has been expanded, shrunk or
+     * shifted.
+     *
+     * @return True if the area was indexed; otherwise false.
+     */
+    boolean update(final Area area) {
+        return this.update(area, area);
+    }
+
+    /**
+     * Re-indexes the area to be checked with the shape, using the current
+     * bounds of the shape.
+     *
+     * @return True if the area was indexed; otherwise false.
+     */
+    boolean update(final Area area, final Area shape) {
+        Entry e = this.entryOf(area);
+        if (e == null) {
+            return false;
+        }
+        final List<Node> path = new ArrayList<Node>();
+        this.pathTo(root, e, path);
+        this.own(path);
+        final Node leaf = path.get(path.size() - 1);
+        if (e.owner == owner && e.shape == shape) {
+            e.read();
+        } else {
+            final Entry replaced = e;
+            e = new Entry(area, shape, owner);
+            leaf.replace(replaced, e);
+            entries.put(area, e);
+            if (replaced.snapshot != null) {
+                records.get(replaced.snapshot)[replaced.record] = null;
+            }
+        }
+        if (leaf.contains(e)) {
+            // The entry still fits where it is, the ancestors only need to
+            // shrink to the new bounds
+            for (int i = path.size() - 1; i >= 0; i--) {
+                path.get(i).tighten();
+            }
+            return true;
+        }
+        leaf.remove(e);
+        this.condense(path);
+        this.insert(e);
+        return true;
+    }
+}
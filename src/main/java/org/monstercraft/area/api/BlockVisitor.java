@@ -0,0 +1,18 @@
+package org.monstercraft.area.api;
+
+import org.bukkit.block.Block;
+
+/**
+ * Visits the blocks of an area one at a time.
+ */
+public interface BlockVisitor {
+
+    /**
+     * Visits a block within the area.
+     *
+     * @param block
+     *            The block being visited.
+     * @return True to continue to the next block; false to stop.
+     */
+    boolean visit(Block block);
+}
@@ -0,0 +1,281 @@
+package org.monstercraft.area.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.monstercraft.area.api.util.ChunkKeys;
+import org.monstercraft.area.api.util.LongObjectHashMap;
+import org.monstercraft.area.api.wrappers.Area;
+import org.monstercraft.area.metrics.AreaMetrics;
+
+/**
+ * A hash index listing every area in the buckets of the chunks its bounds
+ * cover. Point lookups hash the chunk of the location and only check the few
+ * areas in that bucket, no matter how many areas the world holds. Areas are
+ * bucketed by their X/Z footprint, so the height of an area never adds
+ * buckets.
+ *
+ * Every covered chunk holds a reference to the area, so very large areas are
+ * better served by the {@link AreaRegistry}. The index is not thread safe and
+ * should be used from the main thread.
+ */
+public class ChunkAreaIndex {
+
+    /**
+     * The chunks an area was bucketed into when it was indexed.
+     */
+    private static final class Coverage {
+
+        final int world;
+
+        final int minx;
+
+        final int minz;
+
+        final int maxx;
+
+        final int maxz;
+
+        Coverage(final int world, final Area area) {
+            this.world = world;
+            minx = ChunkKeys.toChunk(area.getMinX());
+            minz = ChunkKeys.toChunk(area.getMinZ());
+            maxx = ChunkKeys.toChunk(area.getMaxX());
+            maxz = ChunkKeys.toChunk(area.getMaxZ());
+        }
+
+        boolean sameChunks(final Coverage other) {
+            return world == other.world && minx == other.minx
+                    && minz == other.minz && maxx == other.maxx
+                    && maxz == other.maxz;
+        }
+    }
+
+    private final LongObjectHashMap<List<Area>> buckets = new LongObjectHashMap<List<Area>>();
+
+    private final Map<Area, Coverage> coverage = new IdentityHashMap<Area, Coverage>();
+
+    private final Map<UUID, Integer> worlds = new HashMap<UUID, Integer>();
+
+    private void add(final Area area, final Coverage c) {
+        for (int x = c.minx; x <= c.maxx; x++) {
+            for (int z = c.minz; z <= c.maxz; z++) {
+                final long key = ChunkKeys.pack(c.world, x, z);
+                List<Area> bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<Area>(2);
+                    buckets.put(key, bucket);
+                }
+                bucket.add(area);
+            }
+        }
+    }
+
+    /**
+     * Removes all of the areas from the index.
+     */
+    public void clear() {
+        buckets.clear();
+        coverage.clear();
+    }
+
+    /**
+     * Fetches the areas which contain the block.
+     *
+     * @param block
+     *            The block to check.
+     * @return The areas containing the block.
+     */
+    public List<Area> getAreasAt(final Block block) {
+        return this.getAreasAt(block.getLocation());
+    }
+
+    /**
+     * Fetches the areas which contain the location. Only the areas bucketed
+     * in the chunk of the location are checked using
+     * {@link Area#contains(Location)}.
+     *
+     * @param location
+     *            The location to check.
+     * @return The areas containing the location.
+     */
+    public List<Area> getAreasAt(final Location location) {
+        final boolean timed = AreaMetrics.isEnabled();
+        final long start = timed ? System.nanoTime() : 0;
+        final List<Area> areas = new ArrayList<Area>();
+        final List<Area> bucket = this.getBucket(location.getWorld(),
+                location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        if (bucket != null) {
+            for (int i = 0; i < bucket.size(); i++) {
+                final Area area = bucket.get(i);
+                if (area.contains(location)) {
+                    areas.add(area);
+                }
+            }
+        }
+        if (timed) {
+            AreaMetrics.recordLookup(bucket == null ? 0 : bucket.size(),
+                    areas.size(), System.nanoTime() - start);
+        }
+        return areas;
+    }
+
+    /**
+     * Fetches the areas which contain the player.
+     *
+     * @param player
+     *            The player to check.
+     * @return The areas containing the player.
+     */
+    public List<Area> getAreasAt(final Player player) {
+        return this.getAreasAt(player.getLocation());
+    }
+
+    /**
+     * Fetches the areas whose bounds cover the chunk.
+     *
+     * @param chunk
+     *            The chunk to check.
+     * @return The areas covering the chunk.
+     */
+    public List<Area> getAreasIn(final Chunk chunk) {
+        return this.getAreasIn(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Fetches the areas whose bounds cover the chunk.
+     *
+     * @param world
+     *            The world of the chunk.
+     * @param x
+     *            The chunk X coordinate.
+     * @param z
+     *            The chunk Z coordinate.
+     * @return The areas covering the chunk.
+     */
+    public List<Area> getAreasIn(final World world, final int x, final int z) {
+        final List<Area> bucket = this.getBucket(world, x, z);
+        return bucket == null ? new ArrayList<Area>() : new ArrayList<Area>(
+                bucket);
+    }
+
+    private List<Area> getBucket(final World world, final int x, final int z) {
+        final Integer id = worlds.get(world.getUID());
+        return id == null ? null : buckets.get(ChunkKeys.pack(id, x, z));
+    }
+
+    private int getWorldId(final World world) {
+        Integer id = worlds.get(world.getUID());
+        if (id == null) {
+            id = worlds.size();
+            if (id > ChunkKeys.MAX_WORLD_ID) {
+                throw new IllegalStateException("Too many worlds indexed");
+            }
+            worlds.put(world.getUID(), id);
+        }
+        return id;
+    }
+
+    /**
+     * Checks if the area is indexed.
+     *
+     * @param area
+     *            The area to check.
+     * @return True if the area is indexed; otherwise false.
+     */
+    public boolean isRegistered(final Area area) {
+        return coverage.containsKey(area);
+    }
+
+    /**
+     * Indexes the area using its current bounds. Registering an area twice
+     * re-indexes it.
+     *
+     * @param area
+     *            The area to index.
+     */
+    public void register(final Area area) {
+        if (!this.update(area)) {
+            final Coverage c = new Coverage(
+                    this.getWorldId(area.getWorld()), area);
+            coverage.put(area, c);
+            this.add(area, c);
+        }
+    }
+
+    private void remove(final Area area, final Coverage c) {
+        for (int x = c.minx; x <= c.maxx; x++) {
+            for (int z = c.minz; z <= c.maxz; z++) {
+                final long key = ChunkKeys.pack(c.world, x, z);
+                final List<Area> bucket = buckets.get(key);
+                if (bucket != null) {
+                    for (int i = 0; i < bucket.size(); i++) {
+                        if (bucket.get(i) == area) {
+                            bucket.remove(i);
+                            break;
+                        }
+                    }
+                    if (bucket.isEmpty()) {
+                        buckets.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The amount of areas indexed.
+     *
+     * @return The amount of areas indexed.
+     */
+    public int size() {
+        return coverage.size();
+    }
+
+    /**
+     * Removes the area from the index.
+     *
+     * @param area
+     *            The area to remove.
+     * @return True if the area was indexed; otherwise false.
+     */
+    public boolean unregister(final Area area) {
+        final Coverage c = coverage.remove(area);
+        if (c == null) {
+            return false;
+        }
+        this.remove(area, c);
+        return true;
+    }
+
+    /**
+     * Re-buckets the area after it has been expanded, shrunk or shifted.
+     * Nothing is moved when the area still covers the same chunks.
+     *
+     * @param area
+     *            The area to update.
+     * @return True if the area was indexed; otherwise false.
+     */
+    public boolean update(final Area area) {
+        final Coverage old = coverage.get(area);
+        if (old == null) {
+            return false;
+        }
+        final Coverage c = new Coverage(old.world, area);
+        if (!c.sameChunks(old)) {
+            this.remove(area, old);
+            coverage.put(area, c);
+            this.add(area, c);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,246 @@
+package org.monstercraft.area.api;
+
+import org.monstercraft.area.api.util.ChunkKeys;
+import org.monstercraft.area.api.wrappers.Area;
+
+/**
+ * The part of an area within a single chunk: the bounds of the area clipped
+ * to the chunk and to the height of the world. Areas made of a list of blocks
+ * also hand over the blocks within the chunk.
+ */
+public final class ChunkSlice {
+
+    private final Area area;
+
+    private final int chunkX;
+
+    private final int chunkZ;
+
+    private final int minx;
+
+    private final int miny;
+
+    private final int minz;
+
+    private final int maxx;
+
+    private final int maxy;
+
+    private final int maxz;
+
+    private final long[] positions;
+
+    private final boolean full;
+
+    /**
+     * Creates a slice.
+     *
+     * @param area
+     *            The area the slice is part of.
+     * @param chunkX
+     *            The X coordinate of the chunk.
+     * @param chunkZ
+     *            The Z coordinate of the chunk.
+     * @param minx
+     *            The lowest X block coordinate within the slice.
+     * @param miny
+     *            The lowest Y block coordinate within the slice.
+     * @param minz
+     *            The lowest Z block coordinate within the slice.
+     * @param maxx
+     *            The highest X block coordinate within the slice.
+     * @param maxy
+     *            The highest Y block coordinate within the slice.
+     * @param maxz
+     *            The highest Z block coordinate within the slice.
+     * @param positions
+     *            The packed positions of the blocks of the area within the
+     *            chunk, in chunk order, or null if the area is not made of a
+     *            list of blocks.
+     * @param full
+     *            True if every block within the bounds is within the area.
+     */
+    public ChunkSlice(final Area area, final int chunkX, final int chunkZ,
+            final int minx, final int miny, final int minz, final int maxx,
+            final int maxy, final int maxz, final long[] positions,
+            final boolean full) {
+        this.area = area;
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.minx = minx;
+        this.miny = miny;
+        this.minz = minz;
+        this.maxx = maxx;
+        this.maxy = maxy;
+        this.maxz = maxz;
+        this.positions = positions;
+        this.full = full;
+    }
+
+    /**
+     * The area the slice is part of.
+     *
+     * @return The area.
+     */
+    public Area getArea() {
+        return area;
+    }
+
+    /**
+     * The blocks of the area within the chunk, for areas made of a list of
+     * blocks. Other areas hold the blocks within the bounds of the slice
+     * which {@link Area#contains(int, int, int)} accepts.
+     *
+     * @return The packed positions of the blocks in chunk order, or null if
+     *         the area is not made of a list of blocks. The array must not be
+     *         modified.
+     */
+    public long[] getBlockPositions() {
+        return positions;
+    }
+
+    /**
+     * The key of the chunk.
+     *
+     * @return The key, as created by {@link ChunkKeys#pack(int, int)}.
+     */
+    public long getChunkKey() {
+        return ChunkKeys.pack(chunkX, chunkZ);
+    }
+
+    /**
+     * The X coordinate of the chunk.
+     *
+     * @return The chunk X coordinate.
+     */
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    /**
+     * The Z coordinate of the chunk.
+     *
+     * @return The chunk Z coordinate.
+     */
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    /**
+     * The highest X coordinate of the slice within the chunk.
+     *
+     * @return The X coordinate, from 0 to 15.
+     */
+    public int getLocalMaxX() {
+        return maxx & 15;
+    }
+
+    /**
+     * The highest Z coordinate of the slice within the chunk.
+     *
+     * @return The Z coordinate, from 0 to 15.
+     */
+    public int getLocalMaxZ() {
+        return maxz & 15;
+    }
+
+    /**
+     * The lowest X coordinate of the slice within the chunk.
+     *
+     * @return The X coordinate, from 0 to 15.
+     */
+    public int getLocalMinX() {
+        return minx & 15;
+    }
+
+    /**
+     * The lowest Z coordinate of the slice within the chunk.
+     *
+     * @return The Z coordinate, from 0 to 15.
+     */
+    public int getLocalMinZ() {
+        return minz & 15;
+    }
+
+    /**
+     * The highest X block coordinate within the slice.
+     *
+     * @return The X block coordinate.
+     */
+    public int getMaxX() {
+        return maxx;
+    }
+
+    /**
+     * The highest Y block coordinate within the slice.
+     *
+     * @return The Y block coordinate.
+     */
+    public int getMaxY() {
+        return maxy;
+    }
+
+    /**
+     * The highest Z block coordinate within the slice.
+     *
+     * @return The Z block coordinate.
+     */
+    public int getMaxZ() {
+        return maxz;
+    }
+
+    /**
+     * The lowest X block coordinate within the slice.
+     *
+     * @return The X block coordinate.
+     */
+    public int getMinX() {
+        return minx;
+    }
+
+    /**
+     * The lowest Y block coordinate within the slice.
+     *
+     * @return The Y block coordinate.
+     */
+    public int getMinY() {
+        return miny;
+    }
+
+    /**
+     * The lowest Z block coordinate within the slice.
+     *
+     * @return The Z block coordinate.
+     */
+    public int getMinZ() {
+        return minz;
+    }
+
+    /**
+     * The amount of blocks within the bounds of the slice.
+     *
+     * @return The volume of the slice in blocks.
+     */
+    public long getVolume() {
+        return (long) (maxx - minx + 1) * (maxy - miny + 1)
+                * (maxz - minz + 1);
+    }
+
+    /**
+     * Checks if every block within the bounds of the slice is within the
+     * area, as it is for box shaped areas. The blocks of a full slice need not
+     * be checked one at a time.
+     *
+     * @return True if the slice is full; otherwise false.
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkSlice[" + chunkX + ", " + chunkZ + ": " + minx + ","
+                + miny + "," + minz + " to " + maxx + "," + maxy + "," + maxz
+                + "]";
+    }
+}
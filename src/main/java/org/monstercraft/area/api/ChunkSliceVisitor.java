@@ -0,0 +1,16 @@
+package org.monstercraft.area.api;
+
+/**
+ * Visits the parts of an area one chunk at a time.
+ */
+public interface ChunkSliceVisitor {
+
+    /**
+     * Visits the part of the area within a chunk.
+     *
+     * @param slice
+     *            The part of the area within the chunk.
+     * @return True to continue to the next chunk; false to stop.
+     */
+    boolean visit(ChunkSlice slice);
+}
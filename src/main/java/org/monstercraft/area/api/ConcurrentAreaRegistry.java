@@ -0,0 +1,201 @@
+package org.monstercraft.area.api;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.plugin.Plugin;
+import org.monstercraft.area.api.wrappers.Area;
+
+/**
+ * A registry of areas which can be queried from any thread without locking.
+ * Queries read an immutable version of the registry through a single volatile
+ * reference, so they never wait on writers and never see an area half way
+ * through being expanded, shrunk or shifted.
+ *
+ * Changes are staged and only become visible once {@link #publish()} builds
+ * the next version, so many changes made during a tick cost a single
+ * publish. The next version copies the R-tree of every world which changed
+ * and applies the changes to the copy, which only copies the nodes on the
+ * paths to the changed areas; everything else is shared with the previous
+ * version. Writers should stay on the main thread, the thread which changes
+ * the areas.
+ *
+ * Every version checks the areas against the copies {@link Area#freeze()}
+ * took of them when it was published, which for the cubed, heightless and
+ * single plane areas hold their bounds at that time. Queries still return
+ * the areas which were registered. Areas of other types are checked
+ * directly, so they should be replaced rather than changed while registered.
+ */
+public class ConcurrentAreaRegistry extends AbstractAreaRegistry {
+
+    /**
+     * A published state of the registry. Never changed once built.
+     */
+    private static final class Version {
+
+        final Map<UUID, AreaTree> trees;
+
+        final long number;
+
+        Version(final Map<UUID, AreaTree> trees, final long number) {
+            this.trees = trees;
+            this.number = number;
+        }
+    }
+
+    private volatile Version version = new Version(
+            Collections.<UUID, AreaTree> emptyMap(), 0);
+
+    /**
+     * The changes staged since the last publish: true to index an area with
+     * its current bounds, false to remove it.
+     */
+    private final Map<Area, Boolean> pending = new IdentityHashMap<Area, Boolean>();
+
+    private boolean cleared;
+
+    /**
+     * Stages the removal of every area. The removal is visible after the
+     * next publish.
+     */
+    public synchronized void clear() {
+        pending.clear();
+        cleared = true;
+    }
+
+    @Override
+    Map<UUID, AreaTree> getTrees() {
+        return version.trees;
+    }
+
+    /**
+     * The number of the version queries currently read. It grows by one with
+     * every publish which changed anything.
+     *
+     * @return The number of the published version.
+     */
+    public long getVersion() {
+        return version.number;
+    }
+
+    /**
+     * Publishes the changes staged since the last publish as a new version.
+     * The bounds of the areas registered or updated are read now, so this
+     * should be called from the thread which changes them.
+     *
+     * @return True if a new version was published; false if nothing had
+     *         changed.
+     */
+    public synchronized boolean publish() {
+        if (pending.isEmpty() && !cleared) {
+            return false;
+        }
+        final Version current = version;
+        final Map<UUID, AreaTree> trees = cleared ? new HashMap<UUID, AreaTree>()
+                : new HashMap<UUID, AreaTree>(current.trees);
+
+        // The trees of this version, which are copied from the published
+        // trees the first time a world changes and are then changed in place.
+        // Worlds without a published tree are bulk loaded instead.
+        final Map<UUID, AreaTree> changed = new HashMap<UUID, AreaTree>();
+        final Map<UUID, Map<Area, Area>> loaded = new HashMap<UUID, Map<Area, Area>>();
+        for (final Map.Entry<Area, Boolean> change : pending.entrySet()) {
+            final Area area = change.getKey();
+            final UUID world = area.getWorld().getUID();
+            final AreaTree published = trees.get(world);
+            if (published == null) {
+                if (change.getValue()) {
+                    Map<Area, Area> shapes = loaded.get(world);
+                    if (shapes == null) {
+                        shapes = new IdentityHashMap<Area, Area>();
+                        loaded.put(world, shapes);
+                    }
+                    shapes.put(area, area.freeze());
+                }
+                continue;
+            }
+            AreaTree tree = changed.get(world);
+            if (tree == null) {
+                tree = published.copy();
+                changed.put(world, tree);
+            }
+            if (change.getValue()) {
+                final Area shape = area.freeze();
+                if (!tree.update(area, shape)) {
+                    tree.insert(area, shape);
+                }
+            } else {
+                tree.remove(area);
+            }
+        }
+        for (final Map.Entry<UUID, AreaTree> world : changed.entrySet()) {
+            if (world.getValue().isEmpty()) {
+                trees.remove(world.getKey());
+            } else {
+                trees.put(world.getKey(), world.getValue());
+            }
+        }
+        for (final Map.Entry<UUID, Map<Area, Area>> world : loaded.entrySet()) {
+            final AreaTree tree = new AreaTree();
+            tree.load(world.getValue());
+            trees.put(world.getKey(), tree);
+        }
+
+        pending.clear();
+        cleared = false;
+        version = new Version(Collections.unmodifiableMap(trees),
+                current.number + 1);
+        return true;
+    }
+
+    /**
+     * Stages the area to be registered using its bounds at the next publish.
+     * Registering an area twice re-indexes it.
+     *
+     * @param area
+     *            The area to register.
+     */
+    public synchronized void register(final Area area) {
+        pending.put(area, Boolean.TRUE);
+    }
+
+    /**
+     * Publishes the staged changes once every tick.
+     *
+     * @param plugin
+     *            The plugin to schedule the task with.
+     * @return The id of the scheduled task.
+     */
+    public int schedulePublish(final Plugin plugin) {
+        return plugin.getServer().getScheduler()
+                .scheduleSyncRepeatingTask(plugin, () -> this.publish(), 1, 1);
+    }
+
+    /**
+     * Stages the area to be unregistered at the next publish.
+     *
+     * @param area
+     *            The area to unregister.
+     */
+    public synchronized void unregister(final Area area) {
+        pending.put(area, Boolean.FALSE);
+    }
+
+    /**
+     * Stages the area to be re-indexed after it has been expanded, shrunk or
+     * shifted. Queries keep seeing its old bounds until the next publish.
+     *
+     * @param area
+     *            The area to update.
+     */
+    public synchronized void update(final Area area) {
+        if (pending.get(area) != Boolean.FALSE
+                && (pending.containsKey(area) || !cleared
+                        && this.isRegistered(area))) {
+            pending.put(area, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.monstercraft.area.api;
+
+/**
+ * Visits the cubes of blocks an area is made of, one cube at a time.
+ */
+public interface CubeVisitor {
+
+    /**
+     * Visits a cube of blocks which are all within the area.
+     *
+     * @param x
+     *            The lowest X coordinate of the cube.
+     * @param y
+     *            The lowest Y coordinate of the cube.
+     * @param z
+     *            The lowest Z coordinate of the cube.
+     * @param size
+     *            The length of the edges of the cube, in blocks.
+     * @return True to continue to the next cube; false to stop.
+     */
+    boolean visit(int x, int y, int z, int size);
+}
@@ -0,0 +1,210 @@
+package org.monstercraft.area.api;
+
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.plugin.Plugin;
+import org.monstercraft.area.api.util.BlockPositions;
+import org.monstercraft.area.api.wrappers.Area;
+import org.monstercraft.area.metrics.AreaMetrics;
+
+/**
+ * A change to the blocks of an area spread over as many ticks as it needs.
+ * The area is walked lazily in chunk order and blocks are changed on the main
+ * thread until the time budget of the tick is spent, continuing on the next
+ * tick. Jobs are created by an {@link AreaEditor}.
+ */
+public class EditJob implements Runnable {
+
+    /**
+     * The amount of blocks walked between checks of the clock.
+     */
+    private static final int CLOCK_INTERVAL = 64;
+
+    private final Plugin plugin;
+
+    private final World world;
+
+    private final Spliterator.OfLong positions;
+
+    private final Material match;
+
+    private final Material type;
+
+    private final long budget;
+
+    private final long total;
+
+    private final CompletableFuture<Long> future = new CompletableFuture<Long>();
+
+    private volatile long visited;
+
+    private volatile long changed;
+
+    private volatile int ticks;
+
+    private int task = -1;
+
+    private final LongConsumer edit = this::edit;
+
+    /**
+     * Creates a job setting the blocks of the area to the type specified.
+     *
+     * @param match
+     *            The type of the blocks to change, or null to change every
+     *            block.
+     * @param budget
+     *            The time the job may spend every tick, in nanoseconds.
+     */
+    EditJob(final Plugin plugin, final Area area, final Material match,
+            final Material type, final long budget) {
+        this.plugin = plugin;
+        world = area.getWorld();
+        positions = area.getPositions();
+        total = area.getTotalBlocks();
+        this.match = match;
+        this.type = type;
+        this.budget = budget;
+    }
+
+    /**
+     * Stops the job before its next tick. Blocks already changed stay
+     * changed.
+     *
+     * @return True if the job was cancelled; false if it had already
+     *         completed.
+     */
+    public boolean cancel() {
+        return future.cancel(false);
+    }
+
+    /**
+     * Changes the block at the packed position.
+     */
+    private void edit(final long position) {
+        final Block block = world.getBlockAt(BlockPositions.getX(position),
+                BlockPositions.getY(position), BlockPositions.getZ(position));
+        final Material current = block.getType();
+        if (current != type && (match == null || current == match)) {
+            block.setType(type);
+            changed++;
+        }
+        visited++;
+    }
+
+    /**
+     * The average amount of blocks walked every tick the job has run.
+     *
+     * @return The amount of blocks walked per tick.
+     */
+    public double getBlocksPerTick() {
+        final int ticks = this.ticks;
+        return ticks == 0 ? 0 : (double) visited / ticks;
+    }
+
+    /**
+     * The amount of blocks changed so far.
+     *
+     * @return The amount of blocks changed.
+     */
+    public long getChangedBlocks() {
+        return changed;
+    }
+
+    /**
+     * The future completed with the amount of blocks changed once the whole
+     * area has been walked. Cancelling it cancels the job.
+     *
+     * @return The future of the job.
+     */
+    public CompletableFuture<Long> getFuture() {
+        return future;
+    }
+
+    /**
+     * The fraction of the area walked so far.
+     *
+     * @return The progress of the job, from 0 to 1.
+     */
+    public double getProgress() {
+        return total == 0 ? 1 : Math.min(1, (double) visited / total);
+    }
+
+    /**
+     * The amount of ticks the job has run for.
+     *
+     * @return The amount of ticks.
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * The amount of blocks walked so far.
+     *
+     * @return The amount of blocks walked.
+     */
+    public long getVisitedBlocks() {
+        return visited;
+    }
+
+    /**
+     * Checks if the job has completed or been cancelled.
+     *
+     * @return True if the job is no longer running; otherwise false.
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Changes blocks until the budget of the tick is spent.
+     */
+    @Override
+    public void run() {
+        if (!future.isDone()) {
+            final long begin = System.nanoTime();
+            final long end = begin + budget;
+            final long visited = this.visited;
+            final long changed = this.changed;
+            boolean more = true;
+            try {
+                do {
+                    for (int i = 0; i < EditJob.CLOCK_INTERVAL && more; i++) {
+                        more = positions.tryAdvance(edit);
+                    }
+                } while (more && System.nanoTime() < end);
+            } catch (final RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            ticks++;
+            if (AreaMetrics.isEnabled()) {
+                AreaMetrics.recordEdit(this.visited - visited, this.changed
+                        - changed, System.nanoTime() - begin, !more);
+            }
+            if (!more) {
+                future.complete(this.changed);
+            }
+        }
+        if (future.isDone() && task != -1) {
+            plugin.getServer().getScheduler().cancelTask(task);
+            task = -1;
+        }
+    }
+
+    /**
+     * Runs the first slice of the job right away and schedules the rest.
+     */
+    EditJob start() {
+        this.run();
+        if (!future.isDone()) {
+            task = plugin.getServer().getScheduler()
+                    .scheduleSyncRepeatingTask(plugin, this, 1, 1);
+        }
+        return this;
+    }
+}
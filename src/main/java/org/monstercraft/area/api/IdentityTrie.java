@@ -0,0 +1,238 @@
+package org.monstercraft.area.api;
+
+/**
+ * A map from keys, compared by identity, to values which can be copied in
+ * constant time. The map is a hash array mapped trie on the identity hash
+ * codes of the keys: a copy shares every node with the map it was copied
+ * from, and a change only copies the nodes on the path to the key it changes.
+ * Changing either map afterwards never changes the other, so a copy which is
+ * no longer changed can be read from other threads once it is safely
+ * published.
+ */
+final class IdentityTrie<K, V> {
+
+    /**
+     * A node of the trie. Two slots are held for every bit set within the
+     * bitmap: a key and its value, or null and the node one level down.
+     * Nodes below the last level of hash bits hold every key whose hash
+     * collides as a plain list of pairs instead.
+     */
+    private static final class Node {
+
+        final Object owner;
+
+        int bitmap;
+
+        Object[] slots;
+
+        Node(final Object owner, final int bitmap, final Object[] slots) {
+            this.owner = owner;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    private static final int BITS = 5;
+
+    private static int index(final int bitmap, final int bit) {
+        return 2 * Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static Object[] insert(final Object[] slots, final int index,
+            final Object key, final Object value) {
+        final Object[] grown = new Object[slots.length + 2];
+        System.arraycopy(slots, 0, grown, 0, index);
+        grown[index] = key;
+        grown[index + 1] = value;
+        System.arraycopy(slots, index, grown, index + 2, slots.length - index);
+        return grown;
+    }
+
+    private static Object[] remove(final Object[] slots, final int index) {
+        final Object[] shrunk = new Object[slots.length - 2];
+        System.arraycopy(slots, 0, shrunk, 0, index);
+        System.arraycopy(slots, index + 2, shrunk, index, shrunk.length
+                - index);
+        return shrunk;
+    }
+
+    /**
+     * The token marking the nodes this map may change in place. Nodes with
+     * any other owner may be shared with a copy, and are copied first.
+     */
+    private Object owner = new Object();
+
+    private Node root;
+
+    private int size;
+
+    IdentityTrie() {
+    }
+
+    private IdentityTrie(final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Copies the map. Both maps copy the nodes they share before changing
+     * them.
+     */
+    IdentityTrie<K, V> copy() {
+        owner = new Object();
+        return new IdentityTrie<K, V>(root, size);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(final K key) {
+        final int hash = System.identityHashCode(key);
+        Node node = root;
+        for (int shift = 0; node != null; shift += IdentityTrie.BITS) {
+            final Object[] slots = node.slots;
+            if (shift >= Integer.SIZE) {
+                for (int i = 0; i < slots.length; i += 2) {
+                    if (slots[i] == key) {
+                        return (V) slots[i + 1];
+                    }
+                }
+                return null;
+            }
+            final int bit = 1 << (hash >>> shift & 31);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            final int i = IdentityTrie.index(node.bitmap, bit);
+            if (slots[i] != null) {
+                return slots[i] == key ? (V) slots[i + 1] : null;
+            }
+            node = (Node) slots[i + 1];
+        }
+        return null;
+    }
+
+    /**
+     * Fetches the node if this map owns it, and otherwise a copy it owns.
+     */
+    private Node own(final Node node) {
+        return node.owner == owner ? node : new Node(owner, node.bitmap,
+                node.slots.clone());
+    }
+
+    /**
+     * Maps the key to the value, replacing any value it had.
+     */
+    void put(final K key, final V value) {
+        root = this.put(root, key, System.identityHashCode(key), value, 0);
+    }
+
+    private Node put(final Node node, final Object key, final int hash,
+            final Object value, final int shift) {
+        if (node == null) {
+            size++;
+            if (shift >= Integer.SIZE) {
+                return new Node(owner, 0, new Object[] { key, value });
+            }
+            return new Node(owner, 1 << (hash >>> shift & 31), new Object[] {
+                    key, value });
+        }
+        final Node owned = this.own(node);
+        if (shift >= Integer.SIZE) {
+            for (int i = 0; i < owned.slots.length; i += 2) {
+                if (owned.slots[i] == key) {
+                    owned.slots[i + 1] = value;
+                    return owned;
+                }
+            }
+            owned.slots = IdentityTrie.insert(owned.slots,
+                    owned.slots.length, key, value);
+            size++;
+            return owned;
+        }
+        final int bit = 1 << (hash >>> shift & 31);
+        final int i = IdentityTrie.index(owned.bitmap, bit);
+        if ((owned.bitmap & bit) == 0) {
+            owned.slots = IdentityTrie.insert(owned.slots, i, key, value);
+            owned.bitmap |= bit;
+            size++;
+        } else if (owned.slots[i] == null) {
+            owned.slots[i + 1] = this.put((Node) owned.slots[i + 1], key,
+                    hash, value, shift + IdentityTrie.BITS);
+        } else if (owned.slots[i] == key) {
+            owned.slots[i + 1] = value;
+        } else {
+            // Push the key already here one level down, next to the new key
+            final Object other = owned.slots[i];
+            Node child = this.put(null, other, System.identityHashCode(other),
+                    owned.slots[i + 1], shift + IdentityTrie.BITS);
+            size--;
+            child = this.put(child, key, hash, value, shift + IdentityTrie.BITS);
+            owned.slots[i] = null;
+            owned.slots[i + 1] = child;
+        }
+        return owned;
+    }
+
+    /**
+     * Removes the key.
+     */
+    void remove(final K key) {
+        root = this.remove(root, key, System.identityHashCode(key), 0);
+    }
+
+    private Node remove(final Node node, final Object key, final int hash,
+            final int shift) {
+        if (node == null) {
+            return null;
+        }
+        if (shift >= Integer.SIZE) {
+            for (int i = 0; i < node.slots.length; i += 2) {
+                if (node.slots[i] == key) {
+                    size--;
+                    if (node.slots.length == 2) {
+                        return null;
+                    }
+                    final Node owned = this.own(node);
+                    owned.slots = IdentityTrie.remove(owned.slots, i);
+                    return owned;
+                }
+            }
+            return node;
+        }
+        final int bit = 1 << (hash >>> shift & 31);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        final int i = IdentityTrie.index(node.bitmap, bit);
+        if (node.slots[i] == null) {
+            final Node child = (Node) node.slots[i + 1];
+            final Node changed = this.remove(child, key, hash, shift
+                    + IdentityTrie.BITS);
+            if (changed == child) {
+                return node;
+            }
+            final Node owned = this.own(node);
+            if (changed != null) {
+                owned.slots[i + 1] = changed;
+                return owned;
+            }
+            owned.slots = IdentityTrie.remove(owned.slots, i);
+            owned.bitmap &= ~bit;
+            return owned.bitmap == 0 ? null : owned;
+        }
+        if (node.slots[i] != key) {
+            return node;
+        }
+        size--;
+        if (node.bitmap == bit) {
+            return null;
+        }
+        final Node owned = this.own(node);
+        owned.slots = IdentityTrie.remove(owned.slots, i);
+        owned.bitmap &= ~bit;
+        return owned;
+    }
+
+    int size() {
+        return size;
+    }
+}
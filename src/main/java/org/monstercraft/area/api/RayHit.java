@@ -0,0 +1,69 @@
+package org.monstercraft.area.api;
+
+import org.monstercraft.area.api.wrappers.Area;
+
+/**
+ * Where a ray passes through an area. Distances are measured in blocks along
+ * the ray from its origin.
+ */
+public final class RayHit {
+
+    private final Area area;
+
+    private final double entry;
+
+    private final double exit;
+
+    /**
+     * Creates a hit.
+     *
+     * @param area
+     *            The area the ray passes through.
+     * @param entry
+     *            The distance at which the ray enters the area, 0 if it starts
+     *            within the area.
+     * @param exit
+     *            The distance at which the ray first leaves the area, or the
+     *            length of the ray if it ends within the area.
+     */
+    public RayHit(final Area area, final double entry, final double exit) {
+        this.area = area;
+        this.entry = entry;
+        this.exit = exit;
+    }
+
+    /**
+     * The area the ray passes through.
+     *
+     * @return The area.
+     */
+    public Area getArea() {
+        return area;
+    }
+
+    /**
+     * The distance at which the ray enters the area.
+     *
+     * @return The distance from the origin of the ray, 0 if it starts within
+     *         the area.
+     */
+    public double getEntry() {
+        return entry;
+    }
+
+    /**
+     * The distance at which the ray first leaves the area. Rays leaving an
+     * area which is not convex may enter it again further on.
+     *
+     * @return The distance from the origin of the ray, or the length of the
+     *         ray if it ends within the area.
+     */
+    public double getExit() {
+        return exit;
+    }
+
+    @Override
+    public String toString() {
+        return "RayHit[" + area + ", " + entry + " to " + exit + "]";
+    }
+}
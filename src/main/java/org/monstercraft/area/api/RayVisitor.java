@@ -0,0 +1,16 @@
+package org.monstercraft.area.api;
+
+/**
+ * Visits the areas a ray passes through, in the order the ray enters them.
+ */
+public interface RayVisitor {
+
+    /**
+     * Visits an area the ray passes through.
+     *
+     * @param hit
+     *            Where the ray passes through the area.
+     * @return True to continue to the next area along the ray; false to stop.
+     */
+    boolean visit(RayHit hit);
+}
@@ -0,0 +1,23 @@
+package org.monstercraft.area.api;
+
+/**
+ * Visits the vertical runs of blocks an area is made of, one run at a time.
+ */
+public interface RunVisitor {
+
+    /**
+     * Visits a run of blocks within a single column which are all within
+     * the area.
+     *
+     * @param x
+     *            The X coordinate of the column.
+     * @param z
+     *            The Z coordinate of the column.
+     * @param minY
+     *            The lowest Y coordinate of the run.
+     * @param maxY
+     *            The highest Y coordinate of the run.
+     * @return True to continue to the next run; false to stop.
+     */
+    boolean visit(int x, int z, int minY, int maxY);
+}
@@ -0,0 +1,52 @@
+package org.monstercraft.area.api.event;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerEvent;
+import org.monstercraft.area.api.wrappers.Area;
+
+/**
+ * An event involving a player and one of the areas registered with AreaAPI.
+ */
+public abstract class AreaEvent extends PlayerEvent {
+
+    private final Area area;
+
+    private final Location location;
+
+    /**
+     * Creates an event for the player and the area.
+     *
+     * @param player
+     *            The player involved.
+     * @param area
+     *            The area involved.
+     * @param location
+     *            The location the player moved to.
+     */
+    protected AreaEvent(final Player player, final Area area,
+            final Location location) {
+        super(player);
+        this.area = area;
+        this.location = location;
+    }
+
+    /**
+     * The area involved in the event.
+     *
+     * @return The area.
+     */
+    public Area getArea() {
+        return area;
+    }
+
+    /**
+     * The location the player moved to. During a move the player is still
+     * reported at the location they moved from.
+     *
+     * @return The location the player moved to.
+     */
+    public Location getLocation() {
+        return location;
+    }
+}
@@ -0,0 +1,38 @@
+package org.monstercraft.area.api.event;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.monstercraft.area.api.wrappers.Area;
+
+/**
+ * Called when a player moves out of an area registered with AreaAPI.
+ */
+public class AreaLeaveEvent extends AreaEvent {
+
+    private static final HandlerList handlers = new HandlerList();
+
+    public static HandlerList getHandlerList() {
+        return AreaLeaveEvent.handlers;
+    }
+
+    /**
+     * Creates an event for the player and the area they left.
+     *
+     * @param player
+     *            The player who left the area.
+     * @param area
+     *            The area left.
+     * @param location
+     *            The location the player moved to.
+     */
+    public AreaLeaveEvent(final Player player, final Area area,
+            final Location location) {
+        super(player, area, location);
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return AreaLeaveEvent.handlers;
+    }
+}
@@ -0,0 +1,127 @@
+package org.monstercraft.area.api.util;
+
+import java.util.Arrays;
+
+/**
+ * Packs block coordinates into primitive longs. X and Z use 26 bits and Y
+ * uses 12 bits, which covers every block of a Minecraft world.
+ */
+public class BlockPositions {
+
+    private static final long CHUNK_OFFSET = 1L << 21;
+
+    private static final int Y_OFFSET = 1 << 11;
+
+    /**
+     * Packs the block coordinates.
+     *
+     * @param x
+     *            The X coordinate.
+     * @param y
+     *            The Y coordinate.
+     * @param z
+     *            The Z coordinate.
+     * @return The packed position.
+     */
+    public static long pack(final int x, final int y, final int z) {
+        return ((x & 0x3FFFFFFL) << 38) | ((z & 0x3FFFFFFL) << 12)
+                | (y & 0xFFFL);
+    }
+
+    /**
+     * Unpacks the X coordinate.
+     *
+     * @param packed
+     *            The packed position.
+     * @return The X coordinate.
+     */
+    public static int getX(final long packed) {
+        return (int) (packed >> 38);
+    }
+
+    /**
+     * Unpacks the Y coordinate.
+     *
+     * @param packed
+     *            The packed position.
+     * @return The Y coordinate.
+     */
+    public static int getY(final long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    /**
+     * Unpacks the Z coordinate.
+     *
+     * @param packed
+     *            The packed position.
+     * @return The Z coordinate.
+     */
+    public static int getZ(final long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    /**
+     * Fetches the key of the chunk the packed position is in.
+     *
+     * @param packed
+     *            The packed position.
+     * @return The chunk key, as created by {@link ChunkKeys#pack(int, int)}.
+     */
+    public static long getChunk(final long packed) {
+        return ChunkKeys.pack(BlockPositions.getX(packed) >> 4,
+                BlockPositions.getZ(packed) >> 4);
+    }
+
+    /**
+     * Converts a packed position into a key whose natural order walks the
+     * blocks chunk by chunk: by chunk Z, chunk X, then Y, Z and X within the
+     * chunk.
+     */
+    private static long toChunkOrder(final long packed) {
+        final int x = BlockPositions.getX(packed);
+        final int y = BlockPositions.getY(packed);
+        final int z = BlockPositions.getZ(packed);
+        final long key = (((z >> 4) + BlockPositions.CHUNK_OFFSET) << 42)
+                | (((x >> 4) + BlockPositions.CHUNK_OFFSET) << 20)
+                | ((long) (y + BlockPositions.Y_OFFSET) << 8)
+                | ((z & 15) << 4) | (x & 15);
+        // Flip the sign bit so that a signed sort gives the unsigned order
+        return key ^ Long.MIN_VALUE;
+    }
+
+    private static long fromChunkOrder(long key) {
+        key ^= Long.MIN_VALUE;
+        final int x = (int) (((key >>> 20) & 0x3FFFFF) - BlockPositions.CHUNK_OFFSET) << 4
+                | (int) (key & 15);
+        final int z = (int) ((key >>> 42) - BlockPositions.CHUNK_OFFSET) << 4
+                | (int) ((key >>> 4) & 15);
+        final int y = (int) ((key >>> 8) & 0xFFF) - BlockPositions.Y_OFFSET;
+        return BlockPositions.pack(x, y, z);
+    }
+
+    /**
+     * Sorts the packed positions so they are visited chunk by chunk, and
+     * within each chunk by Y, then Z, then X.
+     *
+     * @param positions
+     *            The packed positions to sort.
+     * @param from
+     *            The first index to sort, inclusive.
+     * @param to
+     *            The last index to sort, exclusive.
+     */
+    public static void sortByChunk(final long[] positions, final int from,
+            final int to) {
+        for (int i = from; i < to; i++) {
+            positions[i] = BlockPositions.toChunkOrder(positions[i]);
+        }
+        Arrays.sort(positions, from, to);
+        for (int i = from; i < to; i++) {
+            positions[i] = BlockPositions.fromChunkOrder(positions[i]);
+        }
+    }
+
+    private BlockPositions() {
+    }
+}
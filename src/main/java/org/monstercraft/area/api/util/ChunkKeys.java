@@ -0,0 +1,96 @@
+package org.monstercraft.area.api.util;
+
+/**
+ * Packs chunk coordinates into primitive longs so they can be used as keys
+ * without allocating.
+ */
+public class ChunkKeys {
+
+    private static final int COORD_BITS = 22;
+
+    private static final long COORD_MASK = (1L << ChunkKeys.COORD_BITS) - 1;
+
+    /**
+     * The maximum world id which can be packed into a world qualified key.
+     */
+    public static final int MAX_WORLD_ID = (1 << (64 - 2 * ChunkKeys.COORD_BITS)) - 1;
+
+    /**
+     * Fetches the chunk coordinate of a block coordinate.
+     *
+     * @param block
+     *            The block coordinate.
+     * @return The chunk coordinate.
+     */
+    public static int toChunk(final int block) {
+        return block >> 4;
+    }
+
+    /**
+     * Fetches the chunk coordinate of a location coordinate.
+     *
+     * @param coord
+     *            The location coordinate.
+     * @return The chunk coordinate.
+     */
+    public static int toChunk(final double coord) {
+        return ChunkKeys.toChunk((int) Math.floor(coord));
+    }
+
+    /**
+     * Packs the chunk coordinates into a key.
+     *
+     * @param x
+     *            The chunk X coordinate.
+     * @param z
+     *            The chunk Z coordinate.
+     * @return The packed key.
+     */
+    public static long pack(final int x, final int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Packs the world id and chunk coordinates into a single key. Chunk
+     * coordinates must fit within 22 bits, which covers the whole of a
+     * Minecraft world.
+     *
+     * @param world
+     *            The world id, between 0 and {@link #MAX_WORLD_ID}.
+     * @param x
+     *            The chunk X coordinate.
+     * @param z
+     *            The chunk Z coordinate.
+     * @return The packed key.
+     */
+    public static long pack(final int world, final int x, final int z) {
+        return ((long) world << (2 * ChunkKeys.COORD_BITS))
+                | ((x & ChunkKeys.COORD_MASK) << ChunkKeys.COORD_BITS)
+                | (z & ChunkKeys.COORD_MASK);
+    }
+
+    /**
+     * Unpacks the chunk X coordinate of a key created by {@link #pack(int, int)}.
+     *
+     * @param key
+     *            The packed key.
+     * @return The chunk X coordinate.
+     */
+    public static int getX(final long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Unpacks the chunk Z coordinate of a key created by {@link #pack(int, int)}.
+     *
+     * @param key
+     *            The packed key.
+     * @return The chunk Z coordinate.
+     */
+    public static int getZ(final long key) {
+        return (int) key;
+    }
+
+    private ChunkKeys() {
+    }
+}
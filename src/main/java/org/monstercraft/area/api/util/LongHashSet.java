@@ -0,0 +1,132 @@
+package org.monstercraft.area.api.util;
+
+/**
+ * An open addressing hash set of primitive longs. Values are never boxed,
+ * which keeps membership checks free of allocation.
+ */
+public class LongHashSet {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * The value marking a free slot. It is tracked separately when added.
+     */
+    private static final long FREE = 0;
+
+    private long[] slots;
+
+    private int size;
+
+    private int mask;
+
+    private int resizeAt;
+
+    private boolean containsFree;
+
+    /**
+     * Creates a set with the default capacity.
+     */
+    public LongHashSet() {
+        this(LongHashSet.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a set able to hold the amount of values specified without
+     * resizing.
+     *
+     * @param expected
+     *            The expected amount of values.
+     */
+    public LongHashSet(final int expected) {
+        int capacity = LongHashSet.DEFAULT_CAPACITY;
+        while (capacity * LongHashSet.LOAD_FACTOR < expected) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    /**
+     * Adds the value to the set.
+     *
+     * @param value
+     *            The value to add.
+     * @return True if the value was not already within the set; otherwise
+     *         false.
+     */
+    public boolean add(final long value) {
+        if (value == LongHashSet.FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int slot = LongObjectHashMap.hash(value) & mask;
+        long existing;
+        while ((existing = slots[slot]) != LongHashSet.FREE) {
+            if (existing == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        if (++size > resizeAt) {
+            this.rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    private void allocate(final int capacity) {
+        slots = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LongHashSet.LOAD_FACTOR);
+    }
+
+    /**
+     * Checks if the set contains the value.
+     *
+     * @param value
+     *            The value to check.
+     * @return True if the set contains the value; otherwise false.
+     */
+    public boolean contains(final long value) {
+        if (value == LongHashSet.FREE) {
+            return containsFree;
+        }
+        int slot = LongObjectHashMap.hash(value) & mask;
+        long existing;
+        while ((existing = slots[slot]) != LongHashSet.FREE) {
+            if (existing == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] old = slots;
+        this.allocate(capacity);
+        for (final long value : old) {
+            if (value != LongHashSet.FREE) {
+                int slot = LongObjectHashMap.hash(value) & mask;
+                while (slots[slot] != LongHashSet.FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * The amount of values within the set.
+     *
+     * @return The amount of values.
+     */
+    public int size() {
+        return size;
+    }
+}
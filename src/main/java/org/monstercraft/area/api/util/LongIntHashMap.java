@@ -0,0 +1,143 @@
+package org.monstercraft.area.api.util;
+
+/**
+ * An open addressing hash map from primitive longs to primitive ints. Neither
+ * keys nor values are boxed, so the map costs twelve bytes a slot.
+ */
+public class LongIntHashMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * The key marking a free slot. It is tracked separately when added.
+     */
+    private static final long FREE = 0;
+
+    private long[] keys;
+
+    private int[] values;
+
+    private int size;
+
+    private int mask;
+
+    private int resizeAt;
+
+    private boolean containsFree;
+
+    private int freeValue;
+
+    /**
+     * Creates a map with the default capacity.
+     */
+    public LongIntHashMap() {
+        this(LongIntHashMap.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a map able to hold the amount of entries specified without
+     * resizing.
+     *
+     * @param expected
+     *            The expected amount of entries.
+     */
+    public LongIntHashMap(final int expected) {
+        int capacity = LongIntHashMap.DEFAULT_CAPACITY;
+        while (capacity * LongIntHashMap.LOAD_FACTOR < expected) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LongIntHashMap.LOAD_FACTOR);
+    }
+
+    /**
+     * Fetches the value mapped to the key.
+     *
+     * @param key
+     *            The key.
+     * @param missing
+     *            The value to return when the key is not mapped.
+     * @return The value mapped to the key, or the missing value if there is
+     *         none.
+     */
+    public int get(final long key, final int missing) {
+        if (key == LongIntHashMap.FREE) {
+            return containsFree ? freeValue : missing;
+        }
+        int slot = LongObjectHashMap.hash(key) & mask;
+        long existing;
+        while ((existing = keys[slot]) != LongIntHashMap.FREE) {
+            if (existing == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Maps the key to the value, replacing any value already mapped to it.
+     *
+     * @param key
+     *            The key.
+     * @param value
+     *            The value.
+     */
+    public void put(final long key, final int value) {
+        if (key == LongIntHashMap.FREE) {
+            if (!containsFree) {
+                containsFree = true;
+                size++;
+            }
+            freeValue = value;
+            return;
+        }
+        int slot = LongObjectHashMap.hash(key) & mask;
+        long existing;
+        while ((existing = keys[slot]) != LongIntHashMap.FREE) {
+            if (existing == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            this.rehash(keys.length << 1);
+        }
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != LongIntHashMap.FREE) {
+                int slot = LongObjectHashMap.hash(oldKeys[i]) & mask;
+                while (keys[slot] != LongIntHashMap.FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * The amount of entries within the map.
+     *
+     * @return The amount of entries.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,243 @@
+package org.monstercraft.area.api.util;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive longs to objects. Keys are never
+ * boxed, which keeps lookups on hot paths free of allocation. Null values are
+ * not permitted.
+ *
+ * @param <V>
+ *            The type of the values.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * Spreads the bits of the key so that packed coordinates which only differ
+     * in their low bits do not collide.
+     *
+     * @param key
+     *            The key to hash.
+     * @return The mixed hash of the key.
+     */
+    public static int hash(final long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h ^= h >>> 16;
+        return (int) h;
+    }
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    private int mask;
+
+    private int resizeAt;
+
+    /**
+     * Creates a map with the default capacity.
+     */
+    public LongObjectHashMap() {
+        this(LongObjectHashMap.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a map able to hold the amount of entries specified without
+     * resizing.
+     *
+     * @param expected
+     *            The expected amount of entries.
+     */
+    public LongObjectHashMap(final int expected) {
+        this.allocate(LongObjectHashMap.capacityFor(expected));
+    }
+
+    private static int capacityFor(final int expected) {
+        int capacity = LongObjectHashMap.DEFAULT_CAPACITY;
+        while (capacity * LongObjectHashMap.LOAD_FACTOR < expected) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LongObjectHashMap.LOAD_FACTOR);
+    }
+
+    /**
+     * Removes all of the entries from the map.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Checks if the map contains the key.
+     *
+     * @param key
+     *            The key to check.
+     * @return True if the map contains the key; otherwise false.
+     */
+    public boolean containsKey(final long key) {
+        return this.get(key) != null;
+    }
+
+    /**
+     * Fetches the value mapped to the key.
+     *
+     * @param key
+     *            The key to fetch.
+     * @return The value mapped to the key, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        int slot = LongObjectHashMap.hash(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the map is empty.
+     *
+     * @return True if the map has no entries; otherwise false.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Fetches a copy of the keys within the map.
+     *
+     * @return The keys within the map.
+     */
+    public long[] keys() {
+        final long[] out = new long[size];
+        int i = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                out[i++] = keys[slot];
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Maps the key to the value.
+     *
+     * @param key
+     *            The key.
+     * @param value
+     *            The value, which may not be null.
+     * @return The value previously mapped to the key, or null if there was
+     *         none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final long key, final V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        int slot = LongObjectHashMap.hash(key) & mask;
+        Object existing;
+        while ((existing = values[slot]) != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return (V) existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            this.rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = LongObjectHashMap.hash(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Removes the key from the map.
+     *
+     * @param key
+     *            The key to remove.
+     * @return The value which was mapped to the key, or null if there was
+     *         none.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final long key) {
+        int slot = LongObjectHashMap.hash(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                this.shiftBack(slot);
+                size--;
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Closes the gap left by a removed entry so that probing never stops
+     * early on an empty slot.
+     */
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            final int ideal = LongObjectHashMap.hash(keys[slot]) & mask;
+            // Move the entry into the gap if the gap lies between its ideal
+            // slot and where it currently sits
+            if (((slot - ideal) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    /**
+     * The amount of entries within the map.
+     *
+     * @return The amount of entries.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -1,20 +1,264 @@
 package org.monstercraft.area.api.wrappers;
 
+import java.nio.BufferOverflowException;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+import org.monstercraft.area.api.BlockVisitor;
+import org.monstercraft.area.api.ChunkSlice;
+import org.monstercraft.area.api.ChunkSliceVisitor;
 import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.RayHit;
 import org.monstercraft.area.api.exception.InvalidDirectionException;
+import org.monstercraft.area.api.util.BlockPositions;
+import org.monstercraft.area.api.util.ChunkKeys;
+import org.monstercraft.area.metrics.AreaMetrics;
+
+public abstract class Area implements Iterable<Block> {
+
+    /**
+     * The highest block coordinate at or below the value.
+     */
+    static int blockMax(final double value) {
+        return (int) Math.floor(value);
+    }
+
+    /**
+     * The lowest block coordinate at or above the value.
+     */
+    static int blockMin(final double value) {
+        return (int) Math.ceil(value);
+    }
+
+    /**
+     * Clips a ray to a box using the slab method: the ray is cut down to the
+     * part between the planes bounding every axis in turn. Infinite bounds
+     * leave an axis unbounded.
+     *
+     * @return Where the ray passes through the box, or null if it misses.
+     */
+    static RayHit clip(final Area area, final double ox, final double oy,
+            final double oz, final double dx, final double dy,
+            final double dz, final double maxDistance, final double minx,
+            final double miny, final double minz, final double maxx,
+            final double maxy, final double maxz) {
+        double t0 = 0;
+        double t1 = maxDistance;
+        if (dx != 0) {
+            final double a = (minx - ox) / dx;
+            final double b = (maxx - ox) / dx;
+            t0 = Math.max(t0, Math.min(a, b));
+            t1 = Math.min(t1, Math.max(a, b));
+        } else if (ox < minx || ox > maxx) {
+            return null;
+        }
+        if (dy != 0) {
+            final double a = (miny - oy) / dy;
+            final double b = (maxy - oy) / dy;
+            t0 = Math.max(t0, Math.min(a, b));
+            t1 = Math.min(t1, Math.max(a, b));
+        } else if (oy < miny || oy > maxy) {
+            return null;
+        }
+        if (dz != 0) {
+            final double a = (minz - oz) / dz;
+            final double b = (maxz - oz) / dz;
+            t0 = Math.max(t0, Math.min(a, b));
+            t1 = Math.min(t1, Math.max(a, b));
+        } else if (oz < minz || oz > maxz) {
+            return null;
+        }
+        if (t0 > t1) {
+            return null;
+        }
+        return new RayHit(area, t0, t1);
+    }
+
+    /**
+     * The distance from the value to the range, or 0 if it is within the
+     * range.
+     */
+    static double gap(final double value, final double min, final double max) {
+        return Math.max(Math.max(min - value, 0), value - max);
+    }
+
+    /**
+     * The block coordinate a ray moving along the axis is within at the value.
+     * A ray on the edge between two blocks is within the block it moves into.
+     */
+    private static int voxel(final double value, final double direction) {
+        final double floor = Math.floor(value);
+        return (int) (direction < 0 && floor == value ? floor - 1 : floor);
+    }
+
+    /**
+     * The amount of block coordinates between the values, inclusive.
+     */
+    static int count(final int min, final int max) {
+        return Math.max(0, max - min + 1);
+    }
+
+    /**
+     * Checks which of the positions are within the box between the bounds,
+     * inclusive. The checks are made without branching so the loop stays
+     * tight.
+     */
+    static int containsAll(final double[] xs, final double[] ys,
+            final double[] zs, final BitSet out, final double minx,
+            final double miny, final double minz, final double maxx,
+            final double maxy, final double maxz) {
+        final int length = Area.lengthOf(xs.length, ys.length, zs.length);
+        int count = 0;
+        for (int from = 0; from < length; from += 64) {
+            final int to = Math.min(length, from + 64);
+            long word = 0;
+            for (int i = from; i < to; i++) {
+                final double x = xs[i];
+                final double y = ys[i];
+                final double z = zs[i];
+                final boolean inside = x >= minx & x <= maxx & y >= miny
+                        & y <= maxy & z >= minz & z <= maxz;
+                word |= (inside ? 1L : 0L) << i - from;
+            }
+            count += Area.record(out, from, to, word);
+        }
+        return count;
+    }
+
+    /**
+     * Checks which of the blocks are within the box between the block
+     * bounds, inclusive.
+     */
+    static int containsAll(final int[] xs, final int[] ys, final int[] zs,
+            final BitSet out, final int minx, final int miny, final int minz,
+            final int maxx, final int maxy, final int maxz) {
+        final int length = Area.lengthOf(xs.length, ys.length, zs.length);
+        int count = 0;
+        for (int from = 0; from < length; from += 64) {
+            final int to = Math.min(length, from + 64);
+            long word = 0;
+            for (int i = from; i < to; i++) {
+                final int x = xs[i];
+                final int y = ys[i];
+                final int z = zs[i];
+                final boolean inside = x >= minx & x <= maxx & y >= miny
+                        & y <= maxy & z >= minz & z <= maxz;
+                word |= (inside ? 1L : 0L) << i - from;
+            }
+            count += Area.record(out, from, to, word);
+        }
+        return count;
+    }
 
-public abstract class Area {
+    /**
+     * The length shared by the coordinate arrays.
+     */
+    private static int lengthOf(final int xs, final int ys, final int zs) {
+        if (xs != ys || xs != zs) {
+            throw new IllegalArgumentException(
+                    "Coordinate arrays differ in length");
+        }
+        return xs;
+    }
+
+    /**
+     * Copies the results of up to 64 checks, one bit each, into the set.
+     *
+     * @return The amount of checks which passed.
+     */
+    private static int record(final BitSet out, final int from, final int to,
+            final long word) {
+        out.clear(from, to);
+        for (long bits = word; bits != 0; bits &= bits - 1) {
+            out.set(from + Long.numberOfTrailingZeros(bits));
+        }
+        return Long.bitCount(word);
+    }
+
+    /**
+     * The exact amount of positions within the spliterator.
+     */
+    private static int sizeOf(final Spliterator.OfLong positions) {
+        final long size = positions.getExactSizeIfKnown();
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The area is too large to export");
+        }
+        return (int) size;
+    }
 
+    /**
+     * Collects the blocks of the spliterator into an array of its exact size.
+     */
+    static Block[] toArray(final World world,
+            final Spliterator.OfLong positions) {
+        final boolean timed = AreaMetrics.isEnabled();
+        final long start = timed ? System.nanoTime() : 0;
+        final Block[] blocks = new Block[Area.sizeOf(positions)];
+        final int[] i = new int[1];
+        positions.forEachRemaining((long p) -> {
+            blocks[i[0]++] = world.getBlockAt(BlockPositions.getX(p),
+                    BlockPositions.getY(p), BlockPositions.getZ(p));
+        });
+        if (timed) {
+            AreaMetrics.recordBlocks(blocks.length, System.nanoTime() - start);
+        }
+        return blocks;
+    }
+
+    /**
+     * Checks if every block of the area specified is within this area. Box
+     * shaped areas are compared using their bounds alone. Other areas have
+     * their blocks checked one at a time, stopping at the first block outside
+     * of this area.
+     *
+     * @param area
+     *            The area to check.
+     * @return True if this area contains every block of the area; otherwise
+     *         false.
+     */
     public boolean contains(final Area area) {
-        if (area.getBlocks().length > this.getBlocks().length) {
+        if (!area.getWorld().equals(this.getWorld())) {
             return false;
         }
-        for (final Block b : area.getBlocks()) {
-            if (!this.contains(b)) {
+        final int[] inner = area.getBlockBox();
+        if (inner != null) {
+            if (inner[0] > inner[3] || inner[1] > inner[4]
+                    || inner[2] > inner[5]) {
+                return true;
+            }
+            final int[] outer = this.getBlockBox();
+            if (outer != null) {
+                return outer[0] <= inner[0] && outer[1] <= inner[1]
+                        && outer[2] <= inner[2] && outer[3] >= inner[3]
+                        && outer[4] >= inner[4] && outer[5] >= inner[5];
+            }
+            // The corners of a box are blocks of it, so they must lie within
+            // the bounds of this area
+            if (inner[0] < this.getMinX() || inner[1] < this.getMinY()
+                    || inner[2] < this.getMinZ() || inner[3] > this.getMaxX()
+                    || inner[4] > this.getMaxY() || inner[5] > this.getMaxZ()) {
+                return false;
+            }
+        }
+        final Spliterator.OfLong positions = area.getPositions();
+        final boolean[] outside = new boolean[1];
+        final LongConsumer check = p -> outside[0] = !this.contains(
+                BlockPositions.getX(p), BlockPositions.getY(p),
+                BlockPositions.getZ(p));
+        while (positions.tryAdvance(check)) {
+            if (outside[0]) {
                 return false;
             }
         }
@@ -23,22 +267,613 @@ public abstract class Area {
 
     public abstract boolean contains(Block block);
 
+    /**
+     * Checks if the block at the coordinates, within the world of the area,
+     * is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    public boolean contains(final int x, final int y, final int z) {
+        return this.contains(this.getWorld().getBlockAt(x, y, z));
+    }
+
     public abstract boolean contains(Location location);
 
     public abstract boolean contains(Player block);
 
+    /**
+     * Checks which of the positions, within the world of the area, are within
+     * the area. The world is only looked up once for the whole batch.
+     *
+     * @param xs
+     *            The X coordinates of the positions.
+     * @param ys
+     *            The Y coordinates of the positions.
+     * @param zs
+     *            The Z coordinates of the positions.
+     * @param out
+     *            The set to record the results in. Bit i is set if the area
+     *            contains position i and cleared otherwise.
+     * @return The amount of positions within the area.
+     * @throws IllegalArgumentException
+     *             Thrown when the coordinate arrays differ in length.
+     */
+    public int containsAll(final double[] xs, final double[] ys,
+            final double[] zs, final BitSet out) {
+        final int length = Area.lengthOf(xs.length, ys.length, zs.length);
+        final Location location = new Location(this.getWorld(), 0, 0, 0);
+        int count = 0;
+        for (int from = 0; from < length; from += 64) {
+            final int to = Math.min(length, from + 64);
+            long word = 0;
+            for (int i = from; i < to; i++) {
+                location.setX(xs[i]);
+                location.setY(ys[i]);
+                location.setZ(zs[i]);
+                if (this.contains(location)) {
+                    word |= 1L << i - from;
+                }
+            }
+            count += Area.record(out, from, to, word);
+        }
+        return count;
+    }
+
+    /**
+     * Checks which of the blocks at the coordinates, within the world of the
+     * area, are within the area.
+     *
+     * @param xs
+     *            The X coordinates of the blocks.
+     * @param ys
+     *            The Y coordinates of the blocks.
+     * @param zs
+     *            The Z coordinates of the blocks.
+     * @param out
+     *            The set to record the results in. Bit i is set if the area
+     *            contains block i and cleared otherwise.
+     * @return The amount of blocks within the area.
+     * @throws IllegalArgumentException
+     *             Thrown when the coordinate arrays differ in length.
+     */
+    public int containsAll(final int[] xs, final int[] ys, final int[] zs,
+            final BitSet out) {
+        final int length = Area.lengthOf(xs.length, ys.length, zs.length);
+        int count = 0;
+        for (int from = 0; from < length; from += 64) {
+            final int to = Math.min(length, from + 64);
+            long word = 0;
+            for (int i = from; i < to; i++) {
+                if (this.contains(xs[i], ys[i], zs[i])) {
+                    word |= 1L << i - from;
+                }
+            }
+            count += Area.record(out, from, to, word);
+        }
+        return count;
+    }
+
+    /**
+     * Measures the distance from the location to the area. The distance is 0
+     * when the area contains the location, and otherwise the Euclidean
+     * distance to the closest point of the area. Areas made of blocks measure
+     * to the closest block, visiting the rows of their bounds from the one
+     * closest to the location outwards and stopping once no row can be
+     * closer.
+     *
+     * @param location
+     *            The location to measure from.
+     * @return The distance to the area, or infinity if the location is within
+     *         another world.
+     */
+    public double distanceTo(final Location location) {
+        if (!location.getWorld().equals(this.getWorld())) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (this.contains(location)) {
+            return 0;
+        }
+        final int y0 = Area.blockMin(this.getMinY());
+        final int y1 = Area.blockMax(this.getMaxY());
+        final int z0 = Area.blockMin(this.getMinZ());
+        final int z1 = Area.blockMax(this.getMaxZ());
+        if (y0 > y1 || z0 > z1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double x = location.getX();
+        final double y = location.getY();
+        final double z = location.getZ();
+        final int yc = Math.max(y0, Math.min(y1, (int) Math.floor(y)));
+        final int zc = Math.max(z0, Math.min(z1, (int) Math.floor(z)));
+        double best = Double.POSITIVE_INFINITY;
+        for (int by = yc; by >= y0; by--) {
+            final double dy = Area.gap(y, by, by + 1);
+            if (dy * dy >= best) {
+                break;
+            }
+            best = this.closestInLayer(x, z, by, dy * dy, z0, z1, zc, best);
+        }
+        for (int by = yc + 1; by <= y1; by++) {
+            final double dy = Area.gap(y, by, by + 1);
+            if (dy * dy >= best) {
+                break;
+            }
+            best = this.closestInLayer(x, z, by, dy * dy, z0, z1, zc, best);
+        }
+        return Math.sqrt(best);
+    }
+
+    /**
+     * The squared distance to the closest block of a layer, or the best
+     * distance so far if no block of the layer is closer.
+     */
+    private double closestInLayer(final double x, final double z,
+            final int y, final double dyy, final int z0, final int z1,
+            final int zc, double best) {
+        for (int bz = zc; bz >= z0; bz--) {
+            final double dz = Area.gap(z, bz, bz + 1);
+            if (dyy + dz * dz >= best) {
+                break;
+            }
+            best = this.closestInRow(x, y, bz, dyy + dz * dz, best);
+        }
+        for (int bz = zc + 1; bz <= z1; bz++) {
+            final double dz = Area.gap(z, bz, bz + 1);
+            if (dyy + dz * dz >= best) {
+                break;
+            }
+            best = this.closestInRow(x, y, bz, dyy + dz * dz, best);
+        }
+        return best;
+    }
+
+    /**
+     * The squared distance to the closest run of a row, given the squared
+     * distance to the row itself, or the best distance so far if no run of
+     * the row is closer.
+     */
+    double closestInRow(final double x, final int y, final int z,
+            final double drow, double best) {
+        final int[] spans = this.getSpans(y, z);
+        for (int i = 0; i < spans.length; i += 2) {
+            final double dx = Area.gap(x, spans[i], spans[i + 1] + 1);
+            best = Math.min(best, drow + dx * dx);
+        }
+        return best;
+    }
+
     public abstract void expand(Direction direction, int amount)
             throws InvalidDirectionException;
 
+    /**
+     * Visits the blocks within the area in chunk order until the visitor asks
+     * to stop. Blocks are fetched one at a time as they are visited.
+     *
+     * @param visitor
+     *            The visitor to hand the blocks to.
+     * @return True if every block was visited; false if the visitor stopped.
+     */
+    public boolean forEachBlock(final BlockVisitor visitor) {
+        final Iterator<Block> iter = this.iterator();
+        while (iter.hasNext()) {
+            if (!visitor.visit(iter.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits the part of the area within every chunk it covers, chunk by
+     * chunk in the order of {@link #getChunks()}, until the visitor asks to
+     * stop. Each slice holds the bounds of the area clipped to its chunk and
+     * to the height of the world, so work can be grouped by chunk and every
+     * chunk visited once. Nothing is loaded.
+     *
+     * @param visitor
+     *            The visitor to hand the slices to.
+     * @return True if every chunk was visited; false if the visitor stopped.
+     */
+    public boolean forEachChunkSlice(final ChunkSliceVisitor visitor) {
+        final int x0 = Area.blockMin(this.getMinX());
+        final int y0 = Math.max(Area.blockMin(this.getMinY()), 0);
+        final int z0 = Area.blockMin(this.getMinZ());
+        final int x1 = Area.blockMax(this.getMaxX());
+        final int y1 = Math.min(Area.blockMax(this.getMaxY()), this.getWorld()
+                .getMaxHeight() - 1);
+        final int z1 = Area.blockMax(this.getMaxZ());
+        final boolean full = this.getBlockBox() != null;
+        for (final long chunk : this.getChunks()) {
+            final int cx = ChunkKeys.getX(chunk);
+            final int cz = ChunkKeys.getZ(chunk);
+            if (!visitor.visit(new ChunkSlice(this, cx, cz, Math.max(x0,
+                    cx << 4), y0, Math.max(z0, cz << 4), Math.min(x1,
+                    (cx << 4) + 15), y1, Math.min(z1, (cz << 4) + 15), null,
+                    full))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fetches a copy of the area which keeps the shape the area has now while
+     * the area itself is expanded, shrunk or shifted, so the copy can be
+     * checked from other threads in the meantime. Areas whose shape can not
+     * be captured this way return themselves.
+     *
+     * @return A copy of the area, or the area itself.
+     */
+    public Area freeze() {
+        return this;
+    }
+
+    /**
+     * Fetches the bounds of the blocks of the area when they form a box.
+     *
+     * @return The minimum X, Y and Z block coordinates followed by the
+     *         maximum ones, or null if the blocks of the area do not form a
+     *         box.
+     */
+    int[] getBlockBox() {
+        return null;
+    }
+
     public abstract Block[] getBlocks();
 
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order without fetching any blocks.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    public long[] getBlockPositions() {
+        final Spliterator.OfLong positions = this.getPositions();
+        final long[] dest = new long[Area.sizeOf(positions)];
+        Area.write(positions, dest, 0);
+        return dest;
+    }
+
+    /**
+     * Writes the packed positions of the blocks within the area into the
+     * array in chunk order, allowing the array to be reused between calls.
+     *
+     * @param dest
+     *            The array to write the positions into.
+     * @param offset
+     *            The index to start writing at.
+     * @return The amount of positions written.
+     * @throws IndexOutOfBoundsException
+     *             Thrown when the positions do not fit into the array.
+     */
+    public int getBlockPositions(final long[] dest, final int offset) {
+        final Spliterator.OfLong positions = this.getPositions();
+        final int size = Area.sizeOf(positions);
+        if (offset < 0 || offset + size > dest.length) {
+            throw new IndexOutOfBoundsException(size
+                    + " positions do not fit into an array of length "
+                    + dest.length + " at offset " + offset);
+        }
+        Area.write(positions, dest, offset);
+        return size;
+    }
+
+    /**
+     * Writes the packed positions of the blocks within the area into the
+     * buffer in chunk order, starting at its current position. The buffer may
+     * be direct and is left positioned after the last position written.
+     *
+     * @param dest
+     *            The buffer to write the positions into.
+     * @return The amount of positions written.
+     * @throws BufferOverflowException
+     *             Thrown when the positions do not fit into the remaining
+     *             space of the buffer.
+     */
+    public int getBlockPositions(final LongBuffer dest) {
+        final Spliterator.OfLong positions = this.getPositions();
+        final int size = Area.sizeOf(positions);
+        if (size > dest.remaining()) {
+            throw new BufferOverflowException();
+        }
+        positions.forEachRemaining((LongConsumer) dest::put);
+        return size;
+    }
+
+    /**
+     * Fetches the chunks the area covers, without loading them. Chunks
+     * within the bounds of an area which is not box shaped are only included
+     * when a row of the area reaches into them.
+     *
+     * @return The keys of the chunks, as created by
+     *         {@link ChunkKeys#pack(int, int)}, by chunk Z and then chunk X.
+     */
+    public long[] getChunks() {
+        final int x0 = Area.blockMin(this.getMinX());
+        final int y0 = Math.max(Area.blockMin(this.getMinY()), 0);
+        final int z0 = Area.blockMin(this.getMinZ());
+        final int x1 = Area.blockMax(this.getMaxX());
+        final int y1 = Math.min(Area.blockMax(this.getMaxY()), this.getWorld()
+                .getMaxHeight() - 1);
+        final int z1 = Area.blockMax(this.getMaxZ());
+        if (x0 > x1 || y0 > y1 || z0 > z1) {
+            return new long[0];
+        }
+        final int cx0 = x0 >> 4;
+        final int cz0 = z0 >> 4;
+        final int columns = (x1 >> 4) - cx0 + 1;
+        final int rows = (z1 >> 4) - cz0 + 1;
+        BitSet covered = null;
+        if (this.getBlockBox() == null) {
+            covered = new BitSet(columns * rows);
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    final int[] spans = this.getSpans(y, z);
+                    final int row = ((z >> 4) - cz0) * columns - cx0;
+                    for (int i = 0; i < spans.length; i += 2) {
+                        covered.set(row + (spans[i] >> 4),
+                                row + (spans[i + 1] >> 4) + 1);
+                    }
+                }
+            }
+        }
+        final long[] chunks = new long[covered == null ? columns * rows
+                : covered.cardinality()];
+        int size = 0;
+        for (int i = 0; i < columns * rows; i++) {
+            if (covered == null || covered.get(i)) {
+                chunks[size++] = ChunkKeys.pack(cx0 + i % columns, cz0 + i
+                        / columns);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * The maximum X value of the area's bounding box.
+     *
+     * @return The maximum X value.
+     */
+    public abstract double getMaxX();
+
+    /**
+     * The maximum Y value of the area's bounding box.
+     *
+     * @return The maximum Y value.
+     */
+    public abstract double getMaxY();
+
+    /**
+     * The maximum Z value of the area's bounding box.
+     *
+     * @return The maximum Z value.
+     */
+    public abstract double getMaxZ();
+
+    /**
+     * The minimum X value of the area's bounding box.
+     *
+     * @return The minimum X value.
+     */
+    public abstract double getMinX();
+
+    /**
+     * The minimum Y value of the area's bounding box.
+     *
+     * @return The minimum Y value.
+     */
+    public abstract double getMinY();
+
+    /**
+     * The minimum Z value of the area's bounding box.
+     *
+     * @return The minimum Z value.
+     */
+    public abstract double getMinZ();
+
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order. Positions are packed with
+     * {@link org.monstercraft.area.api.util.BlockPositions}.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    public abstract Spliterator.OfLong getPositions();
+
+    /**
+     * Fetches the runs of blocks of the area within a row along the X axis.
+     * Box shaped areas answer from their bounds; other areas without a row
+     * index of their own have the blocks of the row within their bounds
+     * checked one at a time.
+     *
+     * @param y
+     *            The Y coordinate of the row.
+     * @param z
+     *            The Z coordinate of the row.
+     * @return The first and last X coordinate of every run, sorted and not
+     *         overlapping. The array must not be modified.
+     */
+    int[] getSpans(final int y, final int z) {
+        final int[] box = this.getBlockBox();
+        if (box != null) {
+            return y < box[1] || y > box[4] || z < box[2] || z > box[5] ? Spans
+                    .none() : Spans.of(box[0], box[3]);
+        }
+        if (y < Area.blockMin(this.getMinY())
+                || y > Area.blockMax(this.getMaxY())
+                || z < Area.blockMin(this.getMinZ())
+                || z > Area.blockMax(this.getMaxZ())) {
+            return Spans.none();
+        }
+        final int x1 = Area.blockMax(this.getMaxX());
+        int[] spans = new int[8];
+        int size = 0;
+        for (int x = Area.blockMin(this.getMinX()); x <= x1; x++) {
+            if (!this.contains(x, y, z)) {
+                continue;
+            }
+            if (size > 0 && spans[size - 1] == x - 1) {
+                spans[size - 1] = x;
+            } else {
+                if (size == spans.length) {
+                    spans = Arrays.copyOf(spans, size * 2);
+                }
+                spans[size++] = x;
+                spans[size++] = x;
+            }
+        }
+        return size == 0 ? Spans.none() : Arrays.copyOf(spans, size);
+    }
+
     public abstract int getTotalBlocks();
 
     public abstract World getWorld();
 
+    /**
+     * Finds where a ray passes through the area. The ray is traced exactly
+     * rather than sampled: box shaped areas clip it against their box, and
+     * other areas walk the blocks it passes through one at a time within
+     * their bounds, checking each once.
+     *
+     * @param origin
+     *            The start of the ray.
+     * @param direction
+     *            The direction of the ray, of any length.
+     * @param maxDistance
+     *            The length of the ray in blocks.
+     * @return Where the ray first passes through the area, or null if it
+     *         misses the area or is within another world.
+     * @throws IllegalArgumentException
+     *             Thrown when the direction has no length.
+     */
+    public RayHit intersectRay(final Location origin, final Vector direction,
+            final double maxDistance) {
+        final double length = Math.sqrt(direction.getX() * direction.getX()
+                + direction.getY() * direction.getY() + direction.getZ()
+                * direction.getZ());
+        if (!(length > 0) || length == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException(
+                    "The direction of a ray must have a length");
+        }
+        if (!origin.getWorld().equals(this.getWorld()) || !(maxDistance >= 0)) {
+            return null;
+        }
+        return this.intersectRay(origin.getX(), origin.getY(), origin.getZ(),
+                direction.getX() / length, direction.getY() / length,
+                direction.getZ() / length, maxDistance);
+    }
+
+    /**
+     * Finds where a ray with a unit length direction passes through the area.
+     * The blocks the ray passes through within the bounds of the area are
+     * walked in order, stepping across whichever block edge the ray reaches
+     * first.
+     */
+    RayHit intersectRay(final double ox, final double oy, final double oz,
+            final double dx, final double dy, final double dz,
+            final double maxDistance) {
+        final RayHit bounds = Area.clip(this, ox, oy, oz, dx, dy, dz,
+                maxDistance, Area.blockMin(this.getMinX()),
+                Area.blockMin(this.getMinY()), Area.blockMin(this.getMinZ()),
+                Area.blockMax(this.getMaxX()) + 1.0,
+                Area.blockMax(this.getMaxY()) + 1.0,
+                Area.blockMax(this.getMaxZ()) + 1.0);
+        if (bounds == null) {
+            return null;
+        }
+        double t = bounds.getEntry();
+        final double end = bounds.getExit();
+        int x = Area.voxel(ox + dx * t, dx);
+        int y = Area.voxel(oy + dy * t, dy);
+        int z = Area.voxel(oz + dz * t, dz);
+        final int sx = dx > 0 ? 1 : -1;
+        final int sy = dy > 0 ? 1 : -1;
+        final int sz = dz > 0 ? 1 : -1;
+        final double ix = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dx);
+        final double iy = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dy);
+        final double iz = dz == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dz);
+        double nx = dx == 0 ? Double.POSITIVE_INFINITY : ((sx > 0 ? x + 1
+                : x) - ox) / dx;
+        double ny = dy == 0 ? Double.POSITIVE_INFINITY : ((sy > 0 ? y + 1
+                : y) - oy) / dy;
+        double nz = dz == 0 ? Double.POSITIVE_INFINITY : ((sz > 0 ? z + 1
+                : z) - oz) / dz;
+        double entry = -1;
+        while (true) {
+            final boolean inside = this.contains(x, y, z);
+            if (entry < 0 && inside) {
+                entry = t;
+            } else if (entry >= 0 && !inside) {
+                return new RayHit(this, entry, t);
+            }
+            final double next = Math.min(nx, Math.min(ny, nz));
+            if (next >= end) {
+                break;
+            }
+            if (next == nx) {
+                x += sx;
+                nx += ix;
+            } else if (next == ny) {
+                y += sy;
+                ny += iy;
+            } else {
+                z += sz;
+                nz += iz;
+            }
+            t = Math.max(t, next);
+        }
+        return entry < 0 ? null : new RayHit(this, entry, end);
+    }
+
+    /**
+     * Iterates over the blocks within the area in chunk order. Blocks are
+     * fetched lazily as the iterator advances.
+     *
+     * @return An iterator over the blocks within the area.
+     */
+    @Override
+    public Iterator<Block> iterator() {
+        return Spliterators.iterator(this.spliterator());
+    }
+
     public abstract void shift(Direction direction, int amount)
             throws InvalidDirectionException;
 
     public abstract void shrink(Direction direction, int amount)
             throws InvalidDirectionException;
+
+    /**
+     * Creates a spliterator over the blocks within the area in chunk order.
+     * Blocks are fetched lazily and the spliterator can be split to process
+     * the area in parallel.
+     *
+     * @return A spliterator over the blocks within the area.
+     */
+    @Override
+    public Spliterator<Block> spliterator() {
+        return new BlockSpliterator(this.getWorld(), this.getPositions());
+    }
+
+    /**
+     * Creates a sequential stream of the blocks within the area.
+     *
+     * @return A stream of the blocks within the area.
+     */
+    public Stream<Block> stream() {
+        return StreamSupport.stream(this.spliterator(), false);
+    }
+
+    private static void write(final Spliterator.OfLong positions,
+            final long[] dest, final int offset) {
+        final int[] i = { offset };
+        positions.forEachRemaining((long p) -> {
+            dest[i[0]++] = p;
+        });
+    }
 }
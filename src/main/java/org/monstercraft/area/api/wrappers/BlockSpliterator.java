@@ -0,0 +1,69 @@
+package org.monstercraft.area.api.wrappers;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.monstercraft.area.api.util.BlockPositions;
+
+/**
+ * Lazily fetches the blocks of a spliterator of packed positions. A block is
+ * only looked up when it is handed to the consumer.
+ */
+final class BlockSpliterator implements Spliterator<Block>, LongConsumer {
+
+    private final World world;
+
+    private final Spliterator.OfLong positions;
+
+    private Consumer<? super Block> action;
+
+    BlockSpliterator(final World world, final Spliterator.OfLong positions) {
+        this.world = world;
+        this.positions = positions;
+    }
+
+    @Override
+    public void accept(final long packed) {
+        action.accept(world.getBlockAt(BlockPositions.getX(packed),
+                BlockPositions.getY(packed), BlockPositions.getZ(packed)));
+    }
+
+    @Override
+    public int characteristics() {
+        return positions.characteristics() & ~Spliterator.SORTED;
+    }
+
+    @Override
+    public long estimateSize() {
+        return positions.estimateSize();
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super Block> action) {
+        this.action = action;
+        try {
+            positions.forEachRemaining((LongConsumer) this);
+        } finally {
+            this.action = null;
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super Block> action) {
+        this.action = action;
+        try {
+            return positions.tryAdvance((LongConsumer) this);
+        } finally {
+            this.action = null;
+        }
+    }
+
+    @Override
+    public Spliterator<Block> trySplit() {
+        final Spliterator.OfLong prefix = positions.trySplit();
+        return prefix == null ? null : new BlockSpliterator(world, prefix);
+    }
+}
@@ -0,0 +1,32 @@
+package org.monstercraft.area.api.wrappers;
+
+/**
+ * The bounds of a box shaped area. A box is never changed once created:
+ * areas change their bounds by publishing a new box through a volatile
+ * field, so a reader on any thread loads every bound from the same change
+ * without locking or allocating.
+ */
+final class Box {
+
+    final double minx;
+
+    final double miny;
+
+    final double minz;
+
+    final double maxx;
+
+    final double maxy;
+
+    final double maxz;
+
+    Box(final double minx, final double miny, final double minz,
+            final double maxx, final double maxy, final double maxz) {
+        this.minx = minx;
+        this.miny = miny;
+        this.minz = minz;
+        this.maxx = maxx;
+        this.maxy = maxy;
+        this.maxz = maxz;
+    }
+}
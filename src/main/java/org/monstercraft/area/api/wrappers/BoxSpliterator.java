@@ -0,0 +1,228 @@
+package org.monstercraft.area.api.wrappers;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+import org.monstercraft.area.api.util.BlockPositions;
+
+/**
+ * Walks the packed positions of an axis aligned box of blocks chunk by chunk.
+ * Chunks are visited by Z then X, and the blocks within each chunk by Y, Z
+ * and then X, the order Minecraft stores them in.
+ *
+ * The walk is divided into layers, a single Y level of a single chunk.
+ * Splitting hands out whole layers, so the size of every split is known
+ * exactly.
+ */
+final class BoxSpliterator implements Spliterator.OfLong {
+
+    private final int x0;
+
+    private final int x1;
+
+    private final int y0;
+
+    private final int z0;
+
+    private final int z1;
+
+    private final int cx0;
+
+    private final int cz0;
+
+    private final int columns;
+
+    private final int height;
+
+    private long layer;
+
+    private long end;
+
+    private long remaining;
+
+    private boolean loaded;
+
+    private int lx0;
+
+    private int lx1;
+
+    private int lz1;
+
+    private int x;
+
+    private int y;
+
+    private int z;
+
+    /**
+     * Creates a spliterator over the blocks between the corners, inclusive.
+     */
+    BoxSpliterator(final int x0, final int y0, final int z0, final int x1,
+            final int y1, final int z1) {
+        this.x0 = x0;
+        this.x1 = x1;
+        this.y0 = y0;
+        this.z0 = z0;
+        this.z1 = z1;
+        cx0 = x0 >> 4;
+        cz0 = z0 >> 4;
+        if (x1 < x0 || y1 < y0 || z1 < z0) {
+            columns = 0;
+            height = 0;
+        } else {
+            columns = ((x1 >> 4) - cx0 + 1);
+            height = y1 - y0 + 1;
+        }
+        end = (long) columns * ((z1 >> 4) - cz0 + 1) * height;
+        if (columns == 0) {
+            end = 0;
+        }
+        remaining = this.sizeOf(0, end);
+    }
+
+    private BoxSpliterator(final BoxSpliterator s, final long end,
+            final long remaining) {
+        x0 = s.x0;
+        x1 = s.x1;
+        y0 = s.y0;
+        z0 = s.z0;
+        z1 = s.z1;
+        cx0 = s.cx0;
+        cz0 = s.cz0;
+        columns = s.columns;
+        height = s.height;
+        layer = s.layer;
+        loaded = s.loaded;
+        lx0 = s.lx0;
+        lx1 = s.lx1;
+        lz1 = s.lz1;
+        x = s.x;
+        y = s.y;
+        z = s.z;
+        this.end = end;
+        this.remaining = remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SIZED
+                | Spliterator.SUBSIZED | Spliterator.NONNULL
+                | Spliterator.IMMUTABLE;
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public void forEachRemaining(final LongConsumer action) {
+        while (remaining > 0) {
+            if (!loaded) {
+                this.load();
+            }
+            final long left = this.layerSize() - this.consumed();
+            final int y = this.y;
+            int x = this.x;
+            for (int z = this.z; z <= lz1; z++) {
+                for (; x <= lx1; x++) {
+                    action.accept(BlockPositions.pack(x, y, z));
+                }
+                x = lx0;
+            }
+            remaining -= left;
+            layer++;
+            loaded = false;
+        }
+    }
+
+    /**
+     * The amount of blocks already visited within the loaded layer.
+     */
+    private long consumed() {
+        return (long) (z - this.layerMinZ()) * (lx1 - lx0 + 1) + (x - lx0);
+    }
+
+    private int layerMinZ() {
+        return Math.max(z0, (cz0 + (int) (layer / height / columns)) << 4);
+    }
+
+    private long layerSize() {
+        return (long) (lx1 - lx0 + 1) * (lz1 - this.layerMinZ() + 1);
+    }
+
+    /**
+     * Positions the cursor at the start of the current layer.
+     */
+    private void load() {
+        final long column = layer / height;
+        final int cx = cx0 + (int) (column % columns);
+        final int cz = cz0 + (int) (column / columns);
+        lx0 = Math.max(x0, cx << 4);
+        lx1 = Math.min(x1, (cx << 4) + 15);
+        lz1 = Math.min(z1, (cz << 4) + 15);
+        x = lx0;
+        z = Math.max(z0, cz << 4);
+        y = y0 + (int) (layer % height);
+        loaded = true;
+    }
+
+    /**
+     * The amount of blocks within the layers between the indexes.
+     */
+    private long sizeOf(final long from, final long to) {
+        long size = 0;
+        long layer = from;
+        while (layer < to) {
+            final long column = layer / height;
+            final long next = Math.min(to, (column + 1) * height);
+            final int cx = cx0 + (int) (column % columns);
+            final int cz = cz0 + (int) (column / columns);
+            final long width = Math.min(x1, (cx << 4) + 15)
+                    - Math.max(x0, cx << 4) + 1;
+            final long depth = Math.min(z1, (cz << 4) + 15)
+                    - Math.max(z0, cz << 4) + 1;
+            size += width * depth * (next - layer);
+            layer = next;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean tryAdvance(final LongConsumer action) {
+        if (remaining <= 0) {
+            return false;
+        }
+        if (!loaded) {
+            this.load();
+        }
+        action.accept(BlockPositions.pack(x, y, z));
+        remaining--;
+        if (++x > lx1) {
+            x = lx0;
+            if (++z > lz1) {
+                layer++;
+                loaded = false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+        final long untouched = loaded ? layer + 1 : layer;
+        final long free = end - untouched;
+        if (free < 2) {
+            return null;
+        }
+        // Hand out the first half as the prefix and continue after it
+        final long mid = untouched + free / 2;
+        final long suffix = this.sizeOf(mid, end);
+        final BoxSpliterator prefix = new BoxSpliterator(this, mid, remaining
+                - suffix);
+        layer = mid;
+        loaded = false;
+        remaining = suffix;
+        return prefix;
+    }
+}
@@ -0,0 +1,582 @@
+package org.monstercraft.area.api.wrappers;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.RunVisitor;
+import org.monstercraft.area.api.exception.InvalidDirectionException;
+import org.monstercraft.area.api.exception.InvalidValueException;
+import org.monstercraft.area.api.util.BlockPositions;
+import org.monstercraft.area.api.util.LongIntHashMap;
+import org.monstercraft.area.api.util.LongObjectHashMap;
+
+/**
+ * An area stored as vertical runs of blocks, one sorted list of runs for
+ * every column it covers. Suits areas of any outline which fill whole ranges
+ * of heights, such as claims following the terrain, since the memory used
+ * grows with the amount of runs rather than blocks.
+ *
+ * The columns are sorted by Z and then X, and their runs are kept one after
+ * another in a single array. Checking a block looks its column up in a hash
+ * map and searches its runs.
+ */
+public class ColumnArea extends Area {
+
+    /**
+     * Adds a run to the runs gathered for a column. The first slot of the
+     * array holds the amount of slots in use.
+     */
+    private static void add(final LongObjectHashMap<int[]> columns,
+            final int x, final int z, final int from, final int to) {
+        final long key = BlockPositions.pack(x, 0, z);
+        int[] runs = columns.get(key);
+        if (runs == null) {
+            runs = new int[5];
+            runs[0] = 1;
+            columns.put(key, runs);
+        }
+        final int used = runs[0];
+        if (used > 1 && runs[used - 1] >= from - 1 && runs[used - 2] <= from) {
+            runs[used - 1] = Math.max(runs[used - 1], to);
+            return;
+        }
+        if (used + 2 > runs.length) {
+            runs = Arrays.copyOf(runs, runs.length * 2);
+            columns.put(key, runs);
+        }
+        runs[used] = from;
+        runs[used + 1] = to;
+        runs[0] = used + 2;
+    }
+
+    private final World world;
+
+    private int[] xs;
+
+    private int[] zs;
+
+    /**
+     * Where the runs of every column start within the runs, with the end of
+     * the last column at the end.
+     */
+    private int[] offsets;
+
+    /**
+     * The lowest and highest Y coordinate of every run.
+     */
+    private int[] runs;
+
+    /**
+     * The index of every column, keyed by the packed position of its block
+     * at Y 0.
+     */
+    private LongIntHashMap index;
+
+    private int maxx;
+
+    private int minx;
+
+    private int maxy;
+
+    private int miny;
+
+    private int maxz;
+
+    private int minz;
+
+    private long total;
+
+    /**
+     * Creates a column area holding the blocks of the area specified, limited
+     * to the height of its world. Box shaped areas are copied a column at a
+     * time and other areas a row at a time.
+     *
+     * @param area
+     *            The area to copy.
+     * @throws InvalidValueException
+     *             Thrown when the area holds no blocks.
+     */
+    public ColumnArea(final Area area) throws InvalidValueException {
+        world = area.getWorld();
+        final int y0 = Math.max(Area.blockMin(area.getMinY()), 0);
+        final int y1 = Math.min(Area.blockMax(area.getMaxY()),
+                world.getMaxHeight() - 1);
+        final int z0 = Area.blockMin(area.getMinZ());
+        final int z1 = Area.blockMax(area.getMaxZ());
+        final LongObjectHashMap<int[]> columns = new LongObjectHashMap<int[]>();
+        final int[] box = area.getBlockBox();
+        if (box != null) {
+            final int from = Math.max(box[1], y0);
+            final int to = Math.min(box[4], y1);
+            for (int z = box[2]; z <= box[5] && from <= to; z++) {
+                for (int x = box[0]; x <= box[3]; x++) {
+                    ColumnArea.add(columns, x, z, from, to);
+                }
+            }
+            this.index(columns);
+            return;
+        }
+        // Rows are read from the bottom up, so every run grows at its top
+        for (int y = y0; y <= y1; y++) {
+            for (int z = z0; z <= z1; z++) {
+                final int[] spans = area.getSpans(y, z);
+                for (int i = 0; i < spans.length; i += 2) {
+                    for (int x = spans[i]; x <= spans[i + 1]; x++) {
+                        ColumnArea.add(columns, x, z, y, y);
+                    }
+                }
+            }
+        }
+        this.index(columns);
+    }
+
+    /**
+     * Creates a column area from runs of blocks. Runs of the same column may
+     * overlap and are joined. Runs are limited to the height of the world.
+     *
+     * @param world
+     *            The world the blocks are located in.
+     * @param xs
+     *            The X coordinate of the column of every run.
+     * @param zs
+     *            The Z coordinate of the column of every run.
+     * @param minYs
+     *            The lowest Y coordinate of every run.
+     * @param maxYs
+     *            The highest Y coordinate of every run.
+     * @throws InvalidValueException
+     *             Thrown when the runs hold no blocks.
+     * @throws IllegalArgumentException
+     *             Thrown when the arrays differ in length.
+     */
+    public ColumnArea(final World world, final int[] xs, final int[] zs,
+            final int[] minYs, final int[] maxYs) throws InvalidValueException {
+        if (xs.length != zs.length || xs.length != minYs.length
+                || xs.length != maxYs.length) {
+            throw new IllegalArgumentException(
+                    "Coordinate arrays differ in length");
+        }
+        this.world = world;
+        final int height = world.getMaxHeight() - 1;
+        final LongObjectHashMap<int[]> columns = new LongObjectHashMap<int[]>();
+        for (int i = 0; i < xs.length; i++) {
+            final int from = Math.max(minYs[i], 0);
+            final int to = Math.min(maxYs[i], height);
+            if (from <= to) {
+                ColumnArea.add(columns, xs[i], zs[i], from, to);
+            }
+        }
+        this.index(columns);
+    }
+
+    /**
+     * Checks if every block of the area specified is within this area.
+     * Column and box shaped areas are compared a run at a time; other areas
+     * have their blocks checked one at a time.
+     *
+     * @param area
+     *            The area to check.
+     * @return True if this area contains every block of the area; otherwise
+     *         false.
+     */
+    @Override
+    public boolean contains(final Area area) {
+        if (!area.getWorld().equals(world)) {
+            return false;
+        }
+        if (area instanceof ColumnArea) {
+            return ((ColumnArea) area).forEachRun(this::covers);
+        }
+        final int[] box = area.getBlockBox();
+        if (box == null) {
+            return super.contains(area);
+        }
+        if (box[0] > box[3] || box[1] > box[4] || box[2] > box[5]) {
+            return true;
+        }
+        for (int z = box[2]; z <= box[5]; z++) {
+            for (int x = box[0]; x <= box[3]; x++) {
+                if (!this.covers(x, z, box[1], box[4])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the block is within the area.
+     *
+     * @param block
+     *            The block to check.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final Block block) {
+        return block.getWorld().equals(world)
+                && this.contains(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        return this.covers(x, z, y, y);
+    }
+
+    /**
+     * Checks if the location is within one of the blocks of the area.
+     *
+     * @param location
+     *            The location to check.
+     * @return True if the area contains the location; otherwise false.
+     */
+    @Override
+    public boolean contains(final Location location) {
+        return location.getWorld().equals(world)
+                && this.contains(location.getBlockX(), location.getBlockY(),
+                        location.getBlockZ());
+    }
+
+    /**
+     * Checks if the player is within the area.
+     *
+     * @param player
+     *            The player to check.
+     * @return True if the area contains the player; otherwise false.
+     */
+    @Override
+    public boolean contains(final Player player) {
+        return this.contains(player.getLocation());
+    }
+
+    /**
+     * Checks if a single run of the column holds every block between the Y
+     * coordinates, inclusive.
+     */
+    private boolean covers(final int x, final int z, final int from,
+            final int to) {
+        if (x < minx || x > maxx || z < minz || z > maxz || from < miny
+                || to > maxy) {
+            return false;
+        }
+        final int column = index.get(BlockPositions.pack(x, 0, z), -1);
+        if (column < 0) {
+            return false;
+        }
+        // Find the last run starting at or below the lowest block
+        int lo = offsets[column] >> 1;
+        int hi = (offsets[column + 1] >> 1) - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (runs[mid * 2] <= from) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi >= offsets[column] >> 1 && runs[hi * 2 + 1] >= to;
+    }
+
+    /**
+     * Column areas can not be resized.
+     *
+     * @throws InvalidDirectionException
+     *             Always thrown.
+     */
+    @Override
+    public void expand(final Direction direction, final int amount)
+            throws InvalidDirectionException {
+        throw new InvalidDirectionException("Cannot expand this area.");
+    }
+
+    /**
+     * Visits the runs of blocks the area is made of until the visitor asks
+     * to stop. Columns are visited by Z and then X, and the runs of each
+     * column from the bottom up.
+     *
+     * @param visitor
+     *            The visitor to hand the runs to.
+     * @return True if every run was visited; false if the visitor stopped.
+     */
+    public boolean forEachRun(final RunVisitor visitor) {
+        for (int column = 0; column < xs.length; column++) {
+            for (int i = offsets[column]; i < offsets[column + 1]; i += 2) {
+                if (!visitor.visit(xs[column], zs[column], runs[i],
+                        runs[i + 1])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    int[] getBlockBox() {
+        final long volume = (long) (maxx - minx + 1) * (maxy - miny + 1)
+                * (maxz - minz + 1);
+        return volume == total ? new int[] { minx, miny, minz, maxx, maxy,
+                maxz } : null;
+    }
+
+    /**
+     * Fetches the blocks within the area in chunk order.
+     *
+     * @return The blocks within the area.
+     */
+    @Override
+    public Block[] getBlocks() {
+        return Area.toArray(world, this.getPositions());
+    }
+
+    /**
+     * The amount of columns the area covers.
+     *
+     * @return The amount of columns.
+     */
+    public int getColumnCount() {
+        return xs.length;
+    }
+
+    /**
+     * The maximum X value of the blocks within the area. The bounds cover the
+     * whole of every block, so this is just below the far edge of the
+     * furthest block.
+     *
+     * @return The maximum X value.
+     */
+    @Override
+    public double getMaxX() {
+        return Math.nextDown(maxx + 1.0);
+    }
+
+    /**
+     * The maximum Y value of the blocks within the area.
+     *
+     * @return The maximum Y value.
+     */
+    @Override
+    public double getMaxY() {
+        return Math.nextDown(maxy + 1.0);
+    }
+
+    /**
+     * The maximum Z value of the blocks within the area.
+     *
+     * @return The maximum Z value.
+     */
+    @Override
+    public double getMaxZ() {
+        return Math.nextDown(maxz + 1.0);
+    }
+
+    /**
+     * The minimum X value of the blocks within the area.
+     *
+     * @return The minimum X value.
+     */
+    @Override
+    public double getMinX() {
+        return minx;
+    }
+
+    /**
+     * The minimum Y value of the blocks within the area.
+     *
+     * @return The minimum Y value.
+     */
+    @Override
+    public double getMinY() {
+        return miny;
+    }
+
+    /**
+     * The minimum Z value of the blocks within the area.
+     *
+     * @return The minimum Z value.
+     */
+    @Override
+    public double getMinZ() {
+        return minz;
+    }
+
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    @Override
+    public Spliterator.OfLong getPositions() {
+        return new SpanSpliterator(this::getSpans, minx, miny, minz, maxx,
+                maxy, maxz, total);
+    }
+
+    /**
+     * The amount of runs the area is made of.
+     *
+     * @return The amount of runs.
+     */
+    public int getRunCount() {
+        return runs.length / 2;
+    }
+
+    @Override
+    int[] getSpans(final int y, final int z) {
+        if (y < miny || y > maxy || z < minz || z > maxz) {
+            return Spans.none();
+        }
+        int column = Arrays.binarySearch(zs, z);
+        if (column < 0) {
+            return Spans.none();
+        }
+        while (column > 0 && zs[column - 1] == z) {
+            column--;
+        }
+        final Spans.Builder spans = new Spans.Builder();
+        for (; column < zs.length && zs[column] == z; column++) {
+            if (this.covers(xs[column], z, y, y)) {
+                spans.add(xs[column], xs[column]);
+            }
+        }
+        return spans.toArray();
+    }
+
+    /**
+     * Fetches the total amount of blocks within the area, summed from its
+     * runs.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    @Override
+    public int getTotalBlocks() {
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Sorts the columns gathered and the runs within each of them, joining
+     * runs which overlap or touch, and builds the bounds and the index of the
+     * area.
+     */
+    private void index(final LongObjectHashMap<int[]> columns)
+            throws InvalidValueException {
+        if (columns.isEmpty()) {
+            throw new InvalidValueException("The area holds no blocks");
+        }
+        // Order the columns by Z and then X, with X made unsigned
+        final long[] order = columns.keys();
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (long) BlockPositions.getZ(order[i]) << 32
+                    | (BlockPositions.getX(order[i]) - Integer.MIN_VALUE)
+                    & 0xFFFFFFFFL;
+        }
+        Arrays.sort(order);
+
+        xs = new int[order.length];
+        zs = new int[order.length];
+        offsets = new int[order.length + 1];
+        index = new LongIntHashMap(order.length);
+        int[] joined = new int[order.length * 2];
+        int size = 0;
+        total = 0;
+        miny = Integer.MAX_VALUE;
+        maxy = Integer.MIN_VALUE;
+        for (int column = 0; column < order.length; column++) {
+            final int x = (int) order[column] + Integer.MIN_VALUE;
+            final int z = (int) (order[column] >> 32);
+            final long key = BlockPositions.pack(x, 0, z);
+            final int[] gathered = columns.get(key);
+            final long[] sorted = new long[(gathered[0] - 1) / 2];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = (long) gathered[i * 2 + 1] << 32
+                        | gathered[i * 2 + 2];
+            }
+            Arrays.sort(sorted);
+            xs[column] = x;
+            zs[column] = z;
+            offsets[column] = size;
+            index.put(key, column);
+            for (final long run : sorted) {
+                final int from = (int) (run >> 32);
+                final int to = (int) run;
+                if (size > offsets[column] && joined[size - 1] >= from - 1) {
+                    joined[size - 1] = Math.max(joined[size - 1], to);
+                    continue;
+                }
+                if (size + 2 > joined.length) {
+                    joined = Arrays.copyOf(joined, joined.length * 2);
+                }
+                joined[size++] = from;
+                joined[size++] = to;
+            }
+            for (int i = offsets[column]; i < size; i += 2) {
+                total += joined[i + 1] - joined[i] + 1;
+                miny = Math.min(miny, joined[i]);
+                maxy = Math.max(maxy, joined[i + 1]);
+            }
+        }
+        offsets[order.length] = size;
+        runs = Arrays.copyOf(joined, size);
+
+        minz = zs[0];
+        maxz = zs[zs.length - 1];
+        minx = Integer.MAX_VALUE;
+        maxx = Integer.MIN_VALUE;
+        for (final int x : xs) {
+            minx = Math.min(minx, x);
+            maxx = Math.max(maxx, x);
+        }
+    }
+
+    /**
+     * Column areas can not be moved.
+     *
+     * @throws InvalidDirectionException
+     *             Always thrown.
+     */
+    @Override
+    public void shift(final Direction direction, final int amount)
+            throws InvalidDirectionException {
+        throw new InvalidDirectionException("Cannot shift this area.");
+    }
+
+    /**
+     * Column areas can not be resized.
+     *
+     * @throws InvalidDirectionException
+     *             Always thrown.
+     */
+    @Override
+    public void shrink(final Direction direction, final int amount)
+            throws InvalidDirectionException {
+        throw new InvalidDirectionException("Cannot shrink this area.");
+    }
+
+    /**
+     * The total amount of blocks within the area, summed from its runs.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    public long size() {
+        return total;
+    }
+}
@@ -0,0 +1,650 @@
+package org.monstercraft.area.api.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.ToDoubleFunction;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.exception.InvalidDirectionException;
+import org.monstercraft.area.api.exception.InvalidValueException;
+import org.monstercraft.area.api.exception.InvalidWorldException;
+
+/**
+ * An area made of other areas joined by an operation. Containment checks test
+ * the cheapest areas first and skip any area whose bounds do not hold the
+ * point. The blocks are worked out row by row from the runs of the areas, and
+ * the total from their boxes alone when every area is box shaped, so blocks
+ * are never checked one at a time.
+ *
+ * The areas are not copied, so changes made to them afterwards are reflected
+ * by the composite.
+ */
+public class CompositeArea extends Area {
+
+    /**
+     * The ways areas can be joined.
+     */
+    public enum Operation {
+
+        /**
+         * The blocks within the first area but none of the others.
+         */
+        DIFFERENCE,
+
+        /**
+         * The blocks within every area.
+         */
+        INTERSECTION,
+
+        /**
+         * The blocks within any of the areas.
+         */
+        UNION
+    }
+
+    /**
+     * The most boxes kept while splitting box shaped areas into boxes which
+     * do not overlap. Past this the rows are counted instead.
+     */
+    private static final int MAX_BOXES = 1024;
+
+    private static final int[] EMPTY_BOX = { 0, 0, 0, -1, -1, -1 };
+
+    /**
+     * Splits box shaped areas into boxes which do not overlap.
+     *
+     * @return The boxes, or null if the area is not made of boxes.
+     */
+    static List<int[]> boxesOf(final Area area) {
+        if (area instanceof CompositeArea) {
+            return ((CompositeArea) area).getBoxes();
+        }
+        final int[] box = area.getBlockBox();
+        if (box == null) {
+            return null;
+        }
+        return CompositeArea.isEmpty(box) ? Collections.<int[]> emptyList()
+                : Collections.singletonList(box);
+    }
+
+    /**
+     * A rough cost of checking a block against the area.
+     */
+    private static int costOf(final Area area) {
+        if (area instanceof CompositeArea) {
+            int cost = 1;
+            for (final Area a : ((CompositeArea) area).areas) {
+                cost += CompositeArea.costOf(a);
+            }
+            return cost;
+        }
+        return area.getBlockBox() != null ? 1 : 2;
+    }
+
+    private static int[] intersect(final int[] a, final int[] b) {
+        final int[] box = { Math.max(a[0], b[0]), Math.max(a[1], b[1]),
+                Math.max(a[2], b[2]), Math.min(a[3], b[3]),
+                Math.min(a[4], b[4]), Math.min(a[5], b[5]) };
+        return CompositeArea.isEmpty(box) ? null : box;
+    }
+
+    private static boolean isEmpty(final int[] box) {
+        return box[0] > box[3] || box[1] > box[4] || box[2] > box[5];
+    }
+
+    /**
+     * Removes the box from every box of the list, leaving up to six pieces of
+     * each.
+     *
+     * @return The pieces, or null if there are too many of them.
+     */
+    private static List<int[]> subtract(final List<int[]> boxes,
+            final int[] b) {
+        final List<int[]> out = new ArrayList<int[]>(boxes.size());
+        for (final int[] a : boxes) {
+            final int[] overlap = CompositeArea.intersect(a, b);
+            if (overlap == null) {
+                out.add(a);
+                continue;
+            }
+            // Slice off the parts beside the overlap along X, then Y, then Z
+            if (a[0] < overlap[0]) {
+                out.add(new int[] { a[0], a[1], a[2], overlap[0] - 1, a[4],
+                        a[5] });
+            }
+            if (a[3] > overlap[3]) {
+                out.add(new int[] { overlap[3] + 1, a[1], a[2], a[3], a[4],
+                        a[5] });
+            }
+            if (a[1] < overlap[1]) {
+                out.add(new int[] { overlap[0], a[1], a[2], overlap[3],
+                        overlap[1] - 1, a[5] });
+            }
+            if (a[4] > overlap[4]) {
+                out.add(new int[] { overlap[0], overlap[4] + 1, a[2],
+                        overlap[3], a[4], a[5] });
+            }
+            if (a[2] < overlap[2]) {
+                out.add(new int[] { overlap[0], overlap[1], a[2], overlap[3],
+                        overlap[4], overlap[2] - 1 });
+            }
+            if (a[5] > overlap[5]) {
+                out.add(new int[] { overlap[0], overlap[1], overlap[5] + 1,
+                        overlap[3], overlap[4], a[5] });
+            }
+        }
+        return out.size() > CompositeArea.MAX_BOXES ? null : out;
+    }
+
+    private static boolean within(final Area area, final double x,
+            final double y, final double z) {
+        return x >= area.getMinX() && x <= area.getMaxX()
+                && y >= area.getMinY() && y <= area.getMaxY()
+                && z >= area.getMinZ() && z <= area.getMaxZ();
+    }
+
+    private final Operation operation;
+
+    private final Area[] areas;
+
+    private final World world;
+
+    /**
+     * Creates an area joining the areas specified.
+     *
+     * @param operation
+     *            The way to join the areas.
+     * @param areas
+     *            The areas to join. For a difference, the first area is the
+     *            one the others are removed from.
+     * @throws InvalidValueException
+     *             Thrown when no areas are specified.
+     * @throws InvalidWorldException
+     *             Thrown when the areas are located on seprate worlds.
+     */
+    public CompositeArea(final Operation operation, final Area... areas)
+            throws InvalidValueException, InvalidWorldException {
+        if (areas.length == 0) {
+            throw new InvalidValueException("No areas specified");
+        }
+        world = areas[0].getWorld();
+        for (final Area a : areas) {
+            if (!a.getWorld().equals(world)) {
+                throw new InvalidWorldException("Areas on seprate worlds");
+            }
+        }
+        this.operation = operation;
+        this.areas = areas.clone();
+        // The order does not matter to the result, except for the first area
+        // of a difference
+        final int[] costs = new int[areas.length];
+        final Integer[] order = new Integer[areas.length];
+        for (int i = 0; i < areas.length; i++) {
+            costs[i] = CompositeArea.costOf(areas[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, operation == Operation.DIFFERENCE ? 1 : 0,
+                order.length, Comparator.comparingInt((Integer i) -> costs[i]));
+        for (int i = 0; i < areas.length; i++) {
+            this.areas[i] = areas[order[i]];
+        }
+    }
+
+    /**
+     * Checks if the block is within the area.
+     *
+     * @param block
+     *            The block to check.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final Block block) {
+        return block.getWorld().equals(world)
+                && this.contains(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        switch (operation) {
+        case DIFFERENCE:
+            if (!CompositeArea.within(areas[0], x, y, z)
+                    || !areas[0].contains(x, y, z)) {
+                return false;
+            }
+            for (int i = 1; i < areas.length; i++) {
+                if (CompositeArea.within(areas[i], x, y, z)
+                        && areas[i].contains(x, y, z)) {
+                    return false;
+                }
+            }
+            return true;
+        case INTERSECTION:
+            for (final Area a : areas) {
+                if (!CompositeArea.within(a, x, y, z) || !a.contains(x, y, z)) {
+                    return false;
+                }
+            }
+            return true;
+        default:
+            for (final Area a : areas) {
+                if (CompositeArea.within(a, x, y, z) && a.contains(x, y, z)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the location is within the area.
+     *
+     * @param location
+     *            The location to check.
+     * @return True if the area contains the location; otherwise false.
+     */
+    @Override
+    public boolean contains(final Location location) {
+        if (!location.getWorld().equals(world)) {
+            return false;
+        }
+        final double x = location.getX();
+        final double y = location.getY();
+        final double z = location.getZ();
+        switch (operation) {
+        case DIFFERENCE:
+            if (!CompositeArea.within(areas[0], x, y, z)
+                    || !areas[0].contains(location)) {
+                return false;
+            }
+            for (int i = 1; i < areas.length; i++) {
+                if (CompositeArea.within(areas[i], x, y, z)
+                        && areas[i].contains(location)) {
+                    return false;
+                }
+            }
+            return true;
+        case INTERSECTION:
+            for (final Area a : areas) {
+                if (!CompositeArea.within(a, x, y, z) || !a.contains(location)) {
+                    return false;
+                }
+            }
+            return true;
+        default:
+            for (final Area a : areas) {
+                if (CompositeArea.within(a, x, y, z) && a.contains(location)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the player is within the area.
+     *
+     * @param player
+     *            The player to check.
+     * @return True if the area contains the player; otherwise false.
+     */
+    @Override
+    public boolean contains(final Player player) {
+        return this.contains(player.getLocation());
+    }
+
+    /**
+     * Measures the distance from the location to the area. A union is as far
+     * as its closest area; the other operations measure to their closest
+     * block.
+     *
+     * @param location
+     *            The location to measure from.
+     * @return 0 if the area contains the location, otherwise the distance to
+     *         the closest point of the area, or infinity if the location is
+     *         within another world.
+     */
+    @Override
+    public double distanceTo(final Location location) {
+        if (operation != Operation.UNION) {
+            return super.distanceTo(location);
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (final Area a : areas) {
+            best = Math.min(best, a.distanceTo(location));
+        }
+        return best;
+    }
+
+    /**
+     * Composite areas can not be resized; resize the areas they are made of
+     * instead.
+     *
+     * @throws InvalidDirectionException
+     *             Always thrown.
+     */
+    @Override
+    public void expand(final Direction direction, final int amount)
+            throws InvalidDirectionException {
+        throw new InvalidDirectionException("Cannot expand this area.");
+    }
+
+    /**
+     * The areas joined by this area, cheapest to check first.
+     *
+     * @return The areas joined by this area.
+     */
+    public Area[] getAreas() {
+        return areas.clone();
+    }
+
+    @Override
+    int[] getBlockBox() {
+        final List<int[]> boxes = this.getBoxes();
+        if (boxes == null || boxes.size() > 1) {
+            return null;
+        }
+        return boxes.isEmpty() ? CompositeArea.EMPTY_BOX.clone() : boxes
+                .get(0).clone();
+    }
+
+    /**
+     * The block coordinates of the bounding box of the area, limited to the
+     * height of the world.
+     */
+    private int[] getBlockBounds() {
+        return new int[] { Area.blockMin(this.getMinX()),
+                Math.max(Area.blockMin(this.getMinY()), 0),
+                Area.blockMin(this.getMinZ()), Area.blockMax(this.getMaxX()),
+                Math.min(Area.blockMax(this.getMaxY()),
+                        world.getMaxHeight() - 1),
+                Area.blockMax(this.getMaxZ()) };
+    }
+
+    /**
+     * Fetches the blocks within the area in chunk order.
+     *
+     * @return The blocks within the area.
+     */
+    @Override
+    public Block[] getBlocks() {
+        return Area.toArray(world, this.getPositions());
+    }
+
+    /**
+     * Splits the area into boxes which do not overlap when every area it is
+     * made of is box shaped.
+     *
+     * @return The boxes, or null if an area is not box shaped or there are
+     *         too many boxes.
+     */
+    private List<int[]> getBoxes() {
+        List<int[]> boxes = CompositeArea.boxesOf(areas[0]);
+        for (int i = 1; i < areas.length && boxes != null; i++) {
+            final List<int[]> next = CompositeArea.boxesOf(areas[i]);
+            if (next == null) {
+                return null;
+            }
+            switch (operation) {
+            case DIFFERENCE:
+                for (int j = 0; j < next.size() && boxes != null; j++) {
+                    boxes = CompositeArea.subtract(boxes, next.get(j));
+                }
+                break;
+            case INTERSECTION:
+                final List<int[]> overlaps = new ArrayList<int[]>();
+                for (final int[] a : boxes) {
+                    for (final int[] b : next) {
+                        final int[] overlap = CompositeArea.intersect(a, b);
+                        if (overlap != null) {
+                            overlaps.add(overlap);
+                        }
+                    }
+                }
+                boxes = overlaps;
+                break;
+            default:
+                // Only add the parts of the boxes not already covered
+                final List<int[]> union = new ArrayList<int[]>(boxes);
+                for (int j = 0; j < next.size() && boxes != null; j++) {
+                    List<int[]> pieces = Collections.singletonList(next
+                            .get(j));
+                    for (int k = 0; k < boxes.size() && pieces != null; k++) {
+                        pieces = CompositeArea.subtract(pieces, boxes.get(k));
+                    }
+                    if (pieces == null) {
+                        return null;
+                    }
+                    union.addAll(pieces);
+                }
+                boxes = union.size() > CompositeArea.MAX_BOXES ? null : union;
+                break;
+            }
+        }
+        return boxes;
+    }
+
+    /**
+     * The maximum X value of the area's bounding box.
+     *
+     * @return The maximum X value.
+     */
+    @Override
+    public double getMaxX() {
+        return this.upper(Area::getMaxX);
+    }
+
+    /**
+     * The maximum Y value of the area's bounding box.
+     *
+     * @return The maximum Y value.
+     */
+    @Override
+    public double getMaxY() {
+        return this.upper(Area::getMaxY);
+    }
+
+    /**
+     * The maximum Z value of the area's bounding box.
+     *
+     * @return The maximum Z value.
+     */
+    @Override
+    public double getMaxZ() {
+        return this.upper(Area::getMaxZ);
+    }
+
+    /**
+     * The minimum X value of the area's bounding box.
+     *
+     * @return The minimum X value.
+     */
+    @Override
+    public double getMinX() {
+        return this.lower(Area::getMinX);
+    }
+
+    /**
+     * The minimum Y value of the area's bounding box.
+     *
+     * @return The minimum Y value.
+     */
+    @Override
+    public double getMinY() {
+        return this.lower(Area::getMinY);
+    }
+
+    /**
+     * The minimum Z value of the area's bounding box.
+     *
+     * @return The minimum Z value.
+     */
+    @Override
+    public double getMinZ() {
+        return this.lower(Area::getMinZ);
+    }
+
+    /**
+     * The operation joining the areas.
+     *
+     * @return The operation joining the areas.
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order, limited to the height of the world.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    @Override
+    public Spliterator.OfLong getPositions() {
+        final int[] b = this.getBlockBounds();
+        return new SpanSpliterator(this::getSpans, b[0], b[1], b[2], b[3],
+                b[4], b[5], this.size(b));
+    }
+
+    @Override
+    int[] getSpans(final int y, final int z) {
+        int[] spans = areas[0].getSpans(y, z);
+        switch (operation) {
+        case DIFFERENCE:
+            for (int i = 1; i < areas.length && spans.length > 0; i++) {
+                spans = Spans.subtract(spans, areas[i].getSpans(y, z));
+            }
+            break;
+        case INTERSECTION:
+            for (int i = 1; i < areas.length && spans.length > 0; i++) {
+                spans = Spans.intersect(spans, areas[i].getSpans(y, z));
+            }
+            break;
+        default:
+            for (int i = 1; i < areas.length; i++) {
+                spans = Spans.union(spans, areas[i].getSpans(y, z));
+            }
+            break;
+        }
+        return spans;
+    }
+
+    /**
+     * Fetches the total amount of blocks within the area, limited to the
+     * height of the world. Areas of more than {@link Integer#MAX_VALUE} blocks
+     * report that value; see {@link #size()}.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    @Override
+    public int getTotalBlocks() {
+        return (int) Math.min(this.size(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public World getWorld() {
+        return world;
+    }
+
+    private double lower(final ToDoubleFunction<Area> bound) {
+        double value = bound.applyAsDouble(areas[0]);
+        if (operation != Operation.DIFFERENCE) {
+            for (int i = 1; i < areas.length; i++) {
+                final double v = bound.applyAsDouble(areas[i]);
+                value = operation == Operation.UNION ? Math.min(value, v)
+                        : Math.max(value, v);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Composite areas can not be moved; move the areas they are made of
+     * instead.
+     *
+     * @throws InvalidDirectionException
+     *             Always thrown.
+     */
+    @Override
+    public void shift(final Direction direction, final int amount)
+            throws InvalidDirectionException {
+        throw new InvalidDirectionException("Cannot shift this area.");
+    }
+
+    /**
+     * Composite areas can not be resized; resize the areas they are made of
+     * instead.
+     *
+     * @throws InvalidDirectionException
+     *             Always thrown.
+     */
+    @Override
+    public void shrink(final Direction direction, final int amount)
+            throws InvalidDirectionException {
+        throw new InvalidDirectionException("Cannot shrink this area.");
+    }
+
+    /**
+     * The total amount of blocks within the height of the world, counted
+     * again on every call as the areas it is made of may have changed.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    public long size() {
+        return this.size(this.getBlockBounds());
+    }
+
+    /**
+     * Counts the blocks within the area, from the boxes it splits into when
+     * it can be, otherwise from the runs of every row within the bounds.
+     */
+    private long size(final int[] bounds) {
+        long size = 0;
+        final List<int[]> boxes = this.getBoxes();
+        if (boxes != null) {
+            for (final int[] box : boxes) {
+                // Boxes are already limited to the height of the world
+                size += (long) Area.count(box[0], box[3])
+                        * Area.count(box[1], box[4])
+                        * Area.count(box[2], box[5]);
+            }
+            return size;
+        }
+        for (int y = bounds[1]; y <= bounds[4]; y++) {
+            for (int z = bounds[2]; z <= bounds[5]; z++) {
+                size += Spans.count(this.getSpans(y, z));
+            }
+        }
+        return size;
+    }
+
+    private double upper(final ToDoubleFunction<Area> bound) {
+        double value = bound.applyAsDouble(areas[0]);
+        if (operation != Operation.DIFFERENCE) {
+            for (int i = 1; i < areas.length; i++) {
+                final double v = bound.applyAsDouble(areas[i]);
+                value = operation == Operation.UNION ? Math.max(value, v)
+                        : Math.min(value, v);
+            }
+        }
+        return value;
+    }
+}
@@ -1,6 +1,7 @@
 package org.monstercraft.area.api.wrappers;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Spliterator;
 
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -8,22 +9,18 @@ import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.monstercraft.area.AreaAPI;
 import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.RayHit;
 import org.monstercraft.area.api.exception.InvalidDirectionException;
 import org.monstercraft.area.api.exception.InvalidWorldException;
 
-public class CubedArea extends Area {
+/**
+ * An axis aligned box between two corners. The bounds are swapped as a whole
+ * when the area is expanded, shrunk or shifted, so the area can be checked
+ * from any thread while it is being changed.
+ */
+public class CubedArea extends Area implements Cloneable {
 
-    private double maxx;
-
-    private double minx;
-
-    private double maxy;
-
-    private double miny;
-
-    private double maxz;
-
-    private double minz;
+    private volatile Box box;
 
     private final World world;
 
@@ -62,12 +59,9 @@ public class CubedArea extends Area {
         if (!l1.getWorld().equals(l2.getWorld())) {
             throw new InvalidWorldException(type + " on seprate worlds");
         }
-        maxx = AreaAPI.getMaxX(l1, l2);
-        maxy = AreaAPI.getMaxY(l1, l2);
-        minx = AreaAPI.getMinX(l1, l2);
-        miny = AreaAPI.getMinY(l1, l2);
-        maxz = AreaAPI.getMaxZ(l1, l2);
-        minz = AreaAPI.getMinZ(l1, l2);
+        box = new Box(AreaAPI.getMinX(l1, l2), AreaAPI.getMinY(l1, l2),
+                AreaAPI.getMinZ(l1, l2), AreaAPI.getMaxX(l1, l2),
+                AreaAPI.getMaxY(l1, l2), AreaAPI.getMaxZ(l1, l2));
         world = l1.getWorld();
     }
 
@@ -98,6 +92,24 @@ public class CubedArea extends Area {
         return this.contains(block.getLocation());
     }
 
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        final Box b = box;
+        return x <= b.maxx && y <= b.maxy && z <= b.maxz && x >= b.minx
+                && y >= b.miny && z >= b.minz;
+    }
+
     /**
      * Checks if the location is within the area.
      *
@@ -107,10 +119,11 @@ public class CubedArea extends Area {
      */
     @Override
     public boolean contains(final Location loc) {
-        return loc.getWorld().equals(world) ? loc.getX() <= maxx
-                && loc.getY() <= maxy && loc.getX() >= minx
-                && loc.getY() >= miny && loc.getZ() <= maxz
-                && loc.getZ() >= minz && loc.getZ() <= maxz : false;
+        final Box b = box;
+        return loc.getWorld().equals(world) ? loc.getX() <= b.maxx
+                && loc.getY() <= b.maxy && loc.getX() >= b.minx
+                && loc.getY() >= b.miny && loc.getZ() <= b.maxz
+                && loc.getZ() >= b.minz : false;
     }
 
     /**
@@ -125,6 +138,73 @@ public class CubedArea extends Area {
         return this.contains(player.getLocation());
     }
 
+    /**
+     * Checks which of the positions, within the world of the area, are within
+     * the area.
+     *
+     * @param xs
+     *            The X coordinates of the positions.
+     * @param ys
+     *            The Y coordinates of the positions.
+     * @param zs
+     *            The Z coordinates of the positions.
+     * @param out
+     *            The set to record the results in.
+     * @return The amount of positions within the area.
+     */
+    @Override
+    public int containsAll(final double[] xs, final double[] ys,
+            final double[] zs, final BitSet out) {
+        final Box b = box;
+        return Area.containsAll(xs, ys, zs, out, b.minx, b.miny, b.minz,
+                b.maxx, b.maxy, b.maxz);
+    }
+
+    /**
+     * Checks which of the blocks at the coordinates, within the world of the
+     * area, are within the area.
+     *
+     * @param xs
+     *            The X coordinates of the blocks.
+     * @param ys
+     *            The Y coordinates of the blocks.
+     * @param zs
+     *            The Z coordinates of the blocks.
+     * @param out
+     *            The set to record the results in.
+     * @return The amount of blocks within the area.
+     */
+    @Override
+    public int containsAll(final int[] xs, final int[] ys, final int[] zs,
+            final BitSet out) {
+        final Box b = box;
+        return Area.containsAll(xs, ys, zs, out, Area.blockMin(b.minx),
+                Area.blockMin(b.miny), Area.blockMin(b.minz),
+                Area.blockMax(b.maxx), Area.blockMax(b.maxy),
+                Area.blockMax(b.maxz));
+    }
+
+    /**
+     * Measures the distance from the location to the box of the area.
+     *
+     * @param loc
+     *            The location to measure from.
+     * @return 0 if the area contains the location, otherwise the distance to
+     *         the closest point of the box, or infinity if the location is
+     *         within another world.
+     */
+    @Override
+    public double distanceTo(final Location loc) {
+        if (!loc.getWorld().equals(world)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final Box b = box;
+        final double dx = Area.gap(loc.getX(), b.minx, b.maxx);
+        final double dy = Area.gap(loc.getY(), b.miny, b.maxy);
+        final double dz = Area.gap(loc.getZ(), b.minz, b.maxz);
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
     /**
      * Expands the area.
      *
@@ -136,8 +216,15 @@ public class CubedArea extends Area {
      *             Thrown when the specified direction is invalid for the Area.
      */
     @Override
-    public void expand(final Direction d, final int amount)
+    public synchronized void expand(final Direction d, final int amount)
             throws InvalidDirectionException {
+        final Box b = box;
+        double minx = b.minx;
+        double miny = b.miny;
+        double minz = b.minz;
+        double maxx = b.maxx;
+        double maxy = b.maxy;
+        double maxz = b.maxz;
         if (d.equals(Direction.ALL)) {
             if (miny - amount < 0) {
                 throw new InvalidDirectionException("Minimum height reached");
@@ -177,6 +264,33 @@ public class CubedArea extends Area {
         } else {
             throw new InvalidDirectionException("Invalid direction specified");
         }
+        box = new Box(minx, miny, minz, maxx, maxy, maxz);
+    }
+
+    /**
+     * Fetches a copy of the area holding the bounds it has now. The bounds are
+     * an immutable box swapped as a whole, so the copy is a clone sharing the
+     * current box, and keeps the class of the area along with any overrides.
+     * Subclasses holding state of their own which changes should override
+     * this to copy that state too.
+     *
+     * @return A copy of the area.
+     */
+    @Override
+    public CubedArea freeze() {
+        try {
+            return (CubedArea) super.clone();
+        } catch (final CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    int[] getBlockBox() {
+        final Box b = box;
+        return new int[] { Area.blockMin(b.minx), this.getBlockMinY(b),
+                Area.blockMin(b.minz), Area.blockMax(b.maxx),
+                this.getBlockMaxY(b), Area.blockMax(b.maxz) };
     }
 
     /**
@@ -186,24 +300,15 @@ public class CubedArea extends Area {
      */
     @Override
     public Block[] getBlocks() {
-        final ArrayList<Block> tileList = new ArrayList<Block>();
-        int y = (int) this.getMinY();
-        do {
-            int x = (int) this.getMinX();
-            do {
-                int z = (int) this.getMinZ();
-                do {
-                    if (this.contains(world.getBlockAt(x, y, z))) {
-                        tileList.add(world.getBlockAt(x, y, z));
-                    }
-                    z++;
-                } while (z <= this.getMaxZ());
-                x++;
-            } while (x <= this.getMaxX());
-            y++;
-        } while (y <= this.getMaxY());
-        final Block[] tileArray = new Block[tileList.size()];
-        return tileList.toArray(tileArray);
+        return Area.toArray(world, this.getPositions());
+    }
+
+    private int getBlockMaxY(final Box b) {
+        return Math.min(Area.blockMax(b.maxy), world.getMaxHeight() - 1);
+    }
+
+    private int getBlockMinY(final Box b) {
+        return Math.max(Area.blockMin(b.miny), 0);
     }
 
     /**
@@ -212,7 +317,8 @@ public class CubedArea extends Area {
      * @return The height of the area.
      */
     public double getHeight() {
-        return maxy - miny;
+        final Box b = box;
+        return b.maxy - b.miny;
     }
 
     /**
@@ -221,7 +327,8 @@ public class CubedArea extends Area {
      * @return The length of the area.
      */
     public double getLength() {
-        return maxx - minx;
+        final Box b = box;
+        return b.maxx - b.minx;
     }
 
     /**
@@ -229,8 +336,9 @@ public class CubedArea extends Area {
      *
      * @return The maximum X value of the area.
      */
+    @Override
     public double getMaxX() {
-        return maxx;
+        return box.maxx;
     }
 
     /**
@@ -238,8 +346,9 @@ public class CubedArea extends Area {
      *
      * @return The maximum Y value of the area.
      */
+    @Override
     public double getMaxY() {
-        return maxy;
+        return box.maxy;
     }
 
     /**
@@ -247,8 +356,9 @@ public class CubedArea extends Area {
      *
      * @return The maximum Z value of the area.
      */
+    @Override
     public double getMaxZ() {
-        return maxz;
+        return box.maxz;
     }
 
     /**
@@ -256,8 +366,9 @@ public class CubedArea extends Area {
      *
      * @return The minimum X value of the area.
      */
+    @Override
     public double getMinX() {
-        return minx;
+        return box.minx;
     }
 
     /**
@@ -265,8 +376,9 @@ public class CubedArea extends Area {
      *
      * @return The minimum Y value of the area.
      */
+    @Override
     public double getMinY() {
-        return miny;
+        return box.miny;
     }
 
     /**
@@ -274,8 +386,23 @@ public class CubedArea extends Area {
      *
      * @return The minimum Z value of the area.
      */
+    @Override
     public double getMinZ() {
-        return minz;
+        return box.minz;
+    }
+
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order, limited to the height of the world.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    @Override
+    public Spliterator.OfLong getPositions() {
+        final Box b = box;
+        return new BoxSpliterator(Area.blockMin(b.minx), this.getBlockMinY(b),
+                Area.blockMin(b.minz), Area.blockMax(b.maxx),
+                this.getBlockMaxY(b), Area.blockMax(b.maxz));
     }
 
     /**
@@ -285,8 +412,10 @@ public class CubedArea extends Area {
      */
     @Override
     public int getTotalBlocks() {
-        return (int) this.getLength() * (int) this.getWidth()
-                * (int) this.getHeight();
+        final Box b = box;
+        return Area.count(Area.blockMin(b.minx), Area.blockMax(b.maxx))
+                * Area.count(this.getBlockMinY(b), this.getBlockMaxY(b))
+                * Area.count(Area.blockMin(b.minz), Area.blockMax(b.maxz));
     }
 
     /**
@@ -295,7 +424,8 @@ public class CubedArea extends Area {
      * @return The width of the area.
      */
     public double getWidth() {
-        return maxz - minz;
+        final Box b = box;
+        return b.maxz - b.minz;
     }
 
     /**
@@ -309,9 +439,55 @@ public class CubedArea extends Area {
     }
 
     @Override
-    public void shift(final Direction direction, final int amount) {
-        // TODO Auto-generated method stub
+    RayHit intersectRay(final double ox, final double oy, final double oz,
+            final double dx, final double dy, final double dz,
+            final double maxDistance) {
+        final Box b = box;
+        return Area.clip(this, ox, oy, oz, dx, dy, dz, maxDistance, b.minx,
+                b.miny, b.minz, b.maxx, b.maxy, b.maxz);
+    }
 
+    /**
+     * Shifts the area.
+     *
+     * @param d
+     *            The direction to shift.
+     * @param amount
+     *            The amount of blocks to shift the area by.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public synchronized void shift(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        final Box b = box;
+        double dx = 0;
+        double dy = 0;
+        double dz = 0;
+        if (d.equals(Direction.UP)) {
+            if (b.maxy + amount > world.getMaxHeight()) {
+                throw new InvalidDirectionException("Maximum height reached");
+            }
+            dy = amount;
+        } else if (d.equals(Direction.DOWN)) {
+            if (b.miny - amount < 0) {
+                throw new InvalidDirectionException("Minimum height reached");
+            }
+            dy = -amount;
+        } else if (d.equals(Direction.NORTH)) {
+            dz = -amount;
+        } else if (d.equals(Direction.SOUTH)) {
+            dz = amount;
+        } else if (d.equals(Direction.EAST)) {
+            dx = amount;
+        } else if (d.equals(Direction.WEST)) {
+            dx = -amount;
+        } else {
+            throw new InvalidDirectionException("Cannot shift in direction "
+                    + d.toString());
+        }
+        box = new Box(b.minx + dx, b.miny + dy, b.minz + dz, b.maxx + dx,
+                b.maxy + dy, b.maxz + dz);
     }
 
     /**
@@ -325,8 +501,15 @@ public class CubedArea extends Area {
      *             Thrown when the specified direction is invalid for the Area.
      */
     @Override
-    public void shrink(final Direction d, final int amount)
+    public synchronized void shrink(final Direction d, final int amount)
             throws InvalidDirectionException {
+        final Box b = box;
+        double minx = b.minx;
+        double miny = b.miny;
+        double minz = b.minz;
+        double maxx = b.maxx;
+        double maxy = b.maxy;
+        double maxz = b.maxz;
         if (d.equals(Direction.ALL)) {
             maxz -= amount;
             maxx -= amount;
@@ -360,5 +543,6 @@ public class CubedArea extends Area {
         } else {
             throw new InvalidDirectionException("Invalid direction specified");
         }
+        box = new Box(minx, miny, minz, maxx, maxy, maxz);
     }
 }
@@ -0,0 +1,256 @@
+package org.monstercraft.area.api.wrappers;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.exception.InvalidDirectionException;
+import org.monstercraft.area.api.exception.InvalidValueException;
+
+/**
+ * An upright cylinder of blocks standing on a base block. A block is within
+ * the cylinder when it is within its height and the squared horizontal
+ * distance between it and the base is at most the squared radius.
+ */
+public class CylindricalArea extends RoundArea {
+
+    private int radius;
+
+    private int height;
+
+    /**
+     * Creates a cylinder standing on the block.
+     *
+     * @param base
+     *            The center block of the bottom layer.
+     * @param radius
+     *            The radius in blocks.
+     * @param height
+     *            The amount of layers.
+     * @throws InvalidValueException
+     *             Thrown when the radius is negative, the height is not
+     *             positive or the cylinder does not fit within the world.
+     */
+    public CylindricalArea(final Block base, final int radius, final int height)
+            throws InvalidValueException {
+        this(base.getLocation(), radius, height);
+    }
+
+    /**
+     * Creates a cylinder standing on the block of the location.
+     *
+     * @param base
+     *            The location of the center block of the bottom layer.
+     * @param radius
+     *            The radius in blocks.
+     * @param height
+     *            The amount of layers.
+     * @throws InvalidValueException
+     *             Thrown when the radius is negative, the height is not
+     *             positive or the cylinder does not fit within the world.
+     */
+    public CylindricalArea(final Location base, final int radius,
+            final int height) throws InvalidValueException {
+        super(base.getWorld(), base.getBlockX(), base.getBlockY(), base
+                .getBlockZ());
+        if (radius < 0) {
+            throw new InvalidValueException("The radius can not be negative");
+        }
+        if (height < 1) {
+            throw new InvalidValueException("The height must be positive");
+        }
+        if (cy < 0 || (long) cy + height > world.getMaxHeight()) {
+            throw new InvalidValueException(
+                    "The cylinder does not fit within the world");
+        }
+        this.radius = radius;
+        this.height = height;
+    }
+
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        if (y < cy || y - cy >= height) {
+            return false;
+        }
+        final long dx = x - cx;
+        final long dz = z - cz;
+        return dx * dx + dz * dz <= (long) radius * radius;
+    }
+
+    /**
+     * Expands the cylinder. The radius grows when expanding in all
+     * directions or expanding the sides, and the cylinder grows taller when
+     * expanding up or down.
+     *
+     * @param d
+     *            The direction to expand.
+     * @param amount
+     *            The amount of blocks to expand the area by.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void expand(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        if (d.equals(Direction.ALL) || d.equals(Direction.SIDES)) {
+            this.resize((long) radius + amount, cy, height);
+        } else if (d.equals(Direction.UP)) {
+            this.resize(radius, cy, (long) height + amount);
+        } else if (d.equals(Direction.DOWN)) {
+            this.resize(radius, (long) cy - amount, (long) height + amount);
+        } else {
+            throw new InvalidDirectionException("Cannot expand in direction "
+                    + d.toString());
+        }
+    }
+
+    @Override
+    int getHalfWidth(final int y, final int z) {
+        final long dz = z - cz;
+        final long rest = (long) radius * radius - dz * dz;
+        return rest < 0 ? -1 : (int) RoundArea.sqrt(rest);
+    }
+
+    /**
+     * The amount of layers of the cylinder.
+     *
+     * @return The height in blocks.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * The maximum X value of the cylinder. The bounds cover the whole of
+     * every block, so this is just below the far edge of the furthest block.
+     *
+     * @return The maximum X value.
+     */
+    @Override
+    public double getMaxX() {
+        return Math.nextDown(cx + radius + 1.0);
+    }
+
+    /**
+     * The maximum Y value of the cylinder, just below the top of the highest
+     * layer.
+     *
+     * @return The maximum Y value.
+     */
+    @Override
+    public double getMaxY() {
+        return Math.nextDown((double) cy + height);
+    }
+
+    /**
+     * The maximum Z value of the cylinder. The bounds cover the whole of
+     * every block, so this is just below the far edge of the furthest block.
+     *
+     * @return The maximum Z value.
+     */
+    @Override
+    public double getMaxZ() {
+        return Math.nextDown(cz + radius + 1.0);
+    }
+
+    /**
+     * The minimum X value of the cylinder.
+     *
+     * @return The minimum X value.
+     */
+    @Override
+    public double getMinX() {
+        return cx - radius;
+    }
+
+    /**
+     * The minimum Y value of the cylinder, the bottom of the lowest layer.
+     *
+     * @return The minimum Y value.
+     */
+    @Override
+    public double getMinY() {
+        return cy;
+    }
+
+    /**
+     * The minimum Z value of the cylinder.
+     *
+     * @return The minimum Z value.
+     */
+    @Override
+    public double getMinZ() {
+        return cz - radius;
+    }
+
+    /**
+     * The radius of the cylinder.
+     *
+     * @return The radius in blocks.
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Changes the radius, bottom layer and height, keeping the radius within
+     * the values an int can hold and the layers within the world.
+     */
+    private void resize(final long radius, final long bottom,
+            final long height) throws InvalidDirectionException {
+        if (radius < 0) {
+            throw new InvalidDirectionException("Minimum radius reached");
+        }
+        if (radius > Integer.MAX_VALUE) {
+            throw new InvalidDirectionException("Maximum radius reached");
+        }
+        if (height < 1 || bottom < 0) {
+            throw new InvalidDirectionException("Minimum height reached");
+        }
+        if (bottom + height > world.getMaxHeight()) {
+            throw new InvalidDirectionException("Maximum height reached");
+        }
+        this.radius = (int) radius;
+        cy = (int) bottom;
+        this.height = (int) height;
+        this.changed();
+    }
+
+    /**
+     * Shrinks the cylinder. The radius shrinks when shrinking in all
+     * directions or shrinking the sides, and the cylinder grows shorter when shrinking up or down:
+     * shrinking up lowers the top layer and shrinking down raises the bottom
+     * layer.
+     *
+     * @param d
+     *            The direction to shrink.
+     * @param amount
+     *            The amount of blocks to shrink the area by.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void shrink(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        if (d.equals(Direction.ALL) || d.equals(Direction.SIDES)) {
+            this.resize((long) radius - amount, cy, height);
+        } else if (d.equals(Direction.UP)) {
+            this.resize(radius, cy, (long) height - amount);
+        } else if (d.equals(Direction.DOWN)) {
+            this.resize(radius, (long) cy + amount, (long) height - amount);
+        } else {
+            throw new InvalidDirectionException("Cannot shrink in direction "
+                    + d.toString());
+        }
+    }
+}
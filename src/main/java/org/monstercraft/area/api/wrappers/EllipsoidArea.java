@@ -0,0 +1,313 @@
+package org.monstercraft.area.api.wrappers;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.exception.InvalidDirectionException;
+import org.monstercraft.area.api.exception.InvalidValueException;
+
+/**
+ * An ellipsoid of blocks around a center block, with its own radius along
+ * every axis. A block is within the ellipsoid when
+ * {@code (dx/rx)^2 + (dy/ry)^2 + (dz/rz)^2 <= 1}, which is checked with
+ * every term multiplied by {@code (rx*ry*rz)^2} so no division is made.
+ */
+public class EllipsoidArea extends RoundArea {
+
+    /**
+     * The largest product of the radii. The scaled terms of a block within
+     * the bounds sum to at most three times the squared product, which stays
+     * within a long.
+     */
+    private static final long MAX_VOLUME = 1700000000L;
+
+    private int rx;
+
+    private int ry;
+
+    private int rz;
+
+    /**
+     * The scale of the squared X distance, {@code (ry*rz)^2}.
+     */
+    private long a;
+
+    /**
+     * The scale of the squared Y distance, {@code (rx*rz)^2}.
+     */
+    private long b;
+
+    /**
+     * The scale of the squared Z distance, {@code (rx*ry)^2}.
+     */
+    private long c;
+
+    /**
+     * The squared product of all radii.
+     */
+    private long k;
+
+    /**
+     * Creates an ellipsoid around the block.
+     *
+     * @param center
+     *            The center block.
+     * @param rx
+     *            The radius along the X axis in blocks.
+     * @param ry
+     *            The radius along the Y axis in blocks.
+     * @param rz
+     *            The radius along the Z axis in blocks.
+     * @throws InvalidValueException
+     *             Thrown when a radius is not positive or the radii are too
+     *             large.
+     */
+    public EllipsoidArea(final Block center, final int rx, final int ry,
+            final int rz) throws InvalidValueException {
+        this(center.getLocation(), rx, ry, rz);
+    }
+
+    /**
+     * Creates an ellipsoid around the block of the location.
+     *
+     * @param center
+     *            The location of the center block.
+     * @param rx
+     *            The radius along the X axis in blocks.
+     * @param ry
+     *            The radius along the Y axis in blocks.
+     * @param rz
+     *            The radius along the Z axis in blocks.
+     * @throws InvalidValueException
+     *             Thrown when a radius is not positive or the radii are too
+     *             large.
+     */
+    public EllipsoidArea(final Location center, final int rx, final int ry,
+            final int rz) throws InvalidValueException {
+        super(center.getWorld(), center.getBlockX(), center.getBlockY(),
+                center.getBlockZ());
+        if (rx < 1 || ry < 1 || rz < 1) {
+            throw new InvalidValueException("The radii must be positive");
+        }
+        if (!EllipsoidArea.fits(rx, ry, rz)) {
+            throw new InvalidValueException("The radii are too large");
+        }
+        this.resize(rx, ry, rz);
+    }
+
+    private static boolean fits(final long rx, final long ry, final long rz) {
+        return rx <= EllipsoidArea.MAX_VOLUME && ry <= EllipsoidArea.MAX_VOLUME
+                && rx * ry <= EllipsoidArea.MAX_VOLUME
+                && rx * ry * rz <= EllipsoidArea.MAX_VOLUME;
+    }
+
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        final long dx = x - cx;
+        final long dy = y - cy;
+        final long dz = z - cz;
+        if (Math.abs(dx) > rx || Math.abs(dy) > ry || Math.abs(dz) > rz) {
+            return false;
+        }
+        return dx * dx * a + dy * dy * b + dz * dz * c <= k;
+    }
+
+    /**
+     * Expands the ellipsoid. Expanding in all directions grows every radius,
+     * expanding the sides grows the X and Z radii, expanding up or down grows
+     * the Y radius, expanding north or south grows the Z radius and expanding
+     * east or west grows the X radius.
+     *
+     * @param d
+     *            The direction to expand.
+     * @param amount
+     *            The amount of blocks to add to the radii.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void expand(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        this.change(d, amount, "expand");
+    }
+
+    /**
+     * Applies a change of the radii in a direction.
+     */
+    private void change(final Direction d, final int amount,
+            final String action) throws InvalidDirectionException {
+        long x = rx;
+        long y = ry;
+        long z = rz;
+        if (d.equals(Direction.ALL)) {
+            x += amount;
+            y += amount;
+            z += amount;
+        } else if (d.equals(Direction.SIDES)) {
+            x += amount;
+            z += amount;
+        } else if (d.equals(Direction.UP) || d.equals(Direction.DOWN)) {
+            y += amount;
+        } else if (d.equals(Direction.NORTH) || d.equals(Direction.SOUTH)) {
+            z += amount;
+        } else if (d.equals(Direction.EAST) || d.equals(Direction.WEST)) {
+            x += amount;
+        } else {
+            throw new InvalidDirectionException("Cannot " + action
+                    + " in direction " + d.toString());
+        }
+        if (x < 1 || y < 1 || z < 1) {
+            throw new InvalidDirectionException("Minimum radius reached");
+        }
+        if (!EllipsoidArea.fits(x, y, z)) {
+            throw new InvalidDirectionException("Maximum radius reached");
+        }
+        this.resize((int) x, (int) y, (int) z);
+    }
+
+    @Override
+    int getHalfWidth(final int y, final int z) {
+        final long dy = y - cy;
+        final long dz = z - cz;
+        if (Math.abs(dy) > ry || Math.abs(dz) > rz) {
+            return -1;
+        }
+        final long rest = k - dy * dy * b - dz * dz * c;
+        return rest < 0 ? -1 : (int) RoundArea.sqrt(rest / a);
+    }
+
+    /**
+     * The maximum X value of the ellipsoid. The bounds cover the whole of
+     * every block, so this is just below the far edge of the furthest block.
+     *
+     * @return The maximum X value.
+     */
+    @Override
+    public double getMaxX() {
+        return Math.nextDown(cx + rx + 1.0);
+    }
+
+    /**
+     * The maximum Y value of the ellipsoid. The bounds cover the whole of
+     * every block, so this is just below the far edge of the furthest block.
+     *
+     * @return The maximum Y value.
+     */
+    @Override
+    public double getMaxY() {
+        return Math.nextDown(cy + ry + 1.0);
+    }
+
+    /**
+     * The maximum Z value of the ellipsoid. The bounds cover the whole of
+     * every block, so this is just below the far edge of the furthest block.
+     *
+     * @return The maximum Z value.
+     */
+    @Override
+    public double getMaxZ() {
+        return Math.nextDown(cz + rz + 1.0);
+    }
+
+    /**
+     * The minimum X value of the ellipsoid.
+     *
+     * @return The minimum X value.
+     */
+    @Override
+    public double getMinX() {
+        return cx - rx;
+    }
+
+    /**
+     * The minimum Y value of the ellipsoid.
+     *
+     * @return The minimum Y value.
+     */
+    @Override
+    public double getMinY() {
+        return cy - ry;
+    }
+
+    /**
+     * The minimum Z value of the ellipsoid.
+     *
+     * @return The minimum Z value.
+     */
+    @Override
+    public double getMinZ() {
+        return cz - rz;
+    }
+
+    /**
+     * The radius of the ellipsoid along the X axis.
+     *
+     * @return The radius in blocks.
+     */
+    public int getRadiusX() {
+        return rx;
+    }
+
+    /**
+     * The radius of the ellipsoid along the Y axis.
+     *
+     * @return The radius in blocks.
+     */
+    public int getRadiusY() {
+        return ry;
+    }
+
+    /**
+     * The radius of the ellipsoid along the Z axis.
+     *
+     * @return The radius in blocks.
+     */
+    public int getRadiusZ() {
+        return rz;
+    }
+
+    private void resize(final int x, final int y, final int z) {
+        rx = x;
+        ry = y;
+        rz = z;
+        final long yz = (long) y * z;
+        final long xz = (long) x * z;
+        final long xy = (long) x * y;
+        a = yz * yz;
+        b = xz * xz;
+        c = xy * xy;
+        k = xy * z * xy * z;
+        this.changed();
+    }
+
+    /**
+     * Shrinks the ellipsoid. Shrinking in all directions shrinks every
+     * radius, shrinking the sides shrinks the X and Z radii, shrinking up or
+     * down shrinks the Y radius, shrinking north or south shrinks the Z
+     * radius and shrinking east or west shrinks the X radius. No radius can
+     * shrink below one block.
+     *
+     * @param d
+     *            The direction to shrink.
+     * @param amount
+     *            The amount of blocks to take from the radii.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void shrink(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        this.change(d, -amount, "shrink");
+    }
+}
@@ -1,6 +1,7 @@
 package org.monstercraft.area.api.wrappers;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Spliterator;
 
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -8,18 +9,18 @@ import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.monstercraft.area.AreaAPI;
 import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.RayHit;
 import org.monstercraft.area.api.exception.InvalidDirectionException;
 import org.monstercraft.area.api.exception.InvalidWorldException;
 
-public class HeightlessArea extends Area {
+/**
+ * A box between two corners which spans every height, including the locations
+ * above and below the world. The bounds are swapped as a whole when the area
+ * is expanded, shrunk or shifted.
+ */
+public class HeightlessArea extends Area implements Cloneable {
 
-    private double maxx;
-
-    private double minx;
-
-    private double maxz;
-
-    private double minz;
+    private volatile Box box;
 
     private final World world;
 
@@ -58,10 +59,8 @@ public class HeightlessArea extends Area {
         if (!l1.getWorld().equals(l2.getWorld())) {
             throw new InvalidWorldException(type + " on seprate worlds");
         }
-        maxx = AreaAPI.getMaxX(l1, l2);
-        maxz = AreaAPI.getMaxZ(l1, l2);
-        minx = AreaAPI.getMinX(l1, l2);
-        minz = AreaAPI.getMinZ(l1, l2);
+        box = new Box(AreaAPI.getMinX(l1, l2), 0, AreaAPI.getMinZ(l1, l2),
+                AreaAPI.getMaxX(l1, l2), 0, AreaAPI.getMaxZ(l1, l2));
         world = l1.getWorld();
     }
 
@@ -92,6 +91,23 @@ public class HeightlessArea extends Area {
         return this.contains(block.getLocation());
     }
 
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        final Box b = box;
+        return x <= b.maxx && z <= b.maxz && x >= b.minx && z >= b.minz;
+    }
+
     /**
      * Checks if the location is within the area.
      *
@@ -101,9 +117,10 @@ public class HeightlessArea extends Area {
      */
     @Override
     public boolean contains(final Location loc) {
-        return loc.getWorld().equals(world) ? loc.getX() <= maxx
-                && loc.getZ() <= maxz && loc.getX() >= minx
-                && loc.getZ() >= minz : false;
+        final Box b = box;
+        return loc.getWorld().equals(world) ? loc.getX() <= b.maxx
+                && loc.getZ() <= b.maxz && loc.getX() >= b.minx
+                && loc.getZ() >= b.minz : false;
     }
 
     /**
@@ -118,6 +135,73 @@ public class HeightlessArea extends Area {
         return this.contains(player.getLocation());
     }
 
+    /**
+     * Checks which of the positions, within the world of the area, are within
+     * the area.
+     *
+     * @param xs
+     *            The X coordinates of the positions.
+     * @param ys
+     *            The Y coordinates of the positions.
+     * @param zs
+     *            The Z coordinates of the positions.
+     * @param out
+     *            The set to record the results in.
+     * @return The amount of positions within the area.
+     */
+    @Override
+    public int containsAll(final double[] xs, final double[] ys,
+            final double[] zs, final BitSet out) {
+        final Box b = box;
+        return Area.containsAll(xs, ys, zs, out, b.minx,
+                Double.NEGATIVE_INFINITY, b.minz, b.maxx,
+                Double.POSITIVE_INFINITY, b.maxz);
+    }
+
+    /**
+     * Checks which of the blocks at the coordinates, within the world of the
+     * area, are within the area.
+     *
+     * @param xs
+     *            The X coordinates of the blocks.
+     * @param ys
+     *            The Y coordinates of the blocks.
+     * @param zs
+     *            The Z coordinates of the blocks.
+     * @param out
+     *            The set to record the results in.
+     * @return The amount of blocks within the area.
+     */
+    @Override
+    public int containsAll(final int[] xs, final int[] ys, final int[] zs,
+            final BitSet out) {
+        final Box b = box;
+        return Area.containsAll(xs, ys, zs, out, Area.blockMin(b.minx),
+                Integer.MIN_VALUE, Area.blockMin(b.minz), Area.blockMax(b.maxx),
+                Integer.MAX_VALUE, Area.blockMax(b.maxz));
+    }
+
+    /**
+     * Measures the horizontal distance from the location to the area, which
+     * spans every height.
+     *
+     * @param loc
+     *            The location to measure from.
+     * @return 0 if the area contains the location, otherwise the distance to
+     *         the closest point of the area, or infinity if the location is
+     *         within another world.
+     */
+    @Override
+    public double distanceTo(final Location loc) {
+        if (!loc.getWorld().equals(world)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final Box b = box;
+        final double dx = Area.gap(loc.getX(), b.minx, b.maxx);
+        final double dz = Area.gap(loc.getZ(), b.minz, b.maxz);
+        return Math.sqrt(dx * dx + dz * dz);
+    }
+
     /**
      * Expands the area.
      *
@@ -129,8 +213,13 @@ public class HeightlessArea extends Area {
      *             Thrown when the specified direction is invalid for the Area.
      */
     @Override
-    public void expand(final Direction d, final int amount)
+    public synchronized void expand(final Direction d, final int amount)
             throws InvalidDirectionException {
+        final Box b = box;
+        double minx = b.minx;
+        double minz = b.minz;
+        double maxx = b.maxx;
+        double maxz = b.maxz;
         if (d.equals(Direction.ALL) || d.equals(Direction.UP)
                 || d.equals(Direction.DOWN)) {
             throw new InvalidDirectionException("Cannot expand in direction "
@@ -149,6 +238,30 @@ public class HeightlessArea extends Area {
         } else if (d.equals(Direction.WEST)) {
             minx -= amount;
         }
+        box = new Box(minx, b.miny, minz, maxx, b.maxy, maxz);
+    }
+
+    /**
+     * Fetches a clone of the area sharing the box of bounds it has now, which
+     * keeps the class of the area and any overrides.
+     *
+     * @return A copy of the area.
+     */
+    @Override
+    public HeightlessArea freeze() {
+        try {
+            return (HeightlessArea) super.clone();
+        } catch (final CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    int[] getBlockBox() {
+        final Box b = box;
+        return new int[] { Area.blockMin(b.minx), 0, Area.blockMin(b.minz),
+                Area.blockMax(b.maxx), world.getMaxHeight() - 1,
+                Area.blockMax(b.maxz) };
     }
 
     /**
@@ -158,24 +271,7 @@ public class HeightlessArea extends Area {
      */
     @Override
     public Block[] getBlocks() {
-        final ArrayList<Block> tileList = new ArrayList<Block>();
-        int y = 0;
-        do {
-            int x = (int) this.getMinX();
-            do {
-                int z = (int) this.getMinZ();
-                do {
-                    if (this.contains(world.getBlockAt(x, y, z))) {
-                        tileList.add(world.getBlockAt(x, y, z));
-                    }
-                    z++;
-                } while (z <= this.getMaxZ());
-                x++;
-            } while (x <= this.getMaxX());
-            y++;
-        } while (y <= world.getMaxHeight());
-        final Block[] tileArray = new Block[tileList.size()];
-        return tileList.toArray(tileArray);
+        return Area.toArray(world, this.getPositions());
     }
 
     /**
@@ -184,7 +280,8 @@ public class HeightlessArea extends Area {
      * @return The length of the area.
      */
     public double getLength() {
-        return maxx - minx;
+        final Box b = box;
+        return b.maxx - b.minx;
     }
 
     /**
@@ -192,8 +289,20 @@ public class HeightlessArea extends Area {
      *
      * @return The maximum X value.
      */
+    @Override
     public double getMaxX() {
-        return maxx;
+        return box.maxx;
+    }
+
+    /**
+     * The maximum Y value. Heightless areas contain every location within
+     * their bounds whatever its height, so they have no maximum.
+     *
+     * @return Positive infinity.
+     */
+    @Override
+    public double getMaxY() {
+        return Double.POSITIVE_INFINITY;
     }
 
     /**
@@ -201,8 +310,9 @@ public class HeightlessArea extends Area {
      *
      * @return The maximum Z value.
      */
+    @Override
     public double getMaxZ() {
-        return maxz;
+        return box.maxz;
     }
 
     /**
@@ -210,8 +320,20 @@ public class HeightlessArea extends Area {
      *
      * @return The minimum X value.
      */
+    @Override
     public double getMinX() {
-        return minx;
+        return box.minx;
+    }
+
+    /**
+     * The minimum Y value. Heightless areas contain every location within
+     * their bounds whatever its height, so they have no minimum.
+     *
+     * @return Negative infinity.
+     */
+    @Override
+    public double getMinY() {
+        return Double.NEGATIVE_INFINITY;
     }
 
     /**
@@ -219,8 +341,23 @@ public class HeightlessArea extends Area {
      *
      * @return The minimum Z value.
      */
+    @Override
     public double getMinZ() {
-        return minz;
+        return box.minz;
+    }
+
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order, from the bottom to the top of the world.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    @Override
+    public Spliterator.OfLong getPositions() {
+        final Box b = box;
+        return new BoxSpliterator(Area.blockMin(b.minx), 0,
+                Area.blockMin(b.minz), Area.blockMax(b.maxx),
+                world.getMaxHeight() - 1, Area.blockMax(b.maxz));
     }
 
     /**
@@ -230,7 +367,9 @@ public class HeightlessArea extends Area {
      */
     @Override
     public int getTotalBlocks() {
-        return (int) this.getLength() * (int) this.getWidth()
+        final Box b = box;
+        return Area.count(Area.blockMin(b.minx), Area.blockMax(b.maxx))
+                * Area.count(Area.blockMin(b.minz), Area.blockMax(b.maxz))
                 * world.getMaxHeight();
     }
 
@@ -240,7 +379,8 @@ public class HeightlessArea extends Area {
      * @return The width of the area.
      */
     public double getWidth() {
-        return maxz - minz;
+        final Box b = box;
+        return b.maxz - b.minz;
     }
 
     /**
@@ -254,10 +394,45 @@ public class HeightlessArea extends Area {
     }
 
     @Override
-    public void shift(final Direction direction, final int amount)
-            throws InvalidDirectionException {
-        // TODO Auto-generated method stub
+    RayHit intersectRay(final double ox, final double oy, final double oz,
+            final double dx, final double dy, final double dz,
+            final double maxDistance) {
+        final Box b = box;
+        return Area.clip(this, ox, oy, oz, dx, dy, dz, maxDistance, b.minx,
+                Double.NEGATIVE_INFINITY, b.minz, b.maxx,
+                Double.POSITIVE_INFINITY, b.maxz);
+    }
 
+    /**
+     * Shifts the area.
+     *
+     * @param d
+     *            The direction to shift.
+     * @param amount
+     *            The amount of blocks to shift the area by.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public synchronized void shift(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        final Box b = box;
+        double dx = 0;
+        double dz = 0;
+        if (d.equals(Direction.NORTH)) {
+            dz = -amount;
+        } else if (d.equals(Direction.SOUTH)) {
+            dz = amount;
+        } else if (d.equals(Direction.EAST)) {
+            dx = amount;
+        } else if (d.equals(Direction.WEST)) {
+            dx = -amount;
+        } else {
+            throw new InvalidDirectionException("Cannot shift in direction "
+                    + d.toString());
+        }
+        box = new Box(b.minx + dx, b.miny, b.minz + dz, b.maxx + dx, b.maxy,
+                b.maxz + dz);
     }
 
     /**
@@ -271,8 +446,13 @@ public class HeightlessArea extends Area {
      *             Thrown when the specified direction is invalid for the Area.
      */
     @Override
-    public void shrink(final Direction d, final int amount)
+    public synchronized void shrink(final Direction d, final int amount)
             throws InvalidDirectionException {
+        final Box b = box;
+        double minx = b.minx;
+        double minz = b.minz;
+        double maxx = b.maxx;
+        double maxz = b.maxz;
         if (d.equals(Direction.ALL) || d.equals(Direction.UP)
                 || d.equals(Direction.DOWN)) {
             throw new InvalidDirectionException("Cannot expand in direction "
@@ -291,6 +471,7 @@ public class HeightlessArea extends Area {
         } else if (d.equals(Direction.WEST)) {
             minx += amount;
         }
+        box = new Box(minx, b.miny, minz, maxx, b.maxy, maxz);
     }
 
 }
@@ -0,0 +1,732 @@
+package org.monstercraft.area.api.wrappers;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.exception.InvalidDirectionException;
+import org.monstercraft.area.api.exception.InvalidValueException;
+import org.monstercraft.area.api.exception.InvalidWorldException;
+
+/**
+ * An area made of a polygon on the X/Z plane extruded between two heights,
+ * like a polygonal selection. The edges are kept in slabs between the sorted Z
+ * values of the vertices, so a containment check only looks at the few edges
+ * crossing the slab of the point. The blocks are enumerated from the runs of
+ * every row of the polygon, which are built once with a scanline.
+ */
+public class PolygonPrismArea extends Area {
+
+    private static Location[] toLocations(final Block[] blocks) {
+        final Location[] locations = new Location[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            locations[i] = blocks[i].getLocation();
+        }
+        return locations;
+    }
+
+    private final World world;
+
+    private final int[] vx;
+
+    private final int[] vz;
+
+    private double maxy;
+
+    private double miny;
+
+    private int maxx;
+
+    private int minx;
+
+    private int maxz;
+
+    private int minz;
+
+    private int[] ex0;
+
+    private int[] ez0;
+
+    private int[] ex1;
+
+    private int[] ez1;
+
+    private int[] levels;
+
+    private int[][] slabEdges;
+
+    private int[][] levelEdges;
+
+    private int[][] rows;
+
+    private long rowBlocks;
+
+    /**
+     * Creates a polygon prism spanning the height of the world using the
+     * blocks as the vertices of the polygon.
+     *
+     * @param vertices
+     *            The vertices of the polygon, in order.
+     * @throws InvalidValueException
+     *             Thrown when less than 3 vertices are specified.
+     * @throws InvalidWorldException
+     *             Thrown when the vertices are located on seprate worlds.
+     */
+    public PolygonPrismArea(final Block... vertices)
+            throws InvalidValueException, InvalidWorldException {
+        this(PolygonPrismArea.toLocations(vertices), "Blocks", 0, 0, true);
+    }
+
+    /**
+     * Creates a polygon prism between the heights specified using the blocks
+     * as the vertices of the polygon.
+     *
+     * @param y1
+     *            The first height of the prism.
+     * @param y2
+     *            The second height of the prism.
+     * @param vertices
+     *            The vertices of the polygon, in order.
+     * @throws InvalidValueException
+     *             Thrown when less than 3 vertices are specified.
+     * @throws InvalidWorldException
+     *             Thrown when the vertices are located on seprate worlds.
+     */
+    public PolygonPrismArea(final int y1, final int y2, final Block... vertices)
+            throws InvalidValueException, InvalidWorldException {
+        this(PolygonPrismArea.toLocations(vertices), "Blocks", y1, y2, false);
+    }
+
+    /**
+     * Creates a polygon prism between the heights specified using the
+     * locations as the vertices of the polygon.
+     *
+     * @param y1
+     *            The first height of the prism.
+     * @param y2
+     *            The second height of the prism.
+     * @param vertices
+     *            The vertices of the polygon, in order.
+     * @throws InvalidValueException
+     *             Thrown when less than 3 vertices are specified.
+     * @throws InvalidWorldException
+     *             Thrown when the vertices are located on seprate worlds.
+     */
+    public PolygonPrismArea(final int y1, final int y2,
+            final Location... vertices) throws InvalidValueException,
+            InvalidWorldException {
+        this(vertices, "Locations", y1, y2, false);
+    }
+
+    /**
+     * Creates a polygon prism spanning the height of the world using the
+     * locations as the vertices of the polygon.
+     *
+     * @param vertices
+     *            The vertices of the polygon, in order.
+     * @throws InvalidValueException
+     *             Thrown when less than 3 vertices are specified.
+     * @throws InvalidWorldException
+     *             Thrown when the vertices are located on seprate worlds.
+     */
+    public PolygonPrismArea(final Location... vertices)
+            throws InvalidValueException, InvalidWorldException {
+        this(vertices, "Locations", 0, 0, true);
+    }
+
+    private PolygonPrismArea(final Location[] vertices, final String type,
+            final int y1, final int y2, final boolean fullHeight)
+            throws InvalidValueException, InvalidWorldException {
+        if (vertices.length < 3) {
+            throw new InvalidValueException(
+                    "A polygon needs at least 3 vertices");
+        }
+        world = vertices[0].getWorld();
+        vx = new int[vertices.length];
+        vz = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            if (!vertices[i].getWorld().equals(world)) {
+                throw new InvalidWorldException(type + " on seprate worlds");
+            }
+            vx[i] = vertices[i].getBlockX();
+            vz[i] = vertices[i].getBlockZ();
+        }
+        if (fullHeight) {
+            miny = 0;
+            maxy = world.getMaxHeight();
+        } else {
+            miny = Math.min(y1, y2);
+            maxy = Math.max(y1, y2);
+        }
+        this.build();
+    }
+
+    /**
+     * Builds the edge slabs and the runs of every row from the vertices.
+     */
+    private void build() {
+        final int n = vx.length;
+        ex0 = new int[n];
+        ez0 = new int[n];
+        ex1 = new int[n];
+        ez1 = new int[n];
+        minx = maxx = vx[0];
+        minz = maxz = vz[0];
+        for (int i = 0; i < n; i++) {
+            final int j = (i + 1) % n;
+            final boolean forward = vz[i] <= vz[j];
+            ex0[i] = forward ? vx[i] : vx[j];
+            ez0[i] = forward ? vz[i] : vz[j];
+            ex1[i] = forward ? vx[j] : vx[i];
+            ez1[i] = forward ? vz[j] : vz[i];
+            minx = Math.min(minx, vx[i]);
+            maxx = Math.max(maxx, vx[i]);
+            minz = Math.min(minz, vz[i]);
+            maxz = Math.max(maxz, vz[i]);
+        }
+
+        // The distinct Z values of the vertices bound the slabs
+        final int[] sorted = vz.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        levels = Arrays.copyOf(sorted, distinct);
+
+        final int[] slabCounts = new int[distinct];
+        final int[] levelCounts = new int[distinct];
+        for (int e = 0; e < n; e++) {
+            final int lo = Arrays.binarySearch(levels, ez0[e]);
+            final int hi = Arrays.binarySearch(levels, ez1[e]);
+            for (int s = lo; s < hi; s++) {
+                slabCounts[s]++;
+            }
+            levelCounts[lo]++;
+            if (hi != lo) {
+                levelCounts[hi]++;
+            }
+        }
+        slabEdges = new int[distinct][];
+        levelEdges = new int[distinct][];
+        for (int i = 0; i < distinct; i++) {
+            slabEdges[i] = new int[slabCounts[i]];
+            levelEdges[i] = new int[levelCounts[i]];
+            slabCounts[i] = 0;
+            levelCounts[i] = 0;
+        }
+        for (int e = 0; e < n; e++) {
+            final int lo = Arrays.binarySearch(levels, ez0[e]);
+            final int hi = Arrays.binarySearch(levels, ez1[e]);
+            for (int s = lo; s < hi; s++) {
+                slabEdges[s][slabCounts[s]++] = e;
+            }
+            levelEdges[lo][levelCounts[lo]++] = e;
+            if (hi != lo) {
+                levelEdges[hi][levelCounts[hi]++] = e;
+            }
+        }
+
+        rows = new int[maxz - minz + 1][];
+        rowBlocks = 0;
+        for (int z = minz; z <= maxz; z++) {
+            final int[] spans = this.scan(z);
+            rows[z - minz] = spans;
+            for (int i = 0; i < spans.length; i += 2) {
+                rowBlocks += spans[i + 1] - spans[i] + 1;
+            }
+        }
+    }
+
+    /**
+     * Checks if the block is within the area.
+     *
+     * @param block
+     *            The block to check.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final Block block) {
+        return block.getWorld().equals(world)
+                && this.contains(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Checks if the point is within or on the edge of the polygon.
+     */
+    private boolean contains(final double x, final double z) {
+        if (x < minx || x > maxx || z < minz || z > maxz) {
+            return false;
+        }
+        final int level = this.floorLevel((int) Math.floor(z));
+        boolean inside = false;
+        if (level < levels.length - 1) {
+            for (final int e : slabEdges[level]) {
+                final double side = (x - ex0[e]) * (ez1[e] - ez0[e])
+                        - (z - ez0[e]) * (ex1[e] - ex0[e]);
+                if (side == 0) {
+                    return true;
+                }
+                if (side < 0 && z >= ez0[e] && z < ez1[e]) {
+                    inside = !inside;
+                }
+            }
+        }
+        if (z == levels[level]) {
+            for (final int e : levelEdges[level]) {
+                if (x >= Math.min(ex0[e], ex1[e])
+                        && x <= Math.max(ex0[e], ex1[e])
+                        && (x - ex0[e]) * (ez1[e] - ez0[e]) == (z - ez0[e])
+                                * (ex1[e] - ex0[e])) {
+                    return true;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Checks if the block column is within or on the edge of the polygon
+     * using exact integer math.
+     */
+    private boolean contains(final int x, final int z) {
+        if (x < minx || x > maxx || z < minz || z > maxz) {
+            return false;
+        }
+        final int level = this.floorLevel(z);
+        boolean inside = false;
+        if (level < levels.length - 1) {
+            for (final int e : slabEdges[level]) {
+                final long side = this.side(e, x, z);
+                if (side == 0) {
+                    return true;
+                }
+                if (side < 0) {
+                    inside = !inside;
+                }
+            }
+        }
+        if (z == levels[level]) {
+            for (final int e : levelEdges[level]) {
+                if (x >= Math.min(ex0[e], ex1[e])
+                        && x <= Math.max(ex0[e], ex1[e])
+                        && this.side(e, x, z) == 0) {
+                    return true;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        return y >= miny && y <= maxy && this.contains(x, z);
+    }
+
+    /**
+     * Checks if the location is within the area.
+     *
+     * @param loc
+     *            The location to check.
+     * @return True if the area contains the location; otherwise false.
+     */
+    @Override
+    public boolean contains(final Location loc) {
+        return loc.getWorld().equals(world) && loc.getY() >= miny
+                && loc.getY() <= maxy && this.contains(loc.getX(), loc.getZ());
+    }
+
+    /**
+     * Checks if the player is within the area.
+     *
+     * @param player
+     *            The player to check.
+     * @return True if the area contains the player; otherwise false.
+     */
+    @Override
+    public boolean contains(final Player player) {
+        return this.contains(player.getLocation());
+    }
+
+    /**
+     * Measures the distance from the location to the prism. Outside of the
+     * polygon the horizontal distance is the distance to the closest edge.
+     *
+     * @param loc
+     *            The location to measure from.
+     * @return 0 if the area contains the location, otherwise the distance to
+     *         the closest point of the prism, or infinity if the location is
+     *         within another world.
+     */
+    @Override
+    public double distanceTo(final Location loc) {
+        if (!loc.getWorld().equals(world)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double x = loc.getX();
+        final double z = loc.getZ();
+        final double dy = Area.gap(loc.getY(), miny, maxy);
+        double best = 0;
+        if (!this.contains(x, z)) {
+            best = Double.POSITIVE_INFINITY;
+            for (int e = 0; e < ex0.length; e++) {
+                final double ux = ex1[e] - ex0[e];
+                final double uz = ez1[e] - ez0[e];
+                final double length = ux * ux + uz * uz;
+                final double t = length == 0 ? 0 : Math.max(0, Math.min(1,
+                        ((x - ex0[e]) * ux + (z - ez0[e]) * uz) / length));
+                final double dx = x - (ex0[e] + t * ux);
+                final double dz = z - (ez0[e] + t * uz);
+                best = Math.min(best, dx * dx + dz * dz);
+            }
+        }
+        return Math.sqrt(best + dy * dy);
+    }
+
+    /**
+     * Expands the height of the area. The polygon itself can not be expanded.
+     *
+     * @param d
+     *            The direction to expand.
+     * @param amount
+     *            The size to expand in the specified direction.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void expand(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        if (d.equals(Direction.UP)) {
+            if (maxy + amount > world.getMaxHeight()) {
+                throw new InvalidDirectionException("Maximum height reached");
+            }
+            maxy += amount;
+        } else if (d.equals(Direction.DOWN)) {
+            if (miny - amount < 0) {
+                throw new InvalidDirectionException("Minimum height reached");
+            }
+            miny -= amount;
+        } else {
+            throw new InvalidDirectionException("Cannot expand in direction "
+                    + d.toString());
+        }
+    }
+
+    /**
+     * The index of the highest level at or below the Z value.
+     */
+    private int floorLevel(final int z) {
+        final int i = Arrays.binarySearch(levels, z);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private int getBlockMaxY() {
+        return Math.min(Area.blockMax(maxy), world.getMaxHeight() - 1);
+    }
+
+    private int getBlockMinY() {
+        return Math.max(Area.blockMin(miny), 0);
+    }
+
+    /**
+     * Fetches the blocks within the area.
+     *
+     * @return The blocks within the area.
+     */
+    @Override
+    public Block[] getBlocks() {
+        return Area.toArray(world, this.getPositions());
+    }
+
+    /**
+     * The maximum X value of the polygon.
+     *
+     * @return The maximum X value.
+     */
+    @Override
+    public double getMaxX() {
+        return maxx;
+    }
+
+    /**
+     * The maximum Y value of the prism.
+     *
+     * @return The maximum Y value.
+     */
+    @Override
+    public double getMaxY() {
+        return maxy;
+    }
+
+    /**
+     * The maximum Z value of the polygon.
+     *
+     * @return The maximum Z value.
+     */
+    @Override
+    public double getMaxZ() {
+        return maxz;
+    }
+
+    /**
+     * The minimum X value of the polygon.
+     *
+     * @return The minimum X value.
+     */
+    @Override
+    public double getMinX() {
+        return minx;
+    }
+
+    /**
+     * The minimum Y value of the prism.
+     *
+     * @return The minimum Y value.
+     */
+    @Override
+    public double getMinY() {
+        return miny;
+    }
+
+    /**
+     * The minimum Z value of the polygon.
+     *
+     * @return The minimum Z value.
+     */
+    @Override
+    public double getMinZ() {
+        return minz;
+    }
+
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order, limited to the height of the world.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    @Override
+    public Spliterator.OfLong getPositions() {
+        final int y0 = this.getBlockMinY();
+        final int y1 = this.getBlockMaxY();
+        final int[][] rows = this.rows;
+        final int minz = this.minz;
+        return new SpanSpliterator((y, z) -> rows[z - minz], minx, y0, minz,
+                maxx, y1, maxz, rowBlocks * Area.count(y0, y1));
+    }
+
+    @Override
+    int[] getSpans(final int y, final int z) {
+        return y < this.getBlockMinY() || y > this.getBlockMaxY() || z < minz
+                || z > maxz ? Spans.none() : rows[z - minz];
+    }
+
+    /**
+     * Fetches the total amount of blocks within the area. Prisms of more than
+     * {@link Integer#MAX_VALUE} blocks report that value; see {@link #size()}.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    @Override
+    public int getTotalBlocks() {
+        return (int) Math.min(this.size(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * The amount of vertices of the polygon.
+     *
+     * @return The amount of vertices.
+     */
+    public int getVertexCount() {
+        return vx.length;
+    }
+
+    /**
+     * The world the area was created in.
+     *
+     * @return The world the area was created in.
+     */
+    @Override
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Finds the runs of blocks of a row of the polygon. The runs between
+     * pairs of edge crossings are combined with the parts of the edges lying
+     * on the row.
+     */
+    private int[] scan(final int z) {
+        final int level = this.floorLevel(z);
+        long[] spans = new long[8];
+        int count = 0;
+        if (level < levels.length - 1) {
+            // Order the crossings by their floor, with exact crossings first,
+            // which is all that matters for rounding the runs to blocks
+            final int[] edges = slabEdges[level];
+            final long[] crossings = new long[edges.length];
+            for (int i = 0; i < edges.length; i++) {
+                final int e = edges[i];
+                final long num = (long) (z - ez0[e]) * (ex1[e] - ex0[e]);
+                final long den = ez1[e] - ez0[e];
+                final long floor = ex0[e] + Math.floorDiv(num, den);
+                crossings[i] = floor << 1 | (num % den == 0 ? 0 : 1);
+            }
+            Arrays.sort(crossings);
+            for (int i = 0; i + 1 < crossings.length; i += 2) {
+                final long from = (crossings[i] >> 1) + (crossings[i] & 1);
+                final long to = crossings[i + 1] >> 1;
+                if (from <= to) {
+                    if (count == spans.length) {
+                        spans = Arrays.copyOf(spans, count * 2);
+                    }
+                    spans[count++] = from << 32 | (to & 0xFFFFFFFFL);
+                }
+            }
+        }
+        if (z == levels[level]) {
+            for (final int e : levelEdges[level]) {
+                final long from;
+                final long to;
+                if (ez0[e] == ez1[e]) {
+                    from = Math.min(ex0[e], ex1[e]);
+                    to = Math.max(ex0[e], ex1[e]);
+                } else {
+                    from = to = ez0[e] == z ? ex0[e] : ex1[e];
+                }
+                if (count == spans.length) {
+                    spans = Arrays.copyOf(spans, count * 2);
+                }
+                spans[count++] = from << 32 | (to & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(spans, 0, count);
+
+        // Merge the runs which overlap or touch
+        final int[] merged = new int[count * 2];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            final int from = (int) (spans[i] >> 32);
+            final int to = (int) spans[i];
+            if (size > 0 && from <= merged[size - 1] + 1) {
+                merged[size - 1] = Math.max(merged[size - 1], to);
+            } else {
+                merged[size++] = from;
+                merged[size++] = to;
+            }
+        }
+        return size == 0 ? Spans.none() : Arrays.copyOf(merged, size);
+    }
+
+    /**
+     * Shifts the area.
+     *
+     * @param d
+     *            The direction to shift.
+     * @param amount
+     *            The amount of blocks to shift the area by.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void shift(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        if (d.equals(Direction.UP)) {
+            if (maxy + amount > world.getMaxHeight()) {
+                throw new InvalidDirectionException("Maximum height reached");
+            }
+            miny += amount;
+            maxy += amount;
+        } else if (d.equals(Direction.DOWN)) {
+            if (miny - amount < 0) {
+                throw new InvalidDirectionException("Minimum height reached");
+            }
+            miny -= amount;
+            maxy -= amount;
+        } else if (d.equals(Direction.NORTH)) {
+            this.translate(0, -amount);
+        } else if (d.equals(Direction.SOUTH)) {
+            this.translate(0, amount);
+        } else if (d.equals(Direction.EAST)) {
+            this.translate(amount, 0);
+        } else if (d.equals(Direction.WEST)) {
+            this.translate(-amount, 0);
+        } else {
+            throw new InvalidDirectionException("Cannot shift in direction "
+                    + d.toString());
+        }
+    }
+
+    /**
+     * Shrinks the height of the area. The polygon itself can not be shrunk.
+     *
+     * @param d
+     *            The direction to shrink.
+     * @param amount
+     *            The size to shrink in the specified direction.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void shrink(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        if (d.equals(Direction.UP)) {
+            if (maxy - amount < miny) {
+                throw new InvalidDirectionException("Minimum height reached");
+            }
+            maxy -= amount;
+        } else if (d.equals(Direction.DOWN)) {
+            if (miny + amount > maxy) {
+                throw new InvalidDirectionException("Maximum height reached");
+            }
+            miny += amount;
+        } else {
+            throw new InvalidDirectionException("Cannot shrink in direction "
+                    + d.toString());
+        }
+    }
+
+    /**
+     * Which side of the edge the block column lies on. Negative when the
+     * column is before the crossing of the edge along the X axis, zero when
+     * it is on the line of the edge.
+     */
+    private long side(final int e, final int x, final int z) {
+        return (long) (x - ex0[e]) * (ez1[e] - ez0[e]) - (long) (z - ez0[e])
+                * (ex1[e] - ex0[e]);
+    }
+
+    /**
+     * The total amount of blocks within the prism: the blocks of the
+     * footprint once for every layer.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    public long size() {
+        return rowBlocks * Area.count(this.getBlockMinY(), this.getBlockMaxY());
+    }
+
+    private void translate(final int x, final int z) {
+        for (int i = 0; i < vx.length; i++) {
+            vx[i] += x;
+            vz[i] += z;
+        }
+        this.build();
+    }
+}
@@ -1,19 +1,65 @@
 package org.monstercraft.area.api.wrappers;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
+import org.monstercraft.area.api.ChunkSlice;
+import org.monstercraft.area.api.ChunkSliceVisitor;
 import org.monstercraft.area.api.Direction;
 import org.monstercraft.area.api.exception.InvalidDirectionException;
 import org.monstercraft.area.api.exception.InvalidWorldException;
+import org.monstercraft.area.api.util.BlockPositions;
+import org.monstercraft.area.api.util.ChunkKeys;
+import org.monstercraft.area.api.util.LongHashSet;
+import org.monstercraft.area.api.util.LongObjectHashMap;
 
 public class PolygonalArea extends Area {
 
-    private final Location[] locations;
+    private static int[] toBlocks(final double[] values) {
+        final int[] blocks = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            blocks[i] = (int) Math.floor(values[i]);
+        }
+        return blocks;
+    }
+
+    /**
+     * Membership is kept in a bit set over the bounding box when it costs no
+     * more bits per block than this, otherwise in a hash set.
+     */
+    private static final int DENSE_BITS_PER_BLOCK = 64;
+
+    private final long[] positions;
 
     private World world;
 
+    private int maxx;
+
+    private int minx;
+
+    private int maxy;
+
+    private int miny;
+
+    private int maxz;
+
+    private int minz;
+
+    private LongHashSet set;
+
+    private BitSet bits;
+
+    /**
+     * The runs of blocks of every row, built the first time they are needed.
+     */
+    private volatile LongObjectHashMap<int[]> rows;
+
     /**
      * Creates a Polygonal area with the blocks specified.
      *
@@ -31,8 +77,8 @@ public class PolygonalArea extends Area {
                 throw new InvalidWorldException("Blocks on seprate worlds");
             }
         }
-        this.locations = locations;
         this.world = world;
+        positions = this.index(locations);
     }
 
     /**
@@ -49,8 +95,8 @@ public class PolygonalArea extends Area {
                 throw new InvalidWorldException("Locations on seprate worlds");
             }
         }
-        this.locations = locations;
         this.world = world;
+        positions = this.index(locations);
     }
 
     /**
@@ -64,7 +110,22 @@ public class PolygonalArea extends Area {
         for (int i = 0; i < players.length; i++) {
             locations[i] = players[i].getLocation();
         }
-        this.locations = locations;
+        world = locations[0].getWorld();
+        positions = this.index(locations);
+    }
+
+    /**
+     * Creates a Polygonal area with the blocks at the packed positions
+     * specified, such as the ones exported by {@link #getBlockPositions()}.
+     *
+     * @param world
+     *            The world the blocks are located in.
+     * @param positions
+     *            The packed positions of the blocks.
+     */
+    public PolygonalArea(final World world, final long... positions) {
+        this.world = world;
+        this.positions = this.index(positions.clone());
     }
 
     /**
@@ -76,11 +137,35 @@ public class PolygonalArea extends Area {
      */
     @Override
     public boolean contains(final Block block) {
-        return this.contains(block.getLocation());
+        return block.getWorld().equals(world)
+                && this.contains(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        if (x < minx || x > maxx || y < miny || y > maxy || z < minz
+                || z > maxz) {
+            return false;
+        }
+        if (bits != null) {
+            return bits.get(this.indexOf(x, y, z));
+        }
+        return set.contains(BlockPositions.pack(x, y, z));
     }
 
     /**
-     * Checks if the location is within the area.
+     * Checks if the location is within one of the blocks of the area.
      *
      * @param loc
      *            The player to check.
@@ -88,12 +173,117 @@ public class PolygonalArea extends Area {
      */
     @Override
     public boolean contains(final Location location) {
-        for (final Location check : locations) {
-            if (location.equals(check)) {
-                return true;
+        return location.getWorld().equals(world)
+                && this.contains(location.getBlockX(), location.getBlockY(),
+                        location.getBlockZ());
+    }
+
+    /**
+     * Packs the block positions of the locations and indexes them.
+     *
+     * @return The unique packed positions sorted in chunk order.
+     */
+    private long[] index(final Location[] locations) {
+        final long[] packed = new long[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            packed[i] = BlockPositions.pack(locations[i].getBlockX(),
+                    locations[i].getBlockY(), locations[i].getBlockZ());
+        }
+        return this.index(packed);
+    }
+
+    /**
+     * Sorts the packed positions, removing duplicates, and builds the bounds
+     * and the membership index of the area.
+     *
+     * @return The unique packed positions sorted in chunk order.
+     */
+    private long[] index(long[] packed) {
+        BlockPositions.sortByChunk(packed, 0, packed.length);
+        int unique = 0;
+        for (int i = 0; i < packed.length; i++) {
+            if (unique == 0 || packed[i] != packed[unique - 1]) {
+                packed[unique++] = packed[i];
+            }
+        }
+        if (unique != packed.length) {
+            packed = Arrays.copyOf(packed, unique);
+        }
+
+        maxx = minx = BlockPositions.getX(packed[0]);
+        maxy = miny = BlockPositions.getY(packed[0]);
+        maxz = minz = BlockPositions.getZ(packed[0]);
+        for (final long p : packed) {
+            maxx = Math.max(maxx, BlockPositions.getX(p));
+            maxy = Math.max(maxy, BlockPositions.getY(p));
+            maxz = Math.max(maxz, BlockPositions.getZ(p));
+            minx = Math.min(minx, BlockPositions.getX(p));
+            miny = Math.min(miny, BlockPositions.getY(p));
+            minz = Math.min(minz, BlockPositions.getZ(p));
+        }
+
+        final long volume = (long) (maxx - minx + 1) * (maxy - miny + 1)
+                * (maxz - minz + 1);
+        if (volume <= Integer.MAX_VALUE
+                && volume <= (long) PolygonalArea.DENSE_BITS_PER_BLOCK
+                        * packed.length) {
+            bits = new BitSet((int) volume);
+            for (final long p : packed) {
+                bits.set(this.indexOf(BlockPositions.getX(p),
+                        BlockPositions.getY(p), BlockPositions.getZ(p)));
+            }
+        } else {
+            set = new LongHashSet(packed.length);
+            for (final long p : packed) {
+                set.add(p);
             }
         }
-        return false;
+        return packed;
+    }
+
+    /**
+     * Groups the blocks of the area into runs along the X axis, keyed by the
+     * packed position of the start of their row.
+     */
+    private LongObjectHashMap<int[]> indexRows() {
+        // Order the blocks by row and then by X
+        final long[] sorted = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            final long p = positions[i];
+            sorted[i] = (long) BlockPositions.getY(p) << 52
+                    | (long) (BlockPositions.getZ(p) - minz) << 26
+                    | (BlockPositions.getX(p) - minx);
+        }
+        Arrays.sort(sorted);
+
+        final LongObjectHashMap<int[]> rows = new LongObjectHashMap<int[]>();
+        final int[] spans = new int[(int) Math.min(maxx - minx + 2L,
+                2L * positions.length) & ~1];
+        int i = 0;
+        while (i < sorted.length) {
+            final long row = sorted[i] >>> 26;
+            int size = 0;
+            for (; i < sorted.length && sorted[i] >>> 26 == row; i++) {
+                final int x = minx + (int) (sorted[i] & 0x3FFFFFF);
+                if (size > 0 && spans[size - 1] == x - 1) {
+                    spans[size - 1] = x;
+                } else {
+                    spans[size++] = x;
+                    spans[size++] = x;
+                }
+            }
+            rows.put(BlockPositions.pack(0, (int) (row >>> 26),
+                    minz + (int) (row & 0x3FFFFFF)), Arrays.copyOf(spans, size));
+        }
+        return rows;
+    }
+
+    /**
+     * The index of the block within the bit set over the bounding box.
+     */
+    private int indexOf(final int x, final int y, final int z) {
+        return ((y - miny) * (maxz - minz + 1) + (z - minz))
+                * (maxx - minx + 1) + (x - minx);
     }
 
     /**
@@ -108,6 +298,27 @@ public class PolygonalArea extends Area {
         return this.contains(player.getLocation());
     }
 
+    /**
+     * Checks which of the positions, within the world of the area, are within
+     * one of the blocks of the area.
+     *
+     * @param xs
+     *            The X coordinates of the positions.
+     * @param ys
+     *            The Y coordinates of the positions.
+     * @param zs
+     *            The Z coordinates of the positions.
+     * @param out
+     *            The set to record the results in.
+     * @return The amount of positions within the area.
+     */
+    @Override
+    public int containsAll(final double[] xs, final double[] ys,
+            final double[] zs, final BitSet out) {
+        return this.containsAll(PolygonalArea.toBlocks(xs),
+                PolygonalArea.toBlocks(ys), PolygonalArea.toBlocks(zs), out);
+    }
+
     @Override
     public void expand(final Direction direction, final int amount)
             throws InvalidDirectionException {
@@ -116,27 +327,174 @@ public class PolygonalArea extends Area {
     }
 
     /**
-     * Fetches the blocks within the area.
+     * Visits the blocks of the area chunk by chunk. The blocks are kept in
+     * chunk order, so every slice holds the run of blocks within its chunk,
+     * bounded by those blocks alone.
+     *
+     * @param visitor
+     *            The visitor to hand the slices to.
+     * @return True if every chunk was visited; false if the visitor stopped.
+     */
+    @Override
+    public boolean forEachChunkSlice(final ChunkSliceVisitor visitor) {
+        int from = 0;
+        while (from < positions.length) {
+            final long chunk = BlockPositions.getChunk(positions[from]);
+            int x0 = Integer.MAX_VALUE;
+            int y0 = Integer.MAX_VALUE;
+            int z0 = Integer.MAX_VALUE;
+            int x1 = Integer.MIN_VALUE;
+            int y1 = Integer.MIN_VALUE;
+            int z1 = Integer.MIN_VALUE;
+            int to = from;
+            while (to < positions.length
+                    && BlockPositions.getChunk(positions[to]) == chunk) {
+                final long p = positions[to++];
+                x0 = Math.min(x0, BlockPositions.getX(p));
+                y0 = Math.min(y0, BlockPositions.getY(p));
+                z0 = Math.min(z0, BlockPositions.getZ(p));
+                x1 = Math.max(x1, BlockPositions.getX(p));
+                y1 = Math.max(y1, BlockPositions.getY(p));
+                z1 = Math.max(z1, BlockPositions.getZ(p));
+            }
+            if (!visitor.visit(new ChunkSlice(this, ChunkKeys.getX(chunk),
+                    ChunkKeys.getZ(chunk), x0, y0, z0, x1, y1, z1, Arrays
+                            .copyOfRange(positions, from, to), false))) {
+                return false;
+            }
+            from = to;
+        }
+        return true;
+    }
+
+    /**
+     * Fetches the blocks within the area in chunk order.
      *
      * @return The blocks within the area.
      */
     @Override
     public Block[] getBlocks() {
-        final Block[] blocks = new Block[locations.length];
-        for (int i = 0; i < locations.length; i++) {
-            blocks[i] = locations[i].getBlock();
+        return Area.toArray(world, this.getPositions());
+    }
+
+    /**
+     * Fetches the chunks holding blocks of the area, without loading them.
+     *
+     * @return The keys of the chunks, as created by
+     *         {@link ChunkKeys#pack(int, int)}, by chunk Z and then chunk X.
+     */
+    @Override
+    public long[] getChunks() {
+        long[] chunks = new long[16];
+        int size = 0;
+        for (final long p : positions) {
+            final long chunk = BlockPositions.getChunk(p);
+            if (size == 0 || chunks[size - 1] != chunk) {
+                if (size == chunks.length) {
+                    chunks = Arrays.copyOf(chunks, size * 2);
+                }
+                chunks[size++] = chunk;
+            }
         }
-        return blocks;
+        return Arrays.copyOf(chunks, size);
+    }
+
+    /**
+     * The maximum X value of the blocks within the area. The bounds cover the
+     * whole of every block, so this is just below the far edge of the
+     * furthest block.
+     *
+     * @return The maximum X value.
+     */
+    @Override
+    public double getMaxX() {
+        return Math.nextDown(maxx + 1.0);
+    }
+
+    /**
+     * The maximum Y value of the blocks within the area.
+     *
+     * @return The maximum Y value.
+     */
+    @Override
+    public double getMaxY() {
+        return Math.nextDown(maxy + 1.0);
+    }
+
+    /**
+     * The maximum Z value of the blocks within the area.
+     *
+     * @return The maximum Z value.
+     */
+    @Override
+    public double getMaxZ() {
+        return Math.nextDown(maxz + 1.0);
+    }
+
+    /**
+     * The minimum X value of the blocks within the area.
+     *
+     * @return The minimum X value.
+     */
+    @Override
+    public double getMinX() {
+        return minx;
+    }
+
+    /**
+     * The minimum Y value of the blocks within the area.
+     *
+     * @return The minimum Y value.
+     */
+    @Override
+    public double getMinY() {
+        return miny;
+    }
+
+    /**
+     * The minimum Z value of the blocks within the area.
+     *
+     * @return The minimum Z value.
+     */
+    @Override
+    public double getMinZ() {
+        return minz;
+    }
+
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    @Override
+    public Spliterator.OfLong getPositions() {
+        return Spliterators.spliterator(positions, Spliterator.ORDERED
+                | Spliterator.DISTINCT | Spliterator.NONNULL
+                | Spliterator.IMMUTABLE);
+    }
+
+    @Override
+    int[] getSpans(final int y, final int z) {
+        if (y < miny || y > maxy || z < minz || z > maxz) {
+            return Spans.none();
+        }
+        LongObjectHashMap<int[]> rows = this.rows;
+        if (rows == null) {
+            this.rows = rows = this.indexRows();
+        }
+        final int[] spans = rows.get(BlockPositions.pack(0, y, z));
+        return spans == null ? Spans.none() : spans;
     }
 
     /**
-     * Fetches the total amount of blocks within the area.
+     * Fetches the total amount of unique blocks within the area.
      *
      * @return The total amount of blocks within the area.
      */
     @Override
     public int getTotalBlocks() {
-        return this.getBlocks().length;
+        return positions.length;
     }
 
     @Override
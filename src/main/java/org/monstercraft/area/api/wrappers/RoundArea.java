@@ -0,0 +1,290 @@
+package org.monstercraft.area.api.wrappers;
+
+import java.util.Spliterator;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.exception.InvalidDirectionException;
+
+/**
+ * The base of the areas bounded by a round surface around a center block.
+ * Every row of such an area along the X axis is a single run centered on the
+ * X coordinate of the center, so an area only describes the half width of
+ * its rows. Rows are enumerated, counted and checked using integer math
+ * alone, so the blocks walked are exactly the blocks the area contains.
+ */
+abstract class RoundArea extends Area {
+
+    /**
+     * The largest integer whose square is at most the value.
+     */
+    static long sqrt(final long value) {
+        long root = (long) Math.sqrt(value);
+        while (root * root > value) {
+            root--;
+        }
+        while ((root + 1) * (root + 1) <= value) {
+            root++;
+        }
+        return root;
+    }
+
+    final World world;
+
+    int cx;
+
+    int cy;
+
+    int cz;
+
+    /**
+     * The amount of blocks within the height of the world, or -1 if not
+     * counted since the area last changed.
+     */
+    private long total = -1;
+
+    RoundArea(final World world, final int cx, final int cy, final int cz) {
+        this.world = world;
+        this.cx = cx;
+        this.cy = cy;
+        this.cz = cz;
+    }
+
+    /**
+     * Forgets the amount of blocks, after the shape of the area changed.
+     */
+    void changed() {
+        total = -1;
+    }
+
+    @Override
+    double closestInRow(final double x, final int y, final int z,
+            final double drow, final double best) {
+        if (y < this.getBlockMinY() || y > this.getBlockMaxY()) {
+            return best;
+        }
+        final int w = this.getHalfWidth(y, z);
+        if (w < 0) {
+            return best;
+        }
+        final double dx = Area.gap(x, cx - w, cx + w + 1);
+        return Math.min(best, drow + dx * dx);
+    }
+
+    /**
+     * Checks if the block is within the area.
+     *
+     * @param block
+     *            The block to check.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final Block block) {
+        return block.getWorld().equals(world)
+                && this.contains(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Checks if the block of the location is within the area.
+     *
+     * @param loc
+     *            The location to check.
+     * @return True if the area contains the location; otherwise false.
+     */
+    @Override
+    public boolean contains(final Location loc) {
+        return loc.getWorld().equals(world)
+                && this.contains(loc.getBlockX(), loc.getBlockY(),
+                        loc.getBlockZ());
+    }
+
+    /**
+     * Checks if the player is within the area.
+     *
+     * @param player
+     *            The player to check.
+     * @return True if the area contains the player; otherwise false.
+     */
+    @Override
+    public boolean contains(final Player player) {
+        return this.contains(player.getLocation());
+    }
+
+    private int getBlockMaxY() {
+        return Math.min(Area.blockMax(this.getMaxY()), world.getMaxHeight() - 1);
+    }
+
+    private int getBlockMinY() {
+        return Math.max(Area.blockMin(this.getMinY()), 0);
+    }
+
+    /**
+     * Fetches the blocks within the area.
+     *
+     * @return The blocks within the area.
+     */
+    @Override
+    public Block[] getBlocks() {
+        return Area.toArray(world, this.getPositions());
+    }
+
+    /**
+     * The half width of a row of the area: the row holds the blocks from the
+     * X coordinate of the center minus the half width to the X coordinate of
+     * the center plus the half width.
+     *
+     * @return The half width, or -1 if the row holds no blocks.
+     */
+    abstract int getHalfWidth(int y, int z);
+
+    /**
+     * The X coordinate of the center block.
+     *
+     * @return The X coordinate of the center.
+     */
+    public int getCenterX() {
+        return cx;
+    }
+
+    /**
+     * The Y coordinate of the center block.
+     *
+     * @return The Y coordinate of the center.
+     */
+    public int getCenterY() {
+        return cy;
+    }
+
+    /**
+     * The Z coordinate of the center block.
+     *
+     * @return The Z coordinate of the center.
+     */
+    public int getCenterZ() {
+        return cz;
+    }
+
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order, limited to the height of the world. Every row is emitted as a
+     * single run.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    @Override
+    public Spliterator.OfLong getPositions() {
+        return new SpanSpliterator(this::getSpans,
+                Area.blockMin(this.getMinX()), this.getBlockMinY(),
+                Area.blockMin(this.getMinZ()), Area.blockMax(this.getMaxX()),
+                this.getBlockMaxY(), Area.blockMax(this.getMaxZ()),
+                this.size());
+    }
+
+    @Override
+    int[] getSpans(final int y, final int z) {
+        if (y < this.getBlockMinY() || y > this.getBlockMaxY()) {
+            return Spans.none();
+        }
+        final int w = this.getHalfWidth(y, z);
+        return w < 0 ? Spans.none() : Spans.of(cx - w, cx + w);
+    }
+
+    /**
+     * Fetches the total amount of blocks within the area, limited to the
+     * height of the world. The blocks are counted row by row. Areas of more
+     * than {@link Integer#MAX_VALUE} blocks report that value; see
+     * {@link #size()}.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    @Override
+    public int getTotalBlocks() {
+        return (int) Math.min(this.size(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * The world the area was created in.
+     *
+     * @return The world the area was created in.
+     */
+    @Override
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Moves the center of the area.
+     *
+     * @param d
+     *            The direction to shift.
+     * @param amount
+     *            The amount of blocks to shift the area by.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void shift(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        if (d.equals(Direction.UP)) {
+            if (this.getMaxY() + amount > world.getMaxHeight()) {
+                throw new InvalidDirectionException("Maximum height reached");
+            }
+            this.translate(0, amount, 0);
+        } else if (d.equals(Direction.DOWN)) {
+            if (this.getMinY() - amount < 0) {
+                throw new InvalidDirectionException("Minimum height reached");
+            }
+            this.translate(0, -amount, 0);
+        } else if (d.equals(Direction.NORTH)) {
+            this.translate(0, 0, -amount);
+        } else if (d.equals(Direction.SOUTH)) {
+            this.translate(0, 0, amount);
+        } else if (d.equals(Direction.EAST)) {
+            this.translate(amount, 0, 0);
+        } else if (d.equals(Direction.WEST)) {
+            this.translate(-amount, 0, 0);
+        } else {
+            throw new InvalidDirectionException("Cannot shift in direction "
+                    + d.toString());
+        }
+    }
+
+    /**
+     * The total amount of blocks within the height of the world, counted once
+     * every time the area changes.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    public long size() {
+        if (total < 0) {
+            final int y0 = this.getBlockMinY();
+            final int y1 = this.getBlockMaxY();
+            final int z0 = Area.blockMin(this.getMinZ());
+            final int z1 = Area.blockMax(this.getMaxZ());
+            long count = 0;
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    final int w = this.getHalfWidth(y, z);
+                    if (w >= 0) {
+                        count += 2 * w + 1;
+                    }
+                }
+            }
+            total = count;
+        }
+        return total;
+    }
+
+    /**
+     * Moves the area by the amounts specified.
+     */
+    void translate(final int x, final int y, final int z) {
+        cx += x;
+        cy += y;
+        cz += z;
+        this.changed();
+    }
+}
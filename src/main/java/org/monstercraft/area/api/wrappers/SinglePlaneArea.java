@@ -1,6 +1,7 @@
 package org.monstercraft.area.api.wrappers;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Spliterator;
 
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -8,19 +9,18 @@ import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.monstercraft.area.AreaAPI;
 import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.RayHit;
 import org.monstercraft.area.api.exception.InvalidDirectionException;
 import org.monstercraft.area.api.exception.InvalidPlaneException;
 import org.monstercraft.area.api.exception.InvalidWorldException;
 
-public class SinglePlaneArea extends Area {
+/**
+ * A box between two corners on a single Y level. The bounds are swapped as a
+ * whole when the area is expanded, shrunk or shifted.
+ */
+public class SinglePlaneArea extends Area implements Cloneable {
 
-    private double maxx;
-
-    private double minx;
-
-    private double maxz;
-
-    private double minz;
+    private volatile Box box;
 
     private final int plane;
 
@@ -69,11 +69,9 @@ public class SinglePlaneArea extends Area {
         if (!l1.getWorld().equals(l2.getWorld())) {
             throw new InvalidWorldException(type + " on seprate worlds");
         }
-        maxx = AreaAPI.getMaxX(l1, l2);
-        maxz = AreaAPI.getMaxZ(l1, l2);
-        minx = AreaAPI.getMinX(l1, l2);
-        minz = AreaAPI.getMinZ(l1, l2);
         plane = (int) l1.getY();
+        box = new Box(AreaAPI.getMinX(l1, l2), plane, AreaAPI.getMinZ(l1, l2),
+                AreaAPI.getMaxX(l1, l2), plane, AreaAPI.getMaxZ(l1, l2));
         world = l1.getWorld();
     }
 
@@ -106,6 +104,24 @@ public class SinglePlaneArea extends Area {
         return this.contains(block.getLocation());
     }
 
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        final Box b = box;
+        return y == plane && x <= b.maxx && z <= b.maxz && x >= b.minx
+                && z >= b.minz;
+    }
+
     /**
      * Checks if the location is within the area.
      *
@@ -115,11 +131,12 @@ public class SinglePlaneArea extends Area {
      */
     @Override
     public boolean contains(final Location loc) {
+        final Box b = box;
         return ((int) loc.getY() == plane && loc.getWorld().equals(world)) ? loc
-                .getX() <= maxx
-                && loc.getZ() <= maxz
-                && loc.getX() >= minx
-                && loc.getZ() >= minz : false;
+                .getX() <= b.maxx
+                && loc.getZ() <= b.maxz
+                && loc.getX() >= b.minx
+                && loc.getZ() >= b.minz : false;
     }
 
     /**
@@ -134,6 +151,79 @@ public class SinglePlaneArea extends Area {
         return this.contains(player.getLocation());
     }
 
+    /**
+     * Checks which of the positions, within the world of the area, are within
+     * the area.
+     *
+     * @param xs
+     *            The X coordinates of the positions.
+     * @param ys
+     *            The Y coordinates of the positions.
+     * @param zs
+     *            The Z coordinates of the positions.
+     * @param out
+     *            The set to record the results in.
+     * @return The amount of positions within the area.
+     */
+    @Override
+    public int containsAll(final double[] xs, final double[] ys,
+            final double[] zs, final BitSet out) {
+        final Box b = box;
+        // The Y value is truncated towards zero to find the plane
+        final double low = plane > 0 ? plane : Math.nextUp(plane - 1.0);
+        final double high = plane < 0 ? plane : Math.nextDown(plane + 1.0);
+        return Area.containsAll(xs, ys, zs, out, b.minx, low, b.minz, b.maxx,
+                high, b.maxz);
+    }
+
+    /**
+     * Checks which of the blocks at the coordinates, within the world of the
+     * area, are within the area.
+     *
+     * @param xs
+     *            The X coordinates of the blocks.
+     * @param ys
+     *            The Y coordinates of the blocks.
+     * @param zs
+     *            The Z coordinates of the blocks.
+     * @param out
+     *            The set to record the results in.
+     * @return The amount of blocks within the area.
+     */
+    @Override
+    public int containsAll(final int[] xs, final int[] ys, final int[] zs,
+            final BitSet out) {
+        final Box b = box;
+        return Area.containsAll(xs, ys, zs, out, Area.blockMin(b.minx), plane,
+                Area.blockMin(b.minz), Area.blockMax(b.maxx), plane,
+                Area.blockMax(b.maxz));
+    }
+
+    /**
+     * Measures the distance from the location to the area, which holds the
+     * locations from the plane up to the plane above it.
+     *
+     * @param loc
+     *            The location to measure from.
+     * @return 0 if the area contains the location, otherwise the distance to
+     *         the closest point of the area, or infinity if the location is
+     *         within another world.
+     */
+    @Override
+    public double distanceTo(final Location loc) {
+        if (!loc.getWorld().equals(world)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (this.contains(loc)) {
+            return 0;
+        }
+        final Box b = box;
+        final double dx = Area.gap(loc.getX(), b.minx, b.maxx);
+        final double dy = Area.gap(loc.getY(), plane, plane + 1);
+        final double dz = Area.gap(loc.getZ(), b.minz, b.maxz);
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
     /**
      * Expands the area.
      *
@@ -145,8 +235,13 @@ public class SinglePlaneArea extends Area {
      *             Thrown when the specified direction is invalid for the Area.
      */
     @Override
-    public void expand(final Direction d, final int amount)
+    public synchronized void expand(final Direction d, final int amount)
             throws InvalidDirectionException {
+        final Box b = box;
+        double minx = b.minx;
+        double minz = b.minz;
+        double maxx = b.maxx;
+        double maxz = b.maxz;
         if (d.equals(Direction.ALL) || d.equals(Direction.UP)
                 || d.equals(Direction.DOWN)) {
             throw new InvalidDirectionException("Cannot expand in direction "
@@ -165,6 +260,30 @@ public class SinglePlaneArea extends Area {
         } else if (d.equals(Direction.WEST)) {
             minx -= amount;
         }
+        box = new Box(minx, b.miny, minz, maxx, b.maxy, maxz);
+    }
+
+    /**
+     * Fetches a clone of the area sharing its current box of bounds, which
+     * holds the plane as well. Later changes to the area swap in a new box
+     * and leave the clone as it was.
+     *
+     * @return A copy of the area.
+     */
+    @Override
+    public SinglePlaneArea freeze() {
+        try {
+            return (SinglePlaneArea) super.clone();
+        } catch (final CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    int[] getBlockBox() {
+        final Box b = box;
+        return new int[] { Area.blockMin(b.minx), plane, Area.blockMin(b.minz),
+                Area.blockMax(b.maxx), plane, Area.blockMax(b.maxz) };
     }
 
     /**
@@ -174,20 +293,7 @@ public class SinglePlaneArea extends Area {
      */
     @Override
     public Block[] getBlocks() {
-        final ArrayList<Block> tileList = new ArrayList<Block>();
-        int x = (int) this.getMinX();
-        do {
-            int z = (int) this.getMinZ();
-            do {
-                if (this.contains(world.getBlockAt(x, plane, z))) {
-                    tileList.add(world.getBlockAt(x, plane, z));
-                }
-                z++;
-            } while (z <= this.getMaxZ());
-            x++;
-        } while (x <= this.getMaxX());
-        final Block[] tileArray = new Block[tileList.size()];
-        return tileList.toArray(tileArray);
+        return Area.toArray(world, this.getPositions());
     }
 
     /**
@@ -196,7 +302,8 @@ public class SinglePlaneArea extends Area {
      * @return The length of the area.
      */
     public double getLength() {
-        return maxx - minx;
+        final Box b = box;
+        return b.maxx - b.minx;
     }
 
     /**
@@ -204,8 +311,20 @@ public class SinglePlaneArea extends Area {
      *
      * @return The maximum X value.
      */
+    @Override
     public double getMaxX() {
-        return maxx;
+        return box.maxx;
+    }
+
+    /**
+     * The maximum Y value, which is just below the plane above the area as
+     * the area holds the locations from its plane up to the plane above it.
+     *
+     * @return The highest Y value within the area.
+     */
+    @Override
+    public double getMaxY() {
+        return Math.nextDown(plane + 1.0);
     }
 
     /**
@@ -213,8 +332,9 @@ public class SinglePlaneArea extends Area {
      *
      * @return The maximum Z value.
      */
+    @Override
     public double getMaxZ() {
-        return maxz;
+        return box.maxz;
     }
 
     /**
@@ -222,8 +342,19 @@ public class SinglePlaneArea extends Area {
      *
      * @return The minimum X value.
      */
+    @Override
     public double getMinX() {
-        return minx;
+        return box.minx;
+    }
+
+    /**
+     * The minimum Y value, which is always the plane of the area.
+     *
+     * @return The plane the area is on.
+     */
+    @Override
+    public double getMinY() {
+        return plane;
     }
 
     /**
@@ -231,8 +362,9 @@ public class SinglePlaneArea extends Area {
      *
      * @return The minimum Z value.
      */
+    @Override
     public double getMinZ() {
-        return minz;
+        return box.minz;
     }
 
     /**
@@ -244,6 +376,20 @@ public class SinglePlaneArea extends Area {
         return plane;
     }
 
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    @Override
+    public Spliterator.OfLong getPositions() {
+        final Box b = box;
+        return new BoxSpliterator(Area.blockMin(b.minx), plane,
+                Area.blockMin(b.minz), Area.blockMax(b.maxx), plane,
+                Area.blockMax(b.maxz));
+    }
+
     /**
      * Fetches the total amount of blocks within the area.
      *
@@ -251,7 +397,9 @@ public class SinglePlaneArea extends Area {
      */
     @Override
     public int getTotalBlocks() {
-        return (int) this.getLength() * (int) this.getWidth();
+        final Box b = box;
+        return Area.count(Area.blockMin(b.minx), Area.blockMax(b.maxx))
+                * Area.count(Area.blockMin(b.minz), Area.blockMax(b.maxz));
     }
 
     /**
@@ -260,7 +408,8 @@ public class SinglePlaneArea extends Area {
      * @return The width of the area.
      */
     public double getWidth() {
-        return maxz - minz;
+        final Box b = box;
+        return b.maxz - b.minz;
     }
 
     /**
@@ -274,10 +423,44 @@ public class SinglePlaneArea extends Area {
     }
 
     @Override
-    public void shift(final Direction direction, final int amount)
-            throws InvalidDirectionException {
-        // TODO Auto-generated method stub
+    RayHit intersectRay(final double ox, final double oy, final double oz,
+            final double dx, final double dy, final double dz,
+            final double maxDistance) {
+        final Box b = box;
+        return Area.clip(this, ox, oy, oz, dx, dy, dz, maxDistance, b.minx,
+                plane, b.minz, b.maxx, plane + 1, b.maxz);
+    }
 
+    /**
+     * Shifts the area.
+     *
+     * @param d
+     *            The direction to shift.
+     * @param amount
+     *            The amount of blocks to shift the area by.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public synchronized void shift(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        final Box b = box;
+        double dx = 0;
+        double dz = 0;
+        if (d.equals(Direction.NORTH)) {
+            dz = -amount;
+        } else if (d.equals(Direction.SOUTH)) {
+            dz = amount;
+        } else if (d.equals(Direction.EAST)) {
+            dx = amount;
+        } else if (d.equals(Direction.WEST)) {
+            dx = -amount;
+        } else {
+            throw new InvalidDirectionException("Cannot shift in direction "
+                    + d.toString());
+        }
+        box = new Box(b.minx + dx, b.miny, b.minz + dz, b.maxx + dx, b.maxy,
+                b.maxz + dz);
     }
 
     /**
@@ -291,8 +474,13 @@ public class SinglePlaneArea extends Area {
      *             Thrown when the specified direction is invalid for the Area.
      */
     @Override
-    public void shrink(final Direction d, final int amount)
+    public synchronized void shrink(final Direction d, final int amount)
             throws InvalidDirectionException {
+        final Box b = box;
+        double minx = b.minx;
+        double minz = b.minz;
+        double maxx = b.maxx;
+        double maxz = b.maxz;
         if (d.equals(Direction.ALL) || d.equals(Direction.UP)
                 || d.equals(Direction.DOWN)) {
             throw new InvalidDirectionException("Cannot expand in direction "
@@ -311,5 +499,6 @@ public class SinglePlaneArea extends Area {
         } else if (d.equals(Direction.WEST)) {
             minx += amount;
         }
+        box = new Box(minx, b.miny, minz, maxx, b.maxy, maxz);
     }
 }
@@ -0,0 +1,210 @@
+package org.monstercraft.area.api.wrappers;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+import org.monstercraft.area.api.util.BlockPositions;
+
+/**
+ * Walks the packed positions of an area described by runs of blocks along
+ * the X axis, chunk by chunk in the same order as {@link BoxSpliterator}.
+ * Every row is fetched once per chunk and clipped to it, so blocks are never
+ * tested one at a time.
+ *
+ * Only the spliterator created for the whole area knows its exact size.
+ * Splits hand out whole layers of a chunk and estimate their size.
+ */
+final class SpanSpliterator implements Spliterator.OfLong {
+
+    /**
+     * Describes the rows of an area.
+     */
+    interface Rows {
+
+        /**
+         * Fetches the runs of blocks within a row of the area.
+         *
+         * @param y
+         *            The Y coordinate of the row.
+         * @param z
+         *            The Z coordinate of the row.
+         * @return The first and last X coordinate of every run, sorted and
+         *         not overlapping. The array must not be modified.
+         */
+        int[] getSpans(int y, int z);
+    }
+
+    private static final int LAYER_SIZE = 256;
+
+    private final Rows rows;
+
+    private final int x0;
+
+    private final int x1;
+
+    private final int y0;
+
+    private final int z0;
+
+    private final int z1;
+
+    private final int cx0;
+
+    private final int cz0;
+
+    private final int columns;
+
+    private final int height;
+
+    private final long[] buffer = new long[SpanSpliterator.LAYER_SIZE];
+
+    private int index;
+
+    private int filled;
+
+    private long layer;
+
+    private long end;
+
+    private long size;
+
+    private boolean exact;
+
+    /**
+     * Creates a spliterator over the runs within the box between the
+     * corners, inclusive.
+     *
+     * @param size
+     *            The exact amount of blocks within the area.
+     */
+    SpanSpliterator(final Rows rows, final int x0, final int y0,
+            final int z0, final int x1, final int y1, final int z1,
+            final long size) {
+        this.rows = rows;
+        this.x0 = x0;
+        this.x1 = x1;
+        this.y0 = y0;
+        this.z0 = z0;
+        this.z1 = z1;
+        cx0 = x0 >> 4;
+        cz0 = z0 >> 4;
+        if (x1 < x0 || y1 < y0 || z1 < z0) {
+            columns = 0;
+            height = 0;
+            end = 0;
+        } else {
+            columns = (x1 >> 4) - cx0 + 1;
+            height = y1 - y0 + 1;
+            end = (long) columns * ((z1 >> 4) - cz0 + 1) * height;
+        }
+        this.size = size;
+        exact = true;
+    }
+
+    private SpanSpliterator(final SpanSpliterator s, final long end,
+            final long size) {
+        rows = s.rows;
+        x0 = s.x0;
+        x1 = s.x1;
+        y0 = s.y0;
+        z0 = s.z0;
+        z1 = s.z1;
+        cx0 = s.cx0;
+        cz0 = s.cz0;
+        columns = s.columns;
+        height = s.height;
+        layer = s.layer;
+        index = 0;
+        filled = s.filled - s.index;
+        System.arraycopy(s.buffer, s.index, buffer, 0, filled);
+        this.end = end;
+        this.size = size;
+        exact = false;
+    }
+
+    @Override
+    public int characteristics() {
+        final int characteristics = Spliterator.ORDERED | Spliterator.DISTINCT
+                | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        return exact ? characteristics | Spliterator.SIZED : characteristics;
+    }
+
+    @Override
+    public long estimateSize() {
+        return size;
+    }
+
+    /**
+     * Fills the buffer with the next layer which holds any blocks.
+     *
+     * @return True if a layer was loaded; false if there are no layers left.
+     */
+    private boolean fill() {
+        index = 0;
+        filled = 0;
+        while (filled == 0 && layer < end) {
+            final long column = layer / height;
+            final int cx = cx0 + (int) (column % columns);
+            final int cz = cz0 + (int) (column / columns);
+            final int y = y0 + (int) (layer % height);
+            final int lx0 = Math.max(x0, cx << 4);
+            final int lx1 = Math.min(x1, (cx << 4) + 15);
+            final int lz1 = Math.min(z1, (cz << 4) + 15);
+            for (int z = Math.max(z0, cz << 4); z <= lz1; z++) {
+                final int[] spans = rows.getSpans(y, z);
+                for (int i = 0; i < spans.length; i += 2) {
+                    final int from = Math.max(lx0, spans[i]);
+                    final int to = Math.min(lx1, spans[i + 1]);
+                    for (int x = from; x <= to; x++) {
+                        buffer[filled++] = BlockPositions.pack(x, y, z);
+                    }
+                }
+            }
+            layer++;
+        }
+        return filled > 0;
+    }
+
+    @Override
+    public void forEachRemaining(final LongConsumer action) {
+        do {
+            while (index < filled) {
+                action.accept(buffer[index++]);
+            }
+        } while (this.fill());
+        size = 0;
+    }
+
+    @Override
+    public boolean tryAdvance(final LongConsumer action) {
+        if (index >= filled && !this.fill()) {
+            size = 0;
+            return false;
+        }
+        action.accept(buffer[index++]);
+        if (size > 0) {
+            size--;
+        }
+        return true;
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+        final long free = end - layer;
+        if (free < 2) {
+            return null;
+        }
+        // Hand out the buffered blocks and the first half of the layers
+        final long mid = layer + free / 2;
+        final long prefixSize = (filled - index)
+                + (long) ((double) size * (mid - layer) / (end - layer));
+        final SpanSpliterator prefix = new SpanSpliterator(this, mid,
+                prefixSize);
+        size = Math.max(0, size - prefixSize);
+        layer = mid;
+        index = 0;
+        filled = 0;
+        exact = false;
+        return prefix;
+    }
+}
@@ -0,0 +1,167 @@
+package org.monstercraft.area.api.wrappers;
+
+import java.util.Arrays;
+
+/**
+ * Operations on the runs of blocks within a row. Runs are stored as the
+ * first and last X coordinate of every run, sorted and not overlapping.
+ */
+final class Spans {
+
+    /**
+     * Collects runs added from low X to high X, joining runs which touch.
+     */
+    static final class Builder {
+
+        private int[] spans = new int[8];
+
+        private int size;
+
+        void add(final int from, final int to) {
+            if (size > 0 && spans[size - 1] == from - 1) {
+                spans[size - 1] = to;
+                return;
+            }
+            if (size == spans.length) {
+                spans = Arrays.copyOf(spans, size * 2);
+            }
+            spans[size++] = from;
+            spans[size++] = to;
+        }
+
+        int[] toArray() {
+            return Spans.trim(spans, size);
+        }
+    }
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * The amount of blocks within the runs.
+     */
+    static long count(final int[] spans) {
+        long count = 0;
+        for (int i = 0; i < spans.length; i += 2) {
+            count += (long) spans[i + 1] - spans[i] + 1;
+        }
+        return count;
+    }
+
+    /**
+     * The blocks within both of the runs.
+     */
+    static int[] intersect(final int[] a, final int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return Spans.NONE;
+        }
+        final int[] out = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            final int from = Math.max(a[i], b[j]);
+            final int to = Math.min(a[i + 1], b[j + 1]);
+            if (from <= to) {
+                out[size++] = from;
+                out[size++] = to;
+            }
+            if (a[i + 1] < b[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return Spans.trim(out, size);
+    }
+
+    /**
+     * An empty row.
+     */
+    static int[] none() {
+        return Spans.NONE;
+    }
+
+    /**
+     * A single run, or an empty row if the run holds no blocks.
+     */
+    static int[] of(final int from, final int to) {
+        return from <= to ? new int[] { from, to } : Spans.NONE;
+    }
+
+    /**
+     * The blocks within the first runs but not the second.
+     */
+    static int[] subtract(final int[] a, final int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return a;
+        }
+        final int[] out = new int[a.length + b.length];
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < a.length; i += 2) {
+            int from = a[i];
+            final int to = a[i + 1];
+            while (j < b.length && b[j + 1] < from) {
+                j += 2;
+            }
+            int k = j;
+            while (k < b.length && b[k] <= to && from <= to) {
+                if (b[k] > from) {
+                    out[size++] = from;
+                    out[size++] = b[k] - 1;
+                }
+                from = Math.max(from, b[k + 1] + 1);
+                k += 2;
+            }
+            if (from <= to) {
+                out[size++] = from;
+                out[size++] = to;
+            }
+        }
+        return Spans.trim(out, size);
+    }
+
+    private static int[] trim(final int[] spans, final int size) {
+        return size == 0 ? Spans.NONE : size == spans.length ? spans : Arrays
+                .copyOf(spans, size);
+    }
+
+    /**
+     * The blocks within either of the runs. Runs which touch are joined.
+     */
+    static int[] union(final int[] a, final int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        final int[] out = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            final int from;
+            final int to;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                from = a[i];
+                to = a[i + 1];
+                i += 2;
+            } else {
+                from = b[j];
+                to = b[j + 1];
+                j += 2;
+            }
+            if (size > 0 && (long) from <= (long) out[size - 1] + 1) {
+                out[size - 1] = Math.max(out[size - 1], to);
+            } else {
+                out[size++] = from;
+                out[size++] = to;
+            }
+        }
+        return Spans.trim(out, size);
+    }
+
+    private Spans() {
+    }
+}
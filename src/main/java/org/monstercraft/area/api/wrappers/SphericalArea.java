@@ -0,0 +1,207 @@
+package org.monstercraft.area.api.wrappers;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.exception.InvalidDirectionException;
+import org.monstercraft.area.api.exception.InvalidValueException;
+
+/**
+ * A ball of blocks around a center block. A block is within the ball when
+ * the squared distance between it and the center is at most the squared
+ * radius.
+ */
+public class SphericalArea extends RoundArea {
+
+    private int radius;
+
+    /**
+     * Creates a ball around the block.
+     *
+     * @param center
+     *            The center block.
+     * @param radius
+     *            The radius in blocks.
+     * @throws InvalidValueException
+     *             Thrown when the radius is negative.
+     */
+    public SphericalArea(final Block center, final int radius)
+            throws InvalidValueException {
+        this(center.getLocation(), radius);
+    }
+
+    /**
+     * Creates a ball around the block of the location.
+     *
+     * @param center
+     *            The location of the center block.
+     * @param radius
+     *            The radius in blocks.
+     * @throws InvalidValueException
+     *             Thrown when the radius is negative.
+     */
+    public SphericalArea(final Location center, final int radius)
+            throws InvalidValueException {
+        super(center.getWorld(), center.getBlockX(), center.getBlockY(),
+                center.getBlockZ());
+        if (radius < 0) {
+            throw new InvalidValueException("The radius can not be negative");
+        }
+        this.radius = radius;
+    }
+
+    /**
+     * Checks if the block at the coordinates is within the area.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        final long dx = x - cx;
+        final long dy = y - cy;
+        final long dz = z - cz;
+        return dx * dx + dy * dy + dz * dz <= (long) radius * radius;
+    }
+
+    /**
+     * Expands the radius of the ball. Expanding in all directions and
+     * expanding the sides both grow the radius.
+     *
+     * @param d
+     *            The direction to expand, which must be ALL or SIDES.
+     * @param amount
+     *            The amount of blocks to add to the radius.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void expand(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        if (!d.equals(Direction.ALL) && !d.equals(Direction.SIDES)) {
+            throw new InvalidDirectionException("Cannot expand in direction "
+                    + d.toString());
+        }
+        this.resize((long) radius + amount);
+    }
+
+    @Override
+    int getHalfWidth(final int y, final int z) {
+        final long dy = y - cy;
+        final long dz = z - cz;
+        final long rest = (long) radius * radius - dy * dy - dz * dz;
+        return rest < 0 ? -1 : (int) RoundArea.sqrt(rest);
+    }
+
+    /**
+     * The maximum X value of the ball. The bounds cover the whole of every
+     * block, so this is just below the far edge of the furthest block.
+     *
+     * @return The maximum X value.
+     */
+    @Override
+    public double getMaxX() {
+        return Math.nextDown(cx + radius + 1.0);
+    }
+
+    /**
+     * The maximum Y value of the ball. The bounds cover the whole of every
+     * block, so this is just below the far edge of the furthest block.
+     *
+     * @return The maximum Y value.
+     */
+    @Override
+    public double getMaxY() {
+        return Math.nextDown(cy + radius + 1.0);
+    }
+
+    /**
+     * The maximum Z value of the ball. The bounds cover the whole of every
+     * block, so this is just below the far edge of the furthest block.
+     *
+     * @return The maximum Z value.
+     */
+    @Override
+    public double getMaxZ() {
+        return Math.nextDown(cz + radius + 1.0);
+    }
+
+    /**
+     * The minimum X value of the ball.
+     *
+     * @return The minimum X value.
+     */
+    @Override
+    public double getMinX() {
+        return cx - radius;
+    }
+
+    /**
+     * The minimum Y value of the ball.
+     *
+     * @return The minimum Y value.
+     */
+    @Override
+    public double getMinY() {
+        return cy - radius;
+    }
+
+    /**
+     * The minimum Z value of the ball.
+     *
+     * @return The minimum Z value.
+     */
+    @Override
+    public double getMinZ() {
+        return cz - radius;
+    }
+
+    /**
+     * The radius of the ball.
+     *
+     * @return The radius in blocks.
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Changes the radius, keeping it within the values an int can hold.
+     */
+    private void resize(final long radius) throws InvalidDirectionException {
+        if (radius < 0) {
+            throw new InvalidDirectionException("Minimum radius reached");
+        }
+        if (radius > Integer.MAX_VALUE) {
+            throw new InvalidDirectionException("Maximum radius reached");
+        }
+        this.radius = (int) radius;
+        this.changed();
+    }
+
+    /**
+     * Shrinks the radius of the ball. Shrinking in all directions and
+     * shrinking the sides both shrink the radius.
+     *
+     * @param d
+     *            The direction to shrink, which must be ALL or SIDES.
+     * @param amount
+     *            The amount of blocks to take from the radius.
+     * @throws InvalidDirectionException
+     *             Thrown when the specified direction is invalid for the Area.
+     */
+    @Override
+    public void shrink(final Direction d, final int amount)
+            throws InvalidDirectionException {
+        if (!d.equals(Direction.ALL) && !d.equals(Direction.SIDES)) {
+            throw new InvalidDirectionException("Cannot shrink in direction "
+                    + d.toString());
+        }
+        this.resize((long) radius - amount);
+    }
+}
@@ -0,0 +1,559 @@
+package org.monstercraft.area.api.wrappers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.monstercraft.area.api.CubeVisitor;
+import org.monstercraft.area.api.Direction;
+import org.monstercraft.area.api.exception.InvalidDirectionException;
+import org.monstercraft.area.api.exception.InvalidValueException;
+
+/**
+ * An area of any shape stored as a sparse octree. Cubes whose blocks are all
+ * within the area, or all outside of it, are stored as a single node, so the
+ * memory used grows with the surface of the area rather than its volume.
+ *
+ * The nodes are kept in a single array of eight child references each, and
+ * every node caches the amount of blocks below it. Checking a block walks one
+ * node per level of the tree, and the blocks are walked row by row from the
+ * cubes each row passes through.
+ */
+public class VoxelArea extends Area {
+
+    /**
+     * A cube holding no blocks of the area.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * A cube whose blocks are all within the area.
+     */
+    private static final int FULL = -2;
+
+    private static long volumeOf(final int size) {
+        return (long) size * size * size;
+    }
+
+    private final World world;
+
+    /**
+     * The children of every node, eight to a node. Child i holds the upper
+     * half along X when bit 0 of i is set, along Y for bit 1 and along Z for
+     * bit 2.
+     */
+    private int[] children;
+
+    /**
+     * The amount of blocks below every node.
+     */
+    private long[] counts;
+
+    private int nodes;
+
+    private int root = VoxelArea.EMPTY;
+
+    private final int ox;
+
+    private final int oy;
+
+    private final int oz;
+
+    private final int size;
+
+    private int maxx;
+
+    private int minx;
+
+    private int maxy;
+
+    private int miny;
+
+    private int maxz;
+
+    private int minz;
+
+    private long total;
+
+    /**
+     * Creates a voxel area holding the blocks of the area specified, limited
+     * to the height of its world. Box shaped areas are filled a box at a time
+     * and other areas a run at a time.
+     *
+     * @param area
+     *            The area to copy.
+     * @throws InvalidValueException
+     *             Thrown when the area holds no blocks.
+     */
+    public VoxelArea(final Area area) throws InvalidValueException {
+        world = area.getWorld();
+        final int[] bounds = { Area.blockMin(area.getMinX()),
+                Math.max(Area.blockMin(area.getMinY()), 0),
+                Area.blockMin(area.getMinZ()), Area.blockMax(area.getMaxX()),
+                Math.min(Area.blockMax(area.getMaxY()),
+                        world.getMaxHeight() - 1),
+                Area.blockMax(area.getMaxZ()) };
+        if (bounds[0] > bounds[3] || bounds[1] > bounds[4]
+                || bounds[2] > bounds[5]) {
+            throw new InvalidValueException("The area holds no blocks");
+        }
+        ox = bounds[0];
+        oy = bounds[1];
+        oz = bounds[2];
+        final int extent = Math.max(bounds[3] - bounds[0],
+                Math.max(bounds[4] - bounds[1], bounds[5] - bounds[2])) + 1;
+        size = extent == 1 ? 1 : Integer.highestOneBit(extent - 1) << 1;
+
+        children = new int[64];
+        final int[] box = new int[6];
+        final List<int[]> boxes = CompositeArea.boxesOf(area);
+        if (boxes != null) {
+            for (final int[] b : boxes) {
+                for (int i = 0; i < 3; i++) {
+                    box[i] = Math.max(b[i], bounds[i]);
+                    box[i + 3] = Math.min(b[i + 3], bounds[i + 3]);
+                }
+                if (box[0] <= box[3] && box[1] <= box[4] && box[2] <= box[5]) {
+                    root = this.fill(root, ox, oy, oz, size, box);
+                }
+            }
+        } else {
+            for (int y = bounds[1]; y <= bounds[4]; y++) {
+                for (int z = bounds[2]; z <= bounds[5]; z++) {
+                    final int[] spans = area.getSpans(y, z);
+                    for (int i = 0; i < spans.length; i += 2) {
+                        box[0] = Math.max(spans[i], bounds[0]);
+                        box[3] = Math.min(spans[i + 1], bounds[3]);
+                        if (box[0] <= box[3]) {
+                            box[1] = box[4] = y;
+                            box[2] = box[5] = z;
+                            root = this.fill(root, ox, oy, oz, size, box);
+                        }
+                    }
+                }
+            }
+        }
+        if (root == VoxelArea.EMPTY) {
+            throw new InvalidValueException("The area holds no blocks");
+        }
+        this.compact();
+        this.bound();
+    }
+
+    /**
+     * Allocates a node whose children are all empty.
+     */
+    private int allocate() {
+        if ((nodes + 1) * 8 > children.length) {
+            children = Arrays.copyOf(children, children.length * 2);
+        }
+        Arrays.fill(children, nodes * 8, nodes * 8 + 8, VoxelArea.EMPTY);
+        return nodes++;
+    }
+
+    /**
+     * Works out the exact bounds of the blocks from the cubes of the tree.
+     */
+    private void bound() {
+        minx = miny = minz = Integer.MAX_VALUE;
+        maxx = maxy = maxz = Integer.MIN_VALUE;
+        this.forEachCube((x, y, z, s) -> {
+            minx = Math.min(minx, x);
+            miny = Math.min(miny, y);
+            minz = Math.min(minz, z);
+            maxx = Math.max(maxx, x + s - 1);
+            maxy = Math.max(maxy, y + s - 1);
+            maxz = Math.max(maxz, z + s - 1);
+            return true;
+        });
+    }
+
+    /**
+     * Copies the nodes still reachable from the root into arrays of their
+     * exact size, dropping the nodes freed while filling, and counts the
+     * blocks below every node.
+     */
+    private void compact() {
+        final int[] from = children;
+        final int reachable = this.countNodes(from, root);
+        children = new int[reachable * 8];
+        counts = new long[reachable];
+        nodes = 0;
+        root = this.copy(from, root, size);
+        total = root == VoxelArea.FULL ? VoxelArea.volumeOf(size)
+                : counts[root];
+    }
+
+    /**
+     * Checks if the block is within the area.
+     *
+     * @param block
+     *            The block to check.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final Block block) {
+        return block.getWorld().equals(world)
+                && this.contains(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Checks if the block at the coordinates is within the area, walking one
+     * node for every level of the tree.
+     *
+     * @param x
+     *            The X coordinate of the block.
+     * @param y
+     *            The Y coordinate of the block.
+     * @param z
+     *            The Z coordinate of the block.
+     * @return True if the area contains the block; otherwise false.
+     */
+    @Override
+    public boolean contains(final int x, final int y, final int z) {
+        if (x < minx || x > maxx || y < miny || y > maxy || z < minz
+                || z > maxz) {
+            return false;
+        }
+        final int rx = x - ox;
+        final int ry = y - oy;
+        final int rz = z - oz;
+        int code = root;
+        for (int half = size >> 1; code >= 0; half >>= 1) {
+            code = children[code * 8 + ((rx & half) != 0 ? 1 : 0)
+                    + ((ry & half) != 0 ? 2 : 0) + ((rz & half) != 0 ? 4 : 0)];
+        }
+        return code == VoxelArea.FULL;
+    }
+
+    /**
+     * Checks if the location is within one of the blocks of the area.
+     *
+     * @param location
+     *            The location to check.
+     * @return True if the area contains the location; otherwise false.
+     */
+    @Override
+    public boolean contains(final Location location) {
+        return location.getWorld().equals(world)
+                && this.contains(location.getBlockX(), location.getBlockY(),
+                        location.getBlockZ());
+    }
+
+    /**
+     * Checks if the player is within the area.
+     *
+     * @param player
+     *            The player to check.
+     * @return True if the area contains the player; otherwise false.
+     */
+    @Override
+    public boolean contains(final Player player) {
+        return this.contains(player.getLocation());
+    }
+
+    /**
+     * Copies a node and everything below it into the current arrays.
+     *
+     * @return The code of the copy.
+     */
+    private int copy(final int[] from, final int code, final int size) {
+        if (code < 0) {
+            return code;
+        }
+        final int node = nodes++;
+        final int half = size >> 1;
+        long count = 0;
+        for (int i = 0; i < 8; i++) {
+            final int child = this.copy(from, from[code * 8 + i], half);
+            children[node * 8 + i] = child;
+            if (child == VoxelArea.FULL) {
+                count += VoxelArea.volumeOf(half);
+            } else if (child >= 0) {
+                count += counts[child];
+            }
+        }
+        counts[node] = count;
+        return node;
+    }
+
+    private int countNodes(final int[] from, final int code) {
+        if (code < 0) {
+            return 0;
+        }
+        int count = 1;
+        for (int i = 0; i < 8; i++) {
+            count += this.countNodes(from, from[code * 8 + i]);
+        }
+        return count;
+    }
+
+    /**
+     * Voxel areas can not be resized.
+     *
+     * @throws InvalidDirectionException
+     *             Always thrown.
+     */
+    @Override
+    public void expand(final Direction direction, final int amount)
+            throws InvalidDirectionException {
+        throw new InvalidDirectionException("Cannot expand this area.");
+    }
+
+    /**
+     * Adds the blocks of the box to a cube of the tree, merging children
+     * which become full.
+     *
+     * @return The code of the cube once filled.
+     */
+    private int fill(final int code, final int x, final int y, final int z,
+            final int size, final int[] box) {
+        if (code == VoxelArea.FULL) {
+            return code;
+        }
+        if (box[0] <= x && box[1] <= y && box[2] <= z
+                && box[3] >= x + size - 1 && box[4] >= y + size - 1
+                && box[5] >= z + size - 1) {
+            return VoxelArea.FULL;
+        }
+        final int node = code == VoxelArea.EMPTY ? this.allocate() : code;
+        final int half = size >> 1;
+        boolean full = true;
+        for (int i = 0; i < 8; i++) {
+            final int cx = (i & 1) == 0 ? x : x + half;
+            final int cy = (i & 2) == 0 ? y : y + half;
+            final int cz = (i & 4) == 0 ? z : z + half;
+            int child = children[node * 8 + i];
+            if (box[0] < cx + half && box[3] >= cx && box[1] < cy + half
+                    && box[4] >= cy && box[2] < cz + half && box[5] >= cz) {
+                // Filling may grow the array, so store the child afterwards
+                child = this.fill(child, cx, cy, cz, half, box);
+                children[node * 8 + i] = child;
+            }
+            full &= child == VoxelArea.FULL;
+        }
+        return full ? VoxelArea.FULL : node;
+    }
+
+    /**
+     * Visits the largest cubes of blocks the area is made of until the
+     * visitor asks to stop. Every block of the area is within exactly one
+     * cube. Cubes are visited in the order of the tree rather than chunk
+     * order.
+     *
+     * @param visitor
+     *            The visitor to hand the cubes to.
+     * @return True if every cube was visited; false if the visitor stopped.
+     */
+    public boolean forEachCube(final CubeVisitor visitor) {
+        return this.forEachCube(root, ox, oy, oz, size, visitor);
+    }
+
+    private boolean forEachCube(final int code, final int x, final int y,
+            final int z, final int size, final CubeVisitor visitor) {
+        if (code == VoxelArea.EMPTY) {
+            return true;
+        }
+        if (code == VoxelArea.FULL) {
+            return visitor.visit(x, y, z, size);
+        }
+        final int half = size >> 1;
+        for (int i = 0; i < 8; i++) {
+            if (!this.forEachCube(children[code * 8 + i], (i & 1) == 0 ? x
+                    : x + half, (i & 2) == 0 ? y : y + half, (i & 4) == 0 ? z
+                    : z + half, half, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    int[] getBlockBox() {
+        final long volume = (long) (maxx - minx + 1) * (maxy - miny + 1)
+                * (maxz - minz + 1);
+        return volume == total ? new int[] { minx, miny, minz, maxx, maxy,
+                maxz } : null;
+    }
+
+    /**
+     * Fetches the blocks within the area in chunk order.
+     *
+     * @return The blocks within the area.
+     */
+    @Override
+    public Block[] getBlocks() {
+        return Area.toArray(world, this.getPositions());
+    }
+
+    /**
+     * The maximum X value of the blocks within the area. The bounds cover the
+     * whole of every block, so this is just below the far edge of the
+     * furthest block.
+     *
+     * @return The maximum X value.
+     */
+    @Override
+    public double getMaxX() {
+        return Math.nextDown(maxx + 1.0);
+    }
+
+    /**
+     * The maximum Y value of the blocks within the area.
+     *
+     * @return The maximum Y value.
+     */
+    @Override
+    public double getMaxY() {
+        return Math.nextDown(maxy + 1.0);
+    }
+
+    /**
+     * The maximum Z value of the blocks within the area.
+     *
+     * @return The maximum Z value.
+     */
+    @Override
+    public double getMaxZ() {
+        return Math.nextDown(maxz + 1.0);
+    }
+
+    /**
+     * The minimum X value of the blocks within the area.
+     *
+     * @return The minimum X value.
+     */
+    @Override
+    public double getMinX() {
+        return minx;
+    }
+
+    /**
+     * The minimum Y value of the blocks within the area.
+     *
+     * @return The minimum Y value.
+     */
+    @Override
+    public double getMinY() {
+        return miny;
+    }
+
+    /**
+     * The minimum Z value of the blocks within the area.
+     *
+     * @return The minimum Z value.
+     */
+    @Override
+    public double getMinZ() {
+        return minz;
+    }
+
+    /**
+     * The amount of nodes within the tree, a measure of the memory the area
+     * uses.
+     *
+     * @return The amount of nodes.
+     */
+    public int getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Fetches the packed positions of the blocks within the area in chunk
+     * order.
+     *
+     * @return The packed positions of the blocks within the area.
+     */
+    @Override
+    public Spliterator.OfLong getPositions() {
+        return new SpanSpliterator(this::getSpans, minx, miny, minz, maxx,
+                maxy, maxz, total);
+    }
+
+    @Override
+    int[] getSpans(final int y, final int z) {
+        if (y < miny || y > maxy || z < minz || z > maxz) {
+            return Spans.none();
+        }
+        final Spans.Builder runs = new Spans.Builder();
+        this.row(root, ox, oy, oz, size, y, z, runs);
+        return runs.toArray();
+    }
+
+    /**
+     * Fetches the total amount of blocks within the area. Areas of more than
+     * {@link Integer#MAX_VALUE} blocks report that value; see
+     * {@link #size()}.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    @Override
+    public int getTotalBlocks() {
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Adds the runs of the row within a cube, from low X to high X.
+     */
+    private void row(final int code, final int x, final int y, final int z,
+            final int size, final int ry, final int rz, final Spans.Builder runs) {
+        if (code == VoxelArea.EMPTY) {
+            return;
+        }
+        if (code == VoxelArea.FULL) {
+            runs.add(x, x + size - 1);
+            return;
+        }
+        final int half = size >> 1;
+        final boolean upperY = ry >= y + half;
+        final boolean upperZ = rz >= z + half;
+        final int base = code * 8 + (upperY ? 2 : 0) + (upperZ ? 4 : 0);
+        final int cy = upperY ? y + half : y;
+        final int cz = upperZ ? z + half : z;
+        this.row(children[base], x, cy, cz, half, ry, rz, runs);
+        this.row(children[base + 1], x + half, cy, cz, half, ry, rz, runs);
+    }
+
+    /**
+     * Voxel areas can not be moved.
+     *
+     * @throws InvalidDirectionException
+     *             Always thrown.
+     */
+    @Override
+    public void shift(final Direction direction, final int amount)
+            throws InvalidDirectionException {
+        throw new InvalidDirectionException("Cannot shift this area.");
+    }
+
+    /**
+     * Voxel areas can not be resized.
+     *
+     * @throws InvalidDirectionException
+     *             Always thrown.
+     */
+    @Override
+    public void shrink(final Direction direction, final int amount)
+            throws InvalidDirectionException {
+        throw new InvalidDirectionException("Cannot shrink this area.");
+    }
+
+    /**
+     * The total amount of blocks within the area, read from the count cached
+     * at the root of the tree.
+     *
+     * @return The total amount of blocks within the area.
+     */
+    public long size() {
+        return total;
+    }
+}
@@ -0,0 +1,256 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+/**
+ * The local metrics of area operations: lookups, block collection, bulk edit
+ * jobs and scans. Metrics are off by default. While off, every place which
+ * records a metric only reads a single flag and skips the clock and the
+ * counters altogether.
+ *
+ * Calls of {@link org.monstercraft.area.api.wrappers.Area#contains} made
+ * directly are not measured. A single check takes a few tens of
+ * nanoseconds, about as long as reading the clock, and every area type
+ * would need the flag checked within each of its overloads. Contains checks
+ * are instead counted and timed in batches, as part of the lookups which
+ * make them.
+ *
+ * The metrics can be exposed through a {@link MetricsServer} and plotted on
+ * the graphs of {@link Metrics}.
+ */
+public final class AreaMetrics {
+
+    /**
+     * Plots how much a value grew since the graphs were last reset.
+     */
+    private static final class GrowthPlotter extends Metrics.Plotter {
+
+        private final LongSupplier value;
+
+        private volatile long base;
+
+        GrowthPlotter(final String name, final LongSupplier value) {
+            super(name);
+            this.value = value;
+            base = value.getAsLong();
+        }
+
+        @Override
+        public int getValue() {
+            return (int) Math.min(value.getAsLong() - base, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void reset() {
+            base = value.getAsLong();
+        }
+    }
+
+    private static volatile boolean enabled;
+
+    private static final MetricRegistry REGISTRY = new MetricRegistry();
+
+    /**
+     * Candidate areas checked using contains by the lookups of the registries
+     * and the chunk index. Calls of contains made outside of a lookup are not
+     * counted.
+     */
+    public static final Counter CONTAINS_CHECKS = AreaMetrics.REGISTRY
+            .counter("areaapi_contains_checks_total",
+                    "Areas checked using contains by area lookups.");
+
+    /**
+     * Areas returned by an index which contained the location checked.
+     */
+    public static final Counter INDEX_HITS = AreaMetrics.REGISTRY.counter(
+            "areaapi_index_hits_total",
+            "Candidates found by an index which contained the location.");
+
+    /**
+     * The time taken by each lookup of the areas at a location, including
+     * the contains checks of its candidates.
+     */
+    public static final Histogram LOOKUP_DURATION = AreaMetrics.REGISTRY
+            .durations("areaapi_lookup_duration_seconds",
+                    "Time taken to find the areas at a location.");
+
+    /**
+     * The amount of blocks collected by getBlocks.
+     */
+    public static final Histogram BLOCKS_SIZE = AreaMetrics.REGISTRY.sizes(
+            "areaapi_get_blocks_size", "Blocks collected by a getBlocks call.",
+            28);
+
+    /**
+     * The time taken by getBlocks.
+     */
+    public static final Histogram BLOCKS_DURATION = AreaMetrics.REGISTRY
+            .durations("areaapi_get_blocks_duration_seconds",
+                    "Time taken by a getBlocks call.");
+
+    /**
+     * Blocks walked by edit jobs.
+     */
+    public static final Counter EDIT_VISITED = AreaMetrics.REGISTRY.counter(
+            "areaapi_edit_blocks_visited_total", "Blocks walked by edit jobs.");
+
+    /**
+     * Blocks changed by edit jobs.
+     */
+    public static final Counter EDIT_CHANGED = AreaMetrics.REGISTRY.counter(
+            "areaapi_edit_blocks_changed_total", "Blocks changed by edit jobs.");
+
+    /**
+     * The time taken by each tick of an edit job.
+     */
+    public static final Histogram EDIT_SLICE_DURATION = AreaMetrics.REGISTRY
+            .durations("areaapi_edit_slice_duration_seconds",
+                    "Time taken by a tick of an edit job.");
+
+    /**
+     * Edit jobs which walked their whole area.
+     */
+    public static final Counter EDIT_JOBS = AreaMetrics.REGISTRY.counter(
+            "areaapi_edit_jobs_completed_total", "Edit jobs completed.");
+
+    /**
+     * Chunk snapshots scanned by area scanners.
+     */
+    public static final Counter SCAN_CHUNKS = AreaMetrics.REGISTRY.counter(
+            "areaapi_scan_chunks_total", "Chunk snapshots scanned.");
+
+    /**
+     * Blocks scanned by area scanners.
+     */
+    public static final Counter SCAN_BLOCKS = AreaMetrics.REGISTRY.counter(
+            "areaapi_scan_blocks_total", "Blocks scanned within snapshots.");
+
+    /**
+     * The registry holding the metrics, so more can be added.
+     *
+     * @return The registry.
+     */
+    public static MetricRegistry getRegistry() {
+        return AreaMetrics.REGISTRY;
+    }
+
+    /**
+     * Checks if metrics are being recorded.
+     *
+     * @return True if metrics are recorded; otherwise false.
+     */
+    public static boolean isEnabled() {
+        return AreaMetrics.enabled;
+    }
+
+    /**
+     * Adds a graph to the metrics plotting how many contains checks, index
+     * hits and blocks collected, edited and scanned there were since the
+     * graphs were last reset.
+     *
+     * @param metrics
+     *            The metrics to add the graph to.
+     */
+    public static void plot(final Metrics metrics) {
+        final Metrics.Graph graph = metrics.createGraph("Area Operations");
+        graph.addPlotter(new GrowthPlotter("Contains Checks",
+                AreaMetrics.CONTAINS_CHECKS::get));
+        graph.addPlotter(new GrowthPlotter("Index Hits",
+                AreaMetrics.INDEX_HITS::get));
+        graph.addPlotter(new GrowthPlotter("Blocks Collected",
+                AreaMetrics.BLOCKS_SIZE::getSum));
+        graph.addPlotter(new GrowthPlotter("Blocks Edited",
+                AreaMetrics.EDIT_CHANGED::get));
+        graph.addPlotter(new GrowthPlotter("Blocks Scanned",
+                AreaMetrics.SCAN_BLOCKS::get));
+    }
+
+    /**
+     * Records a call of getBlocks.
+     *
+     * @param size
+     *            The amount of blocks collected.
+     * @param nanos
+     *            The time taken, in nanoseconds.
+     */
+    public static void recordBlocks(final int size, final long nanos) {
+        AreaMetrics.BLOCKS_SIZE.record(size);
+        AreaMetrics.BLOCKS_DURATION.record(nanos);
+    }
+
+    /**
+     * Records a tick of an edit job.
+     *
+     * @param visited
+     *            The blocks walked during the tick.
+     * @param changed
+     *            The blocks changed during the tick.
+     * @param nanos
+     *            The time taken, in nanoseconds.
+     * @param completed
+     *            True if the job walked the last of its area.
+     */
+    public static void recordEdit(final long visited, final long changed,
+            final long nanos, final boolean completed) {
+        AreaMetrics.EDIT_VISITED.add(visited);
+        AreaMetrics.EDIT_CHANGED.add(changed);
+        AreaMetrics.EDIT_SLICE_DURATION.record(nanos);
+        if (completed) {
+            AreaMetrics.EDIT_JOBS.increment();
+        }
+    }
+
+    /**
+     * Records a lookup of the areas at a location.
+     *
+     * @param candidates
+     *            The areas checked using contains.
+     * @param hits
+     *            The areas which contained the location.
+     * @param nanos
+     *            The time taken, in nanoseconds.
+     */
+    public static void recordLookup(final int candidates, final int hits,
+            final long nanos) {
+        AreaMetrics.CONTAINS_CHECKS.add(candidates);
+        AreaMetrics.INDEX_HITS.add(hits);
+        AreaMetrics.LOOKUP_DURATION.record(nanos);
+    }
+
+    /**
+     * Records a chunk snapshot scanned.
+     *
+     * @param blocks
+     *            The blocks scanned within the snapshot.
+     */
+    public static void recordScan(final long blocks) {
+        AreaMetrics.SCAN_CHUNKS.increment();
+        AreaMetrics.SCAN_BLOCKS.add(blocks);
+    }
+
+    /**
+     * Starts or stops recording metrics. Metrics recorded so far are kept.
+     *
+     * @param enabled
+     *            True to record metrics.
+     */
+    public static void setEnabled(final boolean enabled) {
+        AreaMetrics.enabled = enabled;
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format.
+     *
+     * @param out
+     *            The output to write to.
+     * @throws IOException
+     *             Thrown when the output can not be written.
+     */
+    public static void write(final Appendable out) throws IOException {
+        AreaMetrics.REGISTRY.write(out);
+    }
+
+    private AreaMetrics() {
+    }
+}
@@ -0,0 +1,62 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count which only grows. The count is striped over cells, so threads
+ * counting at the same time do not contend on a single value.
+ */
+public final class Counter implements Metric {
+
+    private final String name;
+
+    private final String help;
+
+    private final LongAdder count = new LongAdder();
+
+    Counter(final String name, final String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    /**
+     * Adds to the count.
+     *
+     * @param amount
+     *            The amount to add.
+     */
+    public void add(final long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * The current count.
+     *
+     * @return The sum of every amount added.
+     */
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Adds one to the count.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    @Override
+    public void write(final Appendable out) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help)
+                .append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(Long.toString(count.sum()))
+                .append('\n');
+    }
+}
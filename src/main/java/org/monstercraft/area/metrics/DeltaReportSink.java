@@ -0,0 +1,93 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sink which leaves out the plotter values that did not change since the
+ * last report the backend acknowledged. Reports which leave values out carry
+ * a delta field set to true, so the backend knows to keep the values it
+ * already has. Every report of a batch is compared to the one before it, so
+ * replayed reports can be applied in order.
+ *
+ * The next report is sent in full after the backend asks for the plotters to
+ * be reset, and whenever a plotter was removed. Sinks which do not accept
+ * delta reports are handed every report in full.
+ */
+public class DeltaReportSink implements ReportSink {
+
+    private final ReportSink sink;
+
+    /**
+     * The plotter values of the last report acknowledged.
+     */
+    private Map<String, String> acknowledged = Collections.emptyMap();
+
+    /**
+     * Creates a sink.
+     *
+     * @param sink
+     *            The sink to deliver the reports to.
+     */
+    public DeltaReportSink(final ReportSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Leaves the values which match the previous values out of the report.
+     */
+    private Report delta(final Report report,
+            final Map<String, String> previous) {
+        if (!report.getFields().keySet().containsAll(previous.keySet())) {
+            // A removed plotter can only be dropped by a full report
+            return report;
+        }
+        final Map<String, String> fields = new LinkedHashMap<String, String>();
+        for (final Map.Entry<String, String> field : report.getFields()
+                .entrySet()) {
+            final String key = field.getKey();
+            if (!key.startsWith(Metrics.PLOTTER_PREFIX)
+                    || !field.getValue().equals(previous.get(key))) {
+                fields.put(key, field.getValue());
+            }
+        }
+        if (fields.size() == report.getFields().size()) {
+            return report;
+        }
+        fields.put("delta", "true");
+        return new Report(report.getTime(), report.isPing(), fields);
+    }
+
+    @Override
+    public boolean acceptsBatches() {
+        return sink.acceptsBatches();
+    }
+
+    @Override
+    public boolean send(final List<Report> reports) throws IOException {
+        if (!sink.acceptsDeltas()) {
+            return sink.send(reports);
+        }
+        final List<Report> deltas = new ArrayList<Report>(reports.size());
+        Map<String, String> previous = acknowledged;
+        for (final Report report : reports) {
+            deltas.add(this.delta(report, previous));
+            previous = new HashMap<String, String>();
+            for (final Map.Entry<String, String> field : report.getFields()
+                    .entrySet()) {
+                if (field.getKey().startsWith(Metrics.PLOTTER_PREFIX)) {
+                    previous.put(field.getKey(), field.getValue());
+                }
+            }
+        }
+        final boolean reset = sink.send(deltas);
+        acknowledged = reset ? Collections.<String, String> emptyMap()
+                : previous;
+        return reset;
+    }
+}
@@ -0,0 +1,54 @@
+package org.monstercraft.area.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A sink which appends every report to a local file, one line per report
+ * holding the time it was taken and its encoded fields separated by a tab.
+ */
+public class FileReportSink implements ReportSink {
+
+    private final File file;
+
+    /**
+     * Creates a sink appending to the file.
+     *
+     * @param file
+     *            The file to append to. Its folder is created if missing.
+     */
+    public FileReportSink(final File file) {
+        this.file = file;
+    }
+
+    @Override
+    public boolean acceptsBatches() {
+        return true;
+    }
+
+    @Override
+    public boolean send(final List<Report> reports) throws IOException {
+        final File folder = file.getAbsoluteFile().getParentFile();
+        if (folder != null && !folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+        final Writer out = new OutputStreamWriter(new FileOutputStream(file,
+                true), StandardCharsets.UTF_8);
+        try {
+            for (final Report report : reports) {
+                out.write(Long.toString(report.getTime()));
+                out.write('\t');
+                out.write(report.encode());
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,121 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distribution of values over buckets whose bounds are powers of two.
+ * Recording a value finds its bucket with a single bit count and adds to a
+ * striped count, so it neither locks nor allocates.
+ *
+ * Values are recorded as longs, such as nanoseconds or amounts of blocks,
+ * and multiplied by the scale of the histogram when exposed, so durations
+ * can be exposed in seconds.
+ */
+public final class Histogram implements Metric {
+
+    private final String name;
+
+    private final String help;
+
+    /**
+     * The power of two of the bound of the first bucket.
+     */
+    private final int first;
+
+    private final double scale;
+
+    /**
+     * The count of every bucket, the last one counting the values above the
+     * bound of every other bucket.
+     */
+    private final LongAdder[] buckets;
+
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Creates a histogram.
+     *
+     * @param first
+     *            The power of two of the bound of the first bucket.
+     * @param count
+     *            The amount of buckets with a bound.
+     * @param scale
+     *            The value the bounds and sum are multiplied by when exposed.
+     */
+    Histogram(final String name, final String help, final int first,
+            final int count, final double scale) {
+        this.name = name;
+        this.help = help;
+        this.first = first;
+        this.scale = scale;
+        buckets = new LongAdder[count + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * The amount of values recorded.
+     *
+     * @return The amount of values.
+     */
+    public long getCount() {
+        long count = 0;
+        for (final LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The sum of the values recorded, unscaled.
+     *
+     * @return The sum of the values.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value
+     *            The value to record.
+     */
+    public void record(final long value) {
+        // The power of two of the smallest bound the value is within
+        final int power = value <= 1 ? 0
+                : 64 - Long.numberOfLeadingZeros(value - 1);
+        buckets[Math.min(Math.max(power - first, 0), buckets.length - 1)]
+                .increment();
+        sum.add(value);
+    }
+
+    @Override
+    public void write(final Appendable out) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help)
+                .append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            count += buckets[i].sum();
+            out.append(name).append("_bucket{le=\"");
+            if (i == buckets.length - 1) {
+                out.append("+Inf");
+            } else {
+                out.append(Double.toString(Math.scalb(scale, first + i)));
+            }
+            out.append("\"} ").append(Long.toString(count)).append('\n');
+        }
+        out.append(name).append("_sum ")
+                .append(Double.toString(sum.sum() * scale)).append('\n');
+        out.append(name).append("_count ").append(Long.toString(count))
+                .append('\n');
+    }
+}
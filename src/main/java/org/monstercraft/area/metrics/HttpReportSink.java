@@ -0,0 +1,154 @@
+package org.monstercraft.area.metrics;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A sink posting reports to a metrics backend. By default every report is
+ * posted in full as a request of its own, holding the plain form body the
+ * metrics website has always accepted. Backends which accept the extended
+ * form can be sent delta reports, and a whole batch as a single request with
+ * one encoded report per line; the bodies of batches of more than one report
+ * are compressed with gzip.
+ */
+public class HttpReportSink implements ReportSink {
+
+    /**
+     * The reply of the backend asking for the plotters to be reset.
+     */
+    private static final String FIRST_UPDATE = "OK This is your first update this hour";
+
+    private static final int TIMEOUT = 10000;
+
+    /**
+     * Check if mineshafter is present. If it is, we need to bypass it to send
+     * POST requests
+     */
+    private static boolean isMineshafterPresent() {
+        try {
+            Class.forName("mineshafter.MineServer");
+            return true;
+        } catch (final Exception e) {
+            return false;
+        }
+    }
+
+    private final URL url;
+
+    private final boolean extended;
+
+    /**
+     * Creates a sink posting one report per request to the url.
+     *
+     * @param url
+     *            The url to post reports to.
+     */
+    public HttpReportSink(final URL url) {
+        this(url, false);
+    }
+
+    /**
+     * Creates a sink posting to the url.
+     *
+     * @param url
+     *            The url to post reports to.
+     * @param extended
+     *            True if the backend accepts the extended form: batches of
+     *            reports, one per line and compressed with gzip, and delta
+     *            reports. False to post one full report per request.
+     */
+    public HttpReportSink(final URL url, final boolean extended) {
+        this.url = url;
+        this.extended = extended;
+    }
+
+    @Override
+    public boolean acceptsBatches() {
+        return extended;
+    }
+
+    @Override
+    public boolean acceptsDeltas() {
+        return extended;
+    }
+
+    /**
+     * Posts the body, compressed with gzip if specified.
+     *
+     * @return True if the backend asked for the plotters to be reset.
+     */
+    private boolean post(byte[] body, final boolean gzip) throws IOException {
+        if (gzip) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                    body.length / 4 + 64);
+            final GZIPOutputStream out = new GZIPOutputStream(bytes);
+            out.write(body);
+            out.close();
+            body = bytes.toByteArray();
+        }
+
+        // Mineshafter creates a socks proxy, so we can safely bypass it
+        // It does not reroute POST requests so we need to go around it
+        final HttpURLConnection connection = (HttpURLConnection) (HttpReportSink
+                .isMineshafterPresent() ? url.openConnection(Proxy.NO_PROXY)
+                : url.openConnection());
+        // A hanging backend must not hold the reporting thread forever
+        connection.setConnectTimeout(HttpReportSink.TIMEOUT);
+        connection.setReadTimeout(HttpReportSink.TIMEOUT);
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type",
+                "application/x-www-form-urlencoded; charset=utf-8");
+        if (gzip) {
+            connection.setRequestProperty("Content-Encoding", "gzip");
+        }
+        connection.setFixedLengthStreamingMode(body.length);
+        try {
+            final OutputStream out = connection.getOutputStream();
+            out.write(body);
+            out.close();
+
+            final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(),
+                            StandardCharsets.UTF_8));
+            final String response = reader.readLine();
+            reader.close();
+            if (response == null || response.startsWith("ERR")) {
+                throw new IOException(response);
+            }
+            return response.contains(HttpReportSink.FIRST_UPDATE);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public boolean send(final List<Report> reports) throws IOException {
+        if (!extended) {
+            boolean reset = false;
+            for (final Report report : reports) {
+                reset |= this.post(report.encode().getBytes(
+                        StandardCharsets.UTF_8), false);
+            }
+            return reset;
+        }
+        final StringBuilder data = new StringBuilder();
+        for (final Report report : reports) {
+            if (data.length() > 0) {
+                data.append('\n');
+            }
+            data.append(report.encode());
+        }
+        return this.post(data.toString().getBytes(StandardCharsets.UTF_8),
+                reports.size() > 1);
+    }
+}
@@ -0,0 +1,75 @@
+package org.monstercraft.area.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sink which keeps every report in memory, for checking what would have
+ * been reported.
+ */
+public class MemoryReportSink implements ReportSink {
+
+    private final List<Report> reports = new ArrayList<Report>();
+
+    private int batches;
+
+    @Override
+    public boolean acceptsBatches() {
+        return true;
+    }
+
+    @Override
+    public boolean acceptsDeltas() {
+        return true;
+    }
+
+    /**
+     * The amount of batches delivered.
+     *
+     * @return The amount of batches.
+     */
+    public synchronized int getBatchCount() {
+        return batches;
+    }
+
+    /**
+     * The reports delivered so far, oldest first.
+     *
+     * @return A copy of the reports.
+     */
+    public synchronized List<Report> getReports() {
+        return new ArrayList<Report>(reports);
+    }
+
+    @Override
+    public synchronized boolean send(final List<Report> reports) {
+        this.reports.addAll(reports);
+        batches++;
+        this.notifyAll();
+        return false;
+    }
+
+    /**
+     * Waits until at least the amount of reports specified were delivered.
+     *
+     * @param count
+     *            The amount of reports to wait for.
+     * @param timeout
+     *            The most time to wait, in milliseconds.
+     * @return True if the reports were delivered in time.
+     * @throws InterruptedException
+     *             Thrown when the thread is interrupted while waiting.
+     */
+    public synchronized boolean await(final int count, final long timeout)
+            throws InterruptedException {
+        final long end = System.currentTimeMillis() + timeout;
+        while (reports.size() < count) {
+            final long left = end - System.currentTimeMillis();
+            if (left <= 0) {
+                return false;
+            }
+            this.wait(left);
+        }
+        return true;
+    }
+}
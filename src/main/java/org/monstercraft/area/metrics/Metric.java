@@ -0,0 +1,20 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+
+/**
+ * A value held by a {@link MetricRegistry}.
+ */
+interface Metric {
+
+    /**
+     * The name the metric is exposed under.
+     */
+    String getName();
+
+    /**
+     * Writes the metric in the Prometheus text format, including its help and
+     * type lines.
+     */
+    void write(Appendable out) throws IOException;
+}
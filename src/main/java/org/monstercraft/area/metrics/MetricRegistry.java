@@ -0,0 +1,87 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of counters and histograms which can be written in the Prometheus
+ * text format. Metrics are created up front and never removed.
+ */
+public class MetricRegistry {
+
+    private final List<Metric> metrics = new ArrayList<Metric>();
+
+    private synchronized <M extends Metric> M add(final M metric) {
+        for (final Metric m : metrics) {
+            if (m.getName().equals(metric.getName())) {
+                throw new IllegalArgumentException("A metric named "
+                        + metric.getName() + " already exists");
+            }
+        }
+        metrics.add(metric);
+        return metric;
+    }
+
+    /**
+     * Creates a counter.
+     *
+     * @param name
+     *            The name to expose the counter under.
+     * @param help
+     *            A description of what is counted.
+     * @return The counter.
+     */
+    public Counter counter(final String name, final String help) {
+        return this.add(new Counter(name, help));
+    }
+
+    /**
+     * Creates a histogram of durations recorded in nanoseconds and exposed in
+     * seconds. The buckets range from 64 nanoseconds to about 34 seconds.
+     *
+     * @param name
+     *            The name to expose the histogram under.
+     * @param help
+     *            A description of what is timed.
+     * @return The histogram.
+     */
+    public Histogram durations(final String name, final String help) {
+        return this.add(new Histogram(name, help, 6, 30, 1e-9));
+    }
+
+    /**
+     * Creates a histogram of amounts, such as amounts of blocks. The buckets
+     * range from 1 to 2^count.
+     *
+     * @param name
+     *            The name to expose the histogram under.
+     * @param help
+     *            A description of what is measured.
+     * @param count
+     *            The amount of buckets.
+     * @return The histogram.
+     */
+    public Histogram sizes(final String name, final String help,
+            final int count) {
+        return this.add(new Histogram(name, help, 0, count, 1));
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format.
+     *
+     * @param out
+     *            The output to write to.
+     * @throws IOException
+     *             Thrown when the output can not be written.
+     */
+    public void write(final Appendable out) throws IOException {
+        final List<Metric> metrics;
+        synchronized (this) {
+            metrics = new ArrayList<Metric>(this.metrics);
+        }
+        for (final Metric metric : metrics) {
+            metric.write(out);
+        }
+    }
+}
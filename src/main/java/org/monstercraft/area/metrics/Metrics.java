@@ -28,20 +28,16 @@ package org.monstercraft.area.metrics;
  * either expressed or implied, of anybody else.
  */
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
-import java.net.Proxy;
 import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLEncoder;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
@@ -217,25 +213,21 @@ public class Metrics {
     }
 
     /**
-     * <p>
-     * Encode a key/value data pair to be used in a HTTP post request. This INCLUDES a & so the first key/value pair MUST be included manually, e.g:
-     * </p>
-     * <code>
-     * StringBuffer data = new StringBuffer();
-     * data.append(encode("guid")).append('=').append(encode(guid));
-     * encodeDataPair(data, "version", description.getVersion());
-     * </code>
-     *
-     * @param buffer
-     * @param key
-     * @param value
-     * @return
+     * The sink posting to the report url of the plugin on the metrics
+     * website, one full report per request. Reports which fail are spooled
+     * and replayed later.
      */
-    private static void encodeDataPair(final StringBuilder buffer,
-            final String key, final String value)
-            throws UnsupportedEncodingException {
-        buffer.append('&').append(Metrics.encode(key)).append('=')
-                .append(Metrics.encode(value));
+    private static ReportSink websiteSink(final Plugin plugin)
+            throws IOException {
+        if (plugin == null) {
+            throw new IllegalArgumentException("Plugin cannot be null");
+        }
+        final String name = plugin.getDescription().getName();
+        final ReportSink http = new HttpReportSink(new URL(Metrics.BASE_URL
+                + String.format(Metrics.REPORT_URL, Metrics.encode(name))));
+        return new SpoolingReportSink(http,
+                new ReportSpool(new File(Metrics.SPOOL_FOLDER, name + ".spool"),
+                        Metrics.SPOOL_LIMIT));
     }
 
     /**
@@ -258,11 +250,26 @@ public class Metrics {
      */
     private static final String CONFIG_FILE = "plugins/PluginMetrics/config.yml";
 
+    /**
+     * The folder failed reports are spooled in
+     */
+    private static final String SPOOL_FOLDER = "plugins/PluginMetrics/spool";
+
+    /**
+     * The most bytes spooled for a plugin
+     */
+    private static final long SPOOL_LIMIT = 256 * 1024;
+
     /**
      * The separator to use for custom data. This MUST NOT change unless you are hosting your own version of metrics and want to change it.
      */
     private static final String CUSTOM_DATA_SEPARATOR = "~~";
 
+    /**
+     * The start of the key of every plotter value
+     */
+    static final String PLOTTER_PREFIX = "C" + Metrics.CUSTOM_DATA_SEPARATOR;
+
     /**
      * Interval of time to ping (in minutes)
      */
@@ -273,6 +280,11 @@ public class Metrics {
      */
     private final Plugin plugin;
 
+    /**
+     * Where reports are delivered
+     */
+    private final ReportSink sink;
+
     /**
      * All of the custom graphs to submit to metrics
      */
@@ -304,17 +316,49 @@ public class Metrics {
      */
     private final Object optOutLock = new Object();
 
+    /**
+     * The opt out flag as last read, and the modification time and length of
+     * the file it was read from. The file is only read again once it changes.
+     */
+    private boolean optOut;
+
+    private long optOutModified = -1;
+
+    private long optOutLength = -1;
+
     /**
      * Id of the scheduled task
      */
     private volatile int taskId = -1;
 
+    /**
+     * Delivers the reports while the task is running
+     */
+    private Reporter reporter;
+
     public Metrics(final Plugin plugin) throws IOException {
+        this(plugin, Metrics.websiteSink(plugin));
+    }
+
+    /**
+     * Creates metrics delivering reports to the sink specified instead of the
+     * metrics website, such as a file or a local server.
+     *
+     * @param plugin
+     * @param sink
+     * @throws IOException
+     */
+    public Metrics(final Plugin plugin, final ReportSink sink)
+            throws IOException {
         if (plugin == null) {
             throw new IllegalArgumentException("Plugin cannot be null");
         }
+        if (sink == null) {
+            throw new IllegalArgumentException("Sink cannot be null");
+        }
 
         this.plugin = plugin;
+        this.sink = sink;
 
         // load the config
         configurationFile = new File(Metrics.CONFIG_FILE);
@@ -388,13 +432,11 @@ public class Metrics {
             if (!this.isOptOut()) {
                 configuration.set("opt-out", true);
                 configuration.save(configurationFile);
+                optOut = true;
             }
 
             // Disable Task, if it is running
-            if (taskId > 0) {
-                plugin.getServer().getScheduler().cancelTask(taskId);
-                taskId = -1;
-            }
+            this.stop();
         }
     }
 
@@ -412,6 +454,7 @@ public class Metrics {
             if (this.isOptOut()) {
                 configuration.set("opt-out", false);
                 configuration.save(configurationFile);
+                optOut = false;
             }
 
             // Enable Task, if it is not running
@@ -422,29 +465,22 @@ public class Metrics {
     }
 
     /**
-     * Check if mineshafter is present. If it is, we need to bypass it to send POST requests
-     *
-     * @return
-     */
-    private boolean isMineshafterPresent() {
-        try {
-            Class.forName("mineshafter.MineServer");
-            return true;
-        } catch (final Exception e) {
-            return false;
-        }
-    }
-
-    /**
-     * Has the server owner denied plugin metrics?
+     * Has the server owner denied plugin metrics? The config file is only
+     * read again when its modification time or length changed since it was
+     * last read.
      *
      * @return
      */
     public boolean isOptOut() {
         synchronized (optOutLock) {
+            final long modified = configurationFile.lastModified();
+            final long length = configurationFile.length();
+            if (modified == optOutModified && length == optOutLength) {
+                return optOut;
+            }
             try {
                 // Reload the metrics file
-                configuration.load(Metrics.CONFIG_FILE);
+                configuration.load(configurationFile);
             } catch (final IOException ex) {
                 Bukkit.getLogger().log(Level.INFO,
                         "[Metrics] " + ex.getMessage());
@@ -454,121 +490,71 @@ public class Metrics {
                         "[Metrics] " + ex.getMessage());
                 return true;
             }
-            return configuration.getBoolean("opt-out", false);
+            optOut = configuration.getBoolean("opt-out", false);
+            optOutModified = modified;
+            optOutLength = length;
+            return optOut;
         }
     }
 
     /**
-     * Generic method that posts a plugin to the metrics website
+     * Resets every plotter, once the metrics website has started a new hour
      */
-    private void postPlugin(final boolean isPing) throws IOException {
+    private void resetPlotters() {
+        synchronized (graphs) {
+            for (final Graph graph : graphs) {
+                for (final Plotter plotter : graph.getPlotters()) {
+                    plotter.reset();
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the plugin and the values of every plotter. No I/O
+     * is done here, so the graphs are only locked while the values are read.
+     */
+    private Report snapshot(final boolean isPing) {
         // The plugin's description file containg all of the plugin data such as
         // name, version, author, etc
         final PluginDescriptionFile description = plugin.getDescription();
 
-        // Construct the post data
-        final StringBuilder data = new StringBuilder();
-        data.append(Metrics.encode("guid")).append('=')
-                .append(Metrics.encode(guid));
-        Metrics.encodeDataPair(data, "version", description.getVersion());
-        Metrics.encodeDataPair(data, "server", Bukkit.getVersion());
-        Metrics.encodeDataPair(data, "players",
+        final Map<String, String> data = new LinkedHashMap<String, String>();
+        data.put("guid", guid);
+        data.put("version", description.getVersion());
+        data.put("server", Bukkit.getVersion());
+        data.put("players",
                 Integer.toString(Bukkit.getServer().getOnlinePlayers().length));
-        Metrics.encodeDataPair(data, "revision",
-                String.valueOf(Metrics.REVISION));
+        data.put("revision", String.valueOf(Metrics.REVISION));
 
         // If we're pinging, append it
         if (isPing) {
-            Metrics.encodeDataPair(data, "ping", "true");
+            data.put("ping", "true");
         }
 
         // Acquire a lock on the graphs, which lets us make the assumption we
-        // also lock everything
-        // inside of the graph (e.g plotters)
+        // also lock everything inside of the graph (e.g plotters)
         synchronized (graphs) {
-            final Iterator<Graph> iter = graphs.iterator();
-
-            while (iter.hasNext()) {
-                final Graph graph = iter.next();
-
+            for (final Graph graph : graphs) {
                 for (final Plotter plotter : graph.getPlotters()) {
                     // The key name to send to the metrics server
                     // The format is C-GRAPHNAME-PLOTTERNAME where separator -
                     // is defined at the top
-                    // Legacy (R4) submitters use the format Custom%s, or
-                    // CustomPLOTTERNAME
                     final String key = String.format("C%s%s%s%s",
                             Metrics.CUSTOM_DATA_SEPARATOR, graph.getName(),
                             Metrics.CUSTOM_DATA_SEPARATOR,
                             plotter.getColumnName());
-
-                    // The value to send, which for the foreseeable future is
-                    // just the string
-                    // value of plotter.getValue()
-                    final String value = Integer.toString(plotter.getValue());
-
-                    // Add it to the http post data :)
-                    Metrics.encodeDataPair(data, key, value);
-                }
-            }
-        }
-
-        // Create the url
-        final URL url = new URL(Metrics.BASE_URL
-                + String.format(Metrics.REPORT_URL,
-                        Metrics.encode(plugin.getDescription().getName())));
-
-        // Connect to the website
-        URLConnection connection;
-
-        // Mineshafter creates a socks proxy, so we can safely bypass it
-        // It does not reroute POST requests so we need to go around it
-        if (this.isMineshafterPresent()) {
-            connection = url.openConnection(Proxy.NO_PROXY);
-        } else {
-            connection = url.openConnection();
-        }
-
-        connection.setDoOutput(true);
-
-        // Write the data
-        final OutputStreamWriter writer = new OutputStreamWriter(
-                connection.getOutputStream());
-        writer.write(data.toString());
-        writer.flush();
-
-        // Now read the response
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(
-                connection.getInputStream()));
-        final String response = reader.readLine();
-
-        // close resources
-        writer.close();
-        reader.close();
-
-        if (response == null || response.startsWith("ERR")) {
-            throw new IOException(response); // Throw the exception
-        } else {
-            // Is this the first update this hour?
-            if (response.contains("OK This is your first update this hour")) {
-                synchronized (graphs) {
-                    final Iterator<Graph> iter = graphs.iterator();
-
-                    while (iter.hasNext()) {
-                        final Graph graph = iter.next();
-
-                        for (final Plotter plotter : graph.getPlotters()) {
-                            plotter.reset();
-                        }
-                    }
+                    data.put(key, Integer.toString(plotter.getValue()));
                 }
             }
         }
+        return new Report(System.currentTimeMillis(), isPing, data);
     }
 
     /**
-     * Start measuring statistics. This will immediately create an async repeating task as the plugin and send the initial data to the metrics
-     * backend, and then after that it will post in increments of PING_INTERVAL * 1200 ticks.
+     * Start measuring statistics. This will immediately create an async repeating task as the plugin and take the initial snapshot, and then after
+     * that it will take one in increments of PING_INTERVAL * 1200 ticks. Snapshots are handed to a reporting thread which delivers them to the
+     * sink, so a slow or hanging backend never holds up the task.
      *
      * @return True if statistics measuring is running, otherwise false.
      */
@@ -584,6 +570,12 @@ public class Metrics {
                 return true;
             }
 
+            final Reporter reporter = new Reporter("Metrics reporter for "
+                    + plugin.getDescription().getName(), sink,
+                    this::resetPlotters);
+            reporter.start();
+            this.reporter = reporter;
+
             // Begin hitting the server with glorious data
             taskId = plugin.getServer().getScheduler()
                     .scheduleAsyncRepeatingTask(plugin, new Runnable() {
@@ -592,35 +584,21 @@ public class Metrics {
 
                         @Override
                         public void run() {
-                            try {
-                                // This has to be synchronized or it can collide
-                                // with the disable method.
-                                synchronized (optOutLock) {
-                                    // Disable Task, if it is running and the
-                                    // server owner decided to opt-out
-                                    if (Metrics.this.isOptOut() && taskId > 0) {
-                                        plugin.getServer().getScheduler()
-                                                .cancelTask(taskId);
-                                        taskId = -1;
-                                    }
+                            // This has to be synchronized or it can collide
+                            // with the disable method.
+                            synchronized (optOutLock) {
+                                // Disable Task, if it is running and the
+                                // server owner decided to opt-out
+                                if (Metrics.this.isOptOut()) {
+                                    Metrics.this.stop();
+                                    return;
                                 }
-
-                                // We use the inverse of firstPost because if it
-                                // is the first time we are posting,
-                                // it is not a interval ping, so it evaluates to
-                                // FALSE
-                                // Each time thereafter it will evaluate to
-                                // TRUE, i.e PING!
-                                Metrics.this.postPlugin(!firstPost);
-
-                                // After the first post we set firstPost to
-                                // false
-                                // Each post thereafter will be a ping
-                                firstPost = false;
-                            } catch (final IOException e) {
-                                Bukkit.getLogger().log(Level.INFO,
-                                        "[Metrics] " + e.getMessage());
                             }
+
+                            // The first snapshot is not an interval ping,
+                            // every one thereafter is
+                            reporter.offer(Metrics.this.snapshot(!firstPost));
+                            firstPost = false;
                         }
                     }, 0, Metrics.PING_INTERVAL * 1200);
 
@@ -628,4 +606,21 @@ public class Metrics {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Stops measuring statistics without changing the opt-out setting, such as when the plugin is disabled. Snapshots not yet delivered are
+     * dropped.
+     */
+    public void stop() {
+        synchronized (optOutLock) {
+            if (taskId >= 0) {
+                plugin.getServer().getScheduler().cancelTask(taskId);
+                taskId = -1;
+            }
+            if (reporter != null) {
+                reporter.stop();
+                reporter = null;
+            }
+        }
+    }
+
+}
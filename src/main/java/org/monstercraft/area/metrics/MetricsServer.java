@@ -0,0 +1,108 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the metrics of a registry at /metrics in the Prometheus text format,
+ * using the HTTP server of the JDK. Requests are answered on a single daemon
+ * thread, never the main thread.
+ */
+public class MetricsServer {
+
+    private final MetricRegistry registry;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * Creates a server for the registry.
+     *
+     * @param registry
+     *            The registry to serve.
+     */
+    public MetricsServer(final MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final StringBuilder text = new StringBuilder(4096);
+            registry.write(text);
+            final byte[] body = text.toString()
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            final OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Checks if the server is running.
+     *
+     * @return True if the server is running; otherwise false.
+     */
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @param host
+     *            The address to listen on, such as 127.0.0.1 to only answer
+     *            local requests.
+     * @param port
+     *            The port to listen on.
+     * @throws IOException
+     *             Thrown when the port can not be bound.
+     * @throws IllegalStateException
+     *             Thrown when the server is already running.
+     */
+    public synchronized void start(final String host, final int port)
+            throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("The server is already running");
+        }
+        final HttpServer server = HttpServer.create(new InetSocketAddress(
+                host, port), 0);
+        server.createContext("/metrics", this::handle);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            final Thread thread = new Thread(r, "AreaAPI metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        this.server = server;
+    }
+
+    /**
+     * Stops the server if it is running.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.monstercraft.area.metrics;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A snapshot of the data reported by {@link Metrics}: the fields of the
+ * server and the value of every plotter, in the order they are posted. A
+ * report is never changed once taken, so it can be handed to a sink on
+ * another thread.
+ */
+public final class Report {
+
+    /**
+     * The encoded names of the fields. Every report holds the same names, so
+     * each is only encoded once.
+     */
+    private static final Map<String, String> NAMES = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Decodes a report from the fields encoded by {@link #encode()}.
+     */
+    static Report decode(final long time, final boolean ping,
+            final String encoded) {
+        final Map<String, String> fields = new LinkedHashMap<String, String>();
+        try {
+            for (final String pair : encoded.split("&")) {
+                final int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    fields.put(URLDecoder.decode(pair.substring(0, eq),
+                            "UTF-8"), URLDecoder.decode(
+                            pair.substring(eq + 1), "UTF-8"));
+                }
+            }
+        } catch (final UnsupportedEncodingException e) {
+            // Every JVM supports UTF-8
+            throw new IllegalStateException(e);
+        }
+        return new Report(time, ping, fields);
+    }
+
+    /**
+     * Encodes text as UTF-8. Text which only holds characters left alone by
+     * the encoding, such as the digits of a value, is returned as it is.
+     */
+    private static String encode(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0'
+                    && c <= '9' || c == '-' || c == '.' || c == '_' || c == '*')) {
+                try {
+                    return URLEncoder.encode(text, "UTF-8");
+                } catch (final UnsupportedEncodingException e) {
+                    // Every JVM supports UTF-8
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return text;
+    }
+
+    private final long time;
+
+    private final boolean ping;
+
+    private final Map<String, String> fields;
+
+    /**
+     * Creates a report.
+     *
+     * @param time
+     *            The time the snapshot was taken, in milliseconds since the
+     *            epoch.
+     * @param ping
+     *            True if the report is a ping following the first report.
+     * @param fields
+     *            The fields of the report, copied in their order.
+     */
+    public Report(final long time, final boolean ping,
+            final Map<String, String> fields) {
+        this.time = time;
+        this.ping = ping;
+        this.fields = Collections
+                .unmodifiableMap(new LinkedHashMap<String, String>(fields));
+    }
+
+    /**
+     * Encodes the fields as a URL encoded form, the body posted to the
+     * metrics backend.
+     *
+     * @return The encoded fields.
+     */
+    public String encode() {
+        final StringBuilder data = new StringBuilder(fields.size() * 32);
+        for (final Map.Entry<String, String> field : fields.entrySet()) {
+            if (data.length() > 0) {
+                data.append('&');
+            }
+            String name = Report.NAMES.get(field.getKey());
+            if (name == null) {
+                name = Report.encode(field.getKey());
+                Report.NAMES.put(field.getKey(), name);
+            }
+            data.append(name).append('=')
+                    .append(Report.encode(field.getValue()));
+        }
+        return data.toString();
+    }
+
+    /**
+     * The fields of the report.
+     *
+     * @return An unmodifiable map of the fields, in the order they are
+     *         posted.
+     */
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    /**
+     * The time the snapshot was taken.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Checks if the report is a ping following the first report.
+     *
+     * @return True if the report is a ping.
+     */
+    public boolean isPing() {
+        return ping;
+    }
+
+    @Override
+    public String toString() {
+        return "Report{" + time + ", " + this.encode() + "}";
+    }
+}
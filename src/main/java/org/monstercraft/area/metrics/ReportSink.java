@@ -0,0 +1,46 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the reports of {@link Metrics} are delivered. Sinks are only called
+ * from the single reporting thread, never the main thread, so they may
+ * block.
+ */
+public interface ReportSink {
+
+    /**
+     * Checks if the sink can deliver a batch of more than one report at once.
+     * Sinks which cannot are handed their reports one at a time.
+     *
+     * @return True if the sink accepts batches; otherwise false.
+     */
+    default boolean acceptsBatches() {
+        return false;
+    }
+
+    /**
+     * Checks if the sink can deliver reports which leave out the plotter
+     * values that did not change, as made by {@link DeltaReportSink}.
+     *
+     * @return True if the sink accepts delta reports; otherwise false.
+     */
+    default boolean acceptsDeltas() {
+        return false;
+    }
+
+    /**
+     * Delivers a batch of reports, oldest first. A batch only holds more than
+     * one report when the sink {@link #acceptsBatches() accepts batches} and
+     * reports were taken faster than they could be delivered.
+     *
+     * @param reports
+     *            The reports to deliver.
+     * @return True if the backend asked for the plotters to be reset;
+     *         otherwise false.
+     * @throws IOException
+     *             Thrown when the reports could not be delivered.
+     */
+    boolean send(List<Report> reports) throws IOException;
+}
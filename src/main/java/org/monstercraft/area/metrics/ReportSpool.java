@@ -0,0 +1,220 @@
+package org.monstercraft.area.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only file of reports which could not be delivered. Every report
+ * is a line holding the time it was taken, whether it is a ping and its
+ * encoded fields, separated by tabs.
+ *
+ * The file never grows past its size limit: once an append would pass it,
+ * the file is rewritten keeping the newest reports which fit. A line left
+ * partly written by a crash is skipped when the file is read.
+ */
+public class ReportSpool {
+
+    private static Report parse(final String line) {
+        final int first = line.indexOf('\t');
+        final int second = line.indexOf('\t', first + 1);
+        if (first < 0 || second < 0) {
+            return null;
+        }
+        try {
+            return Report.decode(Long.parseLong(line.substring(0, first)),
+                    line.charAt(first + 1) == '1',
+                    line.substring(second + 1));
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String toLine(final Report report) {
+        return report.getTime() + "\t" + (report.isPing() ? '1' : '0') + '\t'
+                + report.encode() + '\n';
+    }
+
+    private final File file;
+
+    private final long limit;
+
+    /**
+     * Creates a spool. Reports already within the file are kept.
+     *
+     * @param file
+     *            The file to spool to. Its folder is created if missing.
+     * @param limit
+     *            The most bytes the file may hold.
+     */
+    public ReportSpool(final File file, final long limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit must be positive");
+        }
+        this.file = file;
+        this.limit = limit;
+    }
+
+    /**
+     * Appends reports to the end of the file, dropping the oldest reports if
+     * the file would grow past its limit.
+     *
+     * @param reports
+     *            The reports to append, oldest first.
+     * @throws IOException
+     *             Thrown when the file can not be written.
+     */
+    public synchronized void append(final List<Report> reports)
+            throws IOException {
+        final StringBuilder lines = new StringBuilder();
+        for (final Report report : reports) {
+            lines.append(ReportSpool.toLine(report));
+        }
+        final byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+        if (file.length() + bytes.length > limit) {
+            this.compact(bytes);
+            return;
+        }
+        final File folder = file.getAbsoluteFile().getParentFile();
+        if (folder != null && !folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+        if (file.length() > 0) {
+            this.trimTail();
+        }
+        final OutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Removes every report.
+     *
+     * @throws IOException
+     *             Thrown when the file can not be deleted.
+     */
+    public synchronized void clear() throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete " + file);
+        }
+    }
+
+    /**
+     * Rewrites the file with the newest of its lines and the new lines which
+     * fit within the limit.
+     */
+    private void compact(final byte[] appended) throws IOException {
+        final List<byte[]> lines = new ArrayList<byte[]>();
+        for (final String line : this.readLines()) {
+            lines.add((line + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        int start = 0;
+        while (start < appended.length) {
+            int end = start;
+            while (appended[end] != '\n') {
+                end++;
+            }
+            final byte[] line = new byte[end + 1 - start];
+            System.arraycopy(appended, start, line, 0, line.length);
+            lines.add(line);
+            start = end + 1;
+        }
+        long size = 0;
+        int first = lines.size();
+        while (first > 0 && size + lines.get(first - 1).length <= limit) {
+            size += lines.get(--first).length;
+        }
+        final File temp = new File(file.getPath() + ".tmp");
+        final OutputStream out = new FileOutputStream(temp);
+        try {
+            for (int i = first; i < lines.size(); i++) {
+                out.write(lines.get(i));
+            }
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Checks if the spool holds no reports.
+     *
+     * @return True if the spool is empty; otherwise false.
+     */
+    public synchronized boolean isEmpty() {
+        return file.length() == 0;
+    }
+
+    /**
+     * Reads every report, oldest first.
+     *
+     * @return The reports within the spool.
+     * @throws IOException
+     *             Thrown when the file can not be read.
+     */
+    public synchronized List<Report> read() throws IOException {
+        final List<Report> reports = new ArrayList<Report>();
+        for (final String line : this.readLines()) {
+            final Report report = ReportSpool.parse(line);
+            if (report != null) {
+                reports.add(report);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Reads the complete lines of the file, leaving out a last line without
+     * its line break.
+     */
+    private List<String> readLines() throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        if (!file.exists()) {
+            return lines;
+        }
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                if (i > start) {
+                    lines.add(new String(bytes, start, i - start,
+                            StandardCharsets.UTF_8));
+                }
+                start = i + 1;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Cuts off a line left partly written, so the next line appended does
+     * not run into it.
+     */
+    private void trimTail() throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long end = raf.length();
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            raf.setLength(end);
+        } finally {
+            raf.close();
+        }
+    }
+}
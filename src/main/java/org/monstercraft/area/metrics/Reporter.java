@@ -0,0 +1,94 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+
+/**
+ * Delivers the reports of {@link Metrics} to a sink on a thread of its own.
+ * Reports are queued without blocking. Every report queued while the sink was
+ * busy is delivered with the next batch when the sink accepts batches, and
+ * otherwise they are delivered one at a time. When the sink hangs the queue
+ * fills and the oldest reports are dropped, so reports never pile up.
+ */
+final class Reporter implements Runnable {
+
+    /**
+     * The most reports waiting to be delivered.
+     */
+    private static final int CAPACITY = 16;
+
+    private final BlockingQueue<Report> queue = new ArrayBlockingQueue<Report>(
+            Reporter.CAPACITY);
+
+    private final ReportSink sink;
+
+    /**
+     * Called when the sink asks for the plotters to be reset.
+     */
+    private final Runnable reset;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    Reporter(final String name, final ReportSink sink, final Runnable reset) {
+        this.sink = sink;
+        this.reset = reset;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Queues a report, dropping the oldest report if the queue is full.
+     */
+    void offer(final Report report) {
+        while (!queue.offer(report)) {
+            queue.poll();
+        }
+    }
+
+    @Override
+    public void run() {
+        final List<Report> batch = new ArrayList<Report>();
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (final InterruptedException e) {
+                return;
+            }
+            if (sink.acceptsBatches()) {
+                queue.drainTo(batch);
+            }
+            try {
+                if (sink.send(batch)) {
+                    reset.run();
+                }
+            } catch (final IOException e) {
+                Bukkit.getLogger().log(Level.INFO,
+                        "[Metrics] " + e.getMessage());
+            } catch (final RuntimeException e) {
+                Bukkit.getLogger().log(Level.WARNING,
+                        "[Metrics] Could not deliver a report", e);
+            }
+            batch.clear();
+        }
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops delivering reports. Reports still queued are dropped.
+     */
+    void stop() {
+        running = false;
+        thread.interrupt();
+    }
+}
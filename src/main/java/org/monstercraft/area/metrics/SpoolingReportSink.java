@@ -0,0 +1,119 @@
+package org.monstercraft.area.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A sink which keeps the reports another sink failed to deliver in a
+ * {@link ReportSpool} and replays them, oldest first, before the next batch.
+ * Sinks which accept batches are handed the replayed reports and the batch
+ * together; others are handed one report at a time, and the reports they
+ * delivered before a failure are dropped from the spool. After a failure the
+ * sink waits before trying again, doubling the wait with every failure in a
+ * row; reports taken while waiting go straight to the spool.
+ */
+public class SpoolingReportSink implements ReportSink {
+
+    private static final long INITIAL_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+    private static final long MAX_DELAY = TimeUnit.HOURS.toMillis(1);
+
+    private final ReportSink sink;
+
+    private final ReportSpool spool;
+
+    private final long initialDelay;
+
+    private final long maxDelay;
+
+    /**
+     * The wait after the last failure, or 0 if the last attempt succeeded.
+     */
+    private long delay;
+
+    private long nextAttempt;
+
+    /**
+     * Creates a sink waiting from a minute up to an hour after failures.
+     *
+     * @param sink
+     *            The sink to deliver to.
+     * @param spool
+     *            The spool to keep failed reports in.
+     */
+    public SpoolingReportSink(final ReportSink sink, final ReportSpool spool) {
+        this(sink, spool, SpoolingReportSink.INITIAL_DELAY,
+                SpoolingReportSink.MAX_DELAY);
+    }
+
+    /**
+     * Creates a sink.
+     *
+     * @param sink
+     *            The sink to deliver to.
+     * @param spool
+     *            The spool to keep failed reports in.
+     * @param initialDelay
+     *            The wait after the first failure, in milliseconds.
+     * @param maxDelay
+     *            The longest wait, in milliseconds.
+     */
+    public SpoolingReportSink(final ReportSink sink, final ReportSpool spool,
+            final long initialDelay, final long maxDelay) {
+        this.sink = sink;
+        this.spool = spool;
+        this.initialDelay = initialDelay;
+        this.maxDelay = Math.max(maxDelay, initialDelay);
+    }
+
+    @Override
+    public boolean acceptsBatches() {
+        return sink.acceptsBatches();
+    }
+
+    /**
+     * Delivers the spooled reports followed by the batch. If the sink is
+     * still being waited for, the batch is spooled without trying.
+     */
+    @Override
+    public boolean send(final List<Report> reports) throws IOException {
+        final long now = System.currentTimeMillis();
+        if (now < nextAttempt) {
+            spool.append(reports);
+            return false;
+        }
+        final List<Report> pending = new ArrayList<Report>(spool.read());
+        final int spooled = pending.size();
+        pending.addAll(reports);
+        final int step = sink.acceptsBatches() ? pending.size() : 1;
+        boolean reset = false;
+        int sent = 0;
+        try {
+            while (sent < pending.size()) {
+                final int end = Math.min(sent + step, pending.size());
+                reset |= sink.send(pending.subList(sent, end));
+                sent = end;
+            }
+        } catch (final IOException e) {
+            if (sent > 0 && spooled > 0) {
+                // Keep only the reports which were not delivered
+                spool.clear();
+                spool.append(pending.subList(sent, pending.size()));
+            } else {
+                spool.append(pending.subList(Math.max(sent, spooled),
+                        pending.size()));
+            }
+            delay = delay == 0 ? initialDelay : Math.min(delay * 2, maxDelay);
+            nextAttempt = now + delay;
+            throw e;
+        }
+        if (spooled > 0) {
+            spool.clear();
+        }
+        delay = 0;
+        nextAttempt = 0;
+        return reset;
+    }
+}